@@ -0,0 +1,28 @@
+package org.fakester.common.component.display;
+
+import com.inductiveautomation.ignition.common.jsonschema.JsonSchema;
+import com.inductiveautomation.perspective.common.api.ComponentDescriptor;
+import com.inductiveautomation.perspective.common.api.ComponentDescriptorImpl;
+import org.fakester.common.RadComponents;
+
+/**
+ * Meta information about the LogViewer component.  See {@link Image} for docs on each field.
+ */
+public class LogViewer {
+    public static String COMPONENT_ID = "rad.display.logviewer";
+
+    public static JsonSchema SCHEMA =
+        JsonSchema.parse(RadComponents.class.getResourceAsStream("/logviewer.props.json"));
+
+    public static ComponentDescriptor DESCRIPTOR = ComponentDescriptorImpl.ComponentBuilder.newBuilder()
+        .setPaletteCategory(RadComponents.COMPONENT_CATEGORY)
+        .setId(COMPONENT_ID)
+        .setModuleId(RadComponents.MODULE_ID)
+        .setSchema(SCHEMA)
+        .setName("Log Viewer")
+        .addPaletteEntry("", "Log Viewer", "A live panel of the gateway's newest log events.", null, null)
+        .setDefaultMetaName("logViewer")
+        .setResources(RadComponents.BROWSER_RESOURCES)
+        .build();
+
+}
@@ -6,6 +6,7 @@ import org.fakester.common.component.display.Image;
 import org.fakester.common.component.display.ImageTest;
 import org.fakester.common.component.display.Messenger;
 import org.fakester.common.component.display.ScreenCapture;
+import org.fakester.common.component.display.LogViewer;
 import org.fakester.common.component.display.TagCounter;
 import org.fakester.designer.component.TagCountDesignDelegate;
 
@@ -60,6 +61,7 @@ public class RadDesignerHook extends AbstractDesignerModuleHook {
         registry.registerComponent(Messenger.DESCRIPTOR);
         registry.registerComponent(ScreenCapture.DESCRIPTOR);
         registry.registerComponent(AWSInfraSVG.DESCRIPTOR);
+        registry.registerComponent(LogViewer.DESCRIPTOR);
 
         // register design delegates to get the special config UI when a component type is selected in the designer
         delegateRegistry.register(TagCounter.COMPONENT_ID, new TagCountDesignDelegate());
@@ -79,6 +81,7 @@ public class RadDesignerHook extends AbstractDesignerModuleHook {
         registry.removeComponent(Messenger.COMPONENT_ID);
         registry.removeComponent(ScreenCapture.COMPONENT_ID);
         registry.removeComponent(AWSInfraSVG.COMPONENT_ID);
+        registry.removeComponent(LogViewer.COMPONENT_ID);
 
         delegateRegistry.remove(TagCounter.COMPONENT_ID);
     }
@@ -23,4 +23,14 @@ dependencies {
     implementation(libs.ignition.perspective.gateway)
     implementation(libs.ignition.perspective.common)
     compileOnly(libs.ia.gson)
+
+    // the sdk is provided by the gateway at runtime, tests have to bring their own copy
+    testImplementation(libs.ignition.common)
+    testImplementation(libs.ignition.gateway.api)
+    testImplementation(libs.ia.gson)
+    testImplementation(libs.junit.jupiter)
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
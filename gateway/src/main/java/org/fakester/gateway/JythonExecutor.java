@@ -2,88 +2,252 @@ package org.fakester.gateway;
 
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-
+import java.util.concurrent.TimeUnit;
+
+import org.fakester.gateway.importer.ImportSummary;
+import org.fakester.gateway.importer.SpooledUpload;
+import org.fakester.gateway.importer.TagDocumentWriter;
+import org.fakester.gateway.importer.TagExporter;
+import org.fakester.gateway.importer.TagImportEngine;
+import org.fakester.gateway.importer.ValidationReport;
+import org.fakester.gateway.metrics.Histogram;
+import org.fakester.gateway.metrics.ModuleMetrics;
+import org.fakester.gateway.metrics.RateMeter;
+import org.fakester.gateway.tags.FolderStatsCache;
+import org.fakester.gateway.tags.TagAccessCache;
+import org.fakester.gateway.tags.TagBrowseIndex;
+import org.fakester.gateway.tags.TagCountCache;
+import org.fakester.gateway.tags.TagPathGlob;
+import org.fakester.gateway.tags.TagReadCoalescer;
+import org.fakester.gateway.tags.TagSubscriptionManager;
+import org.fakester.gateway.tags.TagWriteQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.inductiveautomation.ignition.common.browsing.BrowseFilter;
 import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
 import com.inductiveautomation.ignition.common.gson.JsonParser;
 import com.inductiveautomation.ignition.common.model.values.BasicQualifiedValue;
 import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
 import com.inductiveautomation.ignition.common.model.values.QualityCode;
-import com.inductiveautomation.ignition.common.tags.browsing.NodeDescription;
 import com.inductiveautomation.ignition.common.tags.config.CollisionPolicy;
 import com.inductiveautomation.ignition.common.tags.model.SecurityContext;
 import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
 import com.inductiveautomation.ignition.common.tags.paths.BasicTagPath;
-import com.inductiveautomation.ignition.common.tags.paths.parser.TagPathParser;
 import com.inductiveautomation.ignition.gateway.model.GatewayContext;
 
 public class JythonExecutor {
 
     private static final Logger logger = LoggerFactory.getLogger(JythonExecutor.class);
+    // how long WriteToTag waits for the provider to confirm a write
+    private static final long WRITE_TIMEOUT_MS = Long.getLong("RadComponents.TagWrite.Timeout", 5000L);
+    // how long the blocking reads wait for the provider
+    private static final long READ_TIMEOUT_MS = Long.getLong("RadComponents.TagRead.Timeout", 5000L);
     private static GatewayContext context = null;
+
+    private static final RateMeter TAG_READS = ModuleMetrics.rate("tag_reads", "Tags read through the executor");
+    private static final Histogram READ_LATENCY = ModuleMetrics.histogram("tag_read_latency",
+        "Time from a read request until its value is available", Histogram.Unit.NANOSECONDS);
+    private static final RateMeter TAG_WRITES = ModuleMetrics.rate("tag_writes", "Tags written through the executor");
+    private static final Histogram WRITE_LATENCY = ModuleMetrics.histogram("tag_write_latency",
+        "Time from a write request until the provider confirmed it", Histogram.Unit.NANOSECONDS);
+    private static final RateMeter IMPORTED_TAGS = ModuleMetrics.rate("imported_tags", "Tags written by tag file imports");
+    private static final Histogram IMPORT_DURATION = ModuleMetrics.histogram("import_duration",
+        "Duration of tag file imports", Histogram.Unit.NANOSECONDS);
+    private final TagAccessCache tagAccess;
+    private final TagReadCoalescer readCoalescer;
+    private final TagWriteQueue writeQueue;
+    private final TagSubscriptionManager tagSubscriptions;
+    private final TagImportEngine importEngine;
+    private final TagExporter exporter;
+    private final TagCountCache tagCounts;
+    private final FolderStatsCache folderStats;
+    private final TagBrowseIndex browseIndex;
     
     public JythonExecutor(GatewayContext context) {
         JythonExecutor.context = context;
+        this.tagAccess = new TagAccessCache(context);
+        this.readCoalescer = new TagReadCoalescer(tagAccess);
+        this.writeQueue = new TagWriteQueue(tagAccess);
+        this.tagSubscriptions = new TagSubscriptionManager(context);
+        this.importEngine = new TagImportEngine(tagAccess,
+            context.getSystemManager().getDataDir().toPath().resolve("radcomponents").resolve("import-hashes.properties"));
+        this.exporter = new TagExporter(tagAccess);
+        this.tagCounts = new TagCountCache(context);
+        this.folderStats = new FolderStatsCache(tagAccess);
+        this.browseIndex = new TagBrowseIndex(context, tagAccess);
     }
     
-    // Programs that writes value to a tag
+    // Programs that writes value to a tag, returns whether the provider accepted the write
     public boolean WriteToTag(String tagPathString, String newValue)
     {
         try{
             logger.info("Tag Path String : {} ", tagPathString);
             logger.info("Tag Path Value : {} ", newValue);
-            var tagsManager = context.getTagManager().getTagProvider("default");
-
-            // Security level manager and configs
-            var securityManager = context.getSecurityLevelManager();
-            var securityLevelConfig = securityManager.getSecurityLevelsConfig();
-            SecurityContext securityContext = SecurityContext.fromSecurityLevels(securityLevelConfig);
-            // Defining tag paths
-            List<TagPath> tagPathsArray = new ArrayList<>();
-            tagPathsArray.add(TagPathParser.parse(tagPathString));
-
-            // defining write values
-            BasicQualifiedValue basicQualifiedValueErste = new BasicQualifiedValue(Integer.parseInt(newValue));
 
-            List<QualifiedValue> values = new ArrayList<>();
-            values.add(basicQualifiedValueErste);
-
-            tagsManager.writeAsync(tagPathsArray, values, securityContext);
+            // the value is converted to the tag's own data type by the write queue
+            QualityCode quality = writeTagAsync(tagPathString, newValue).get(WRITE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (!quality.isGood()) {
+                logger.info("Writing to tag {} returned {}", tagPathString, quality);
+            }
+            return quality.isGood();
         }
         catch (Exception exception)
         {
             logger.info("Writing to tag {} failed !", tagPathString);
             return false;
         }
-        
-        return true;
+    }
+
+    // Queues a write, repeated writes to the same tag within the flush window are coalesced into the last one
+    public CompletableFuture<QualityCode> writeTagAsync(String tagPathStr, Object value)
+    {
+        long start = System.nanoTime();
+        TAG_WRITES.mark();
+        CompletableFuture<QualityCode> future = writeQueue.write(parsePath(tagPathStr), value);
+        future.whenComplete((quality, e) -> WRITE_LATENCY.recordSince(start));
+        return future;
+    }
+
+    public List<CompletableFuture<QualityCode>> writeTagsAsync(List<String> tagPathStrs, List<?> values)
+    {
+        long start = System.nanoTime();
+        TAG_WRITES.mark(tagPathStrs.size());
+        List<TagPath> tagPaths = new ArrayList<>(tagPathStrs.size());
+        for (String tagPathStr : tagPathStrs) {
+            tagPaths.add(parsePath(tagPathStr));
+        }
+        List<CompletableFuture<QualityCode>> futures = writeQueue.writeAll(tagPaths, values);
+        for (CompletableFuture<QualityCode> future : futures) {
+            future.whenComplete((quality, e) -> WRITE_LATENCY.recordSince(start));
+        }
+        return futures;
     }
 
     public String readTagFromPath(String tagPathStr) throws InterruptedException, ExecutionException
     {
-        var tagsManager = context.getTagManager().getTagProvider("default");
+        return readTagFromPathAsync(tagPathStr).orTimeout(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS).get().toString();
+    }
+
+    // Reads several tags at once, paths on the same provider are read with a single readAsync call
+    public List<String> readTagsFromPaths(List<String> tagPathStrs) throws InterruptedException, ExecutionException
+    {
+        List<String> values = new ArrayList<>(tagPathStrs.size());
+        for (QualifiedValue value : readTagsFromPathsAsync(tagPathStrs).orTimeout(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .get()) {
+            values.add(value.toString());
+        }
+        return values;
+    }
+
+    // Non-blocking read, safe to call from the Perspective message thread
+    public CompletableFuture<QualifiedValue> readTagFromPathAsync(String tagPathStr)
+    {
+        long start = System.nanoTime();
+        TAG_READS.mark();
+        CompletableFuture<QualifiedValue> future = readCoalescer.read(parsePath(tagPathStr));
+        future.whenComplete((value, e) -> READ_LATENCY.recordSince(start));
+        return future;
+    }
+
+    public CompletableFuture<List<QualifiedValue>> readTagsFromPathsAsync(List<String> tagPathStrs)
+    {
+        long start = System.nanoTime();
+        TAG_READS.mark(tagPathStrs.size());
+        List<TagPath> tagPaths = new ArrayList<>(tagPathStrs.size());
+        for (String tagPathStr : tagPathStrs) {
+            tagPaths.add(parsePath(tagPathStr));
+        }
+        CompletableFuture<List<QualifiedValue>> future = readCoalescer.readAll(tagPaths);
+        future.whenComplete((values, e) -> READ_LATENCY.recordSince(start));
+        return future;
+    }
+
+    // Same, for paths that are already parsed
+    public CompletableFuture<List<QualifiedValue>> readTagPathsAsync(List<TagPath> tagPaths)
+    {
+        return readTagPathsAsync(tagPaths, null);
+    }
+
+    // Same, reading as the user behind securityContext instead of as the gateway
+    public CompletableFuture<List<QualifiedValue>> readTagPathsAsync(List<TagPath> tagPaths,
+                                                                     SecurityContext securityContext)
+    {
+        long start = System.nanoTime();
+        TAG_READS.mark(tagPaths.size());
+        CompletableFuture<List<QualifiedValue>> future = readCoalescer.readAll(tagPaths, securityContext);
+        future.whenComplete((values, e) -> READ_LATENCY.recordSince(start));
+        return future;
+    }
+
+    // Tags below a folder whose path relative to it matches a glob such as 'Line*/Temp*' or '**/Alarm?'
+    public List<TagPath> resolveTagGlob(String folderPath, String glob, int maxPaths) throws IOException {
+        TagPathGlob pathGlob = TagPathGlob.compile(glob);
+        TagPath folder = tagAccess.parse(folderPath);
+        TagProvider provider = tagAccess.provider(TagReadCoalescer.providerNameOf(folder));
+        if (provider == null) {
+            throw new IllegalArgumentException("Tag provider for '" + folderPath + "' was not found");
+        }
+        return pathGlob.resolve(provider, folder, maxPaths);
+    }
+
+    public void shutdown() {
+        readCoalescer.shutdown();
+        writeQueue.shutdown();
+        tagSubscriptions.shutdown();
+        importEngine.shutdown();
+        browseIndex.shutdown();
+    }
+
+    // Shared, reference counted tag subscriptions used to push values to components
+    public TagSubscriptionManager getTagSubscriptions() {
+        return tagSubscriptions;
+    }
 
-        // Security level manager and configs
-        var securityManager = context.getSecurityLevelManager();
-        var securityLevelConfig = securityManager.getSecurityLevelsConfig();
+    // Tag file imports, and the listeners following their progress
+    public TagImportEngine getImportEngine() {
+        return importEngine;
+    }
+
+    // Per provider tag counts, refreshed in the background and never waited on
+    public TagCountCache.Snapshot getTagCounts() {
+        return tagCounts.get();
+    }
 
-        SecurityContext securityContext = SecurityContext.fromSecurityLevels(securityLevelConfig);
+    // Tag statistics of a folder and the folders below it, walked in the background and cached
+    public JsonObject getFolderStats(String folderPath, int depth) throws IOException {
+        return folderStats.get(folderPath, depth);
+    }
+
+    // Same, without waiting for a first walk that is still running
+    public JsonObject peekFolderStats(String folderPath, int depth) throws IOException {
+        return folderStats.get(folderPath, depth, 0L);
+    }
 
-        List<TagPath> tagPaths = new ArrayList<>();
+    // One page of a folder's children, from an index kept until the folder's structure changes
+    public JsonObject browseTags(String folderPath, String cursor, int limit) throws IOException {
+        return browseIndex.page(folderPath, cursor, limit);
+    }
+
+    public TagPath parseTagPath(String tagPathStr) {
+        return parsePath(tagPathStr);
+    }
+
+    private TagPath parsePath(String tagPathStr) {
         try {
-            tagPaths.add(TagPathParser.parse(tagPathStr));
+            return tagAccess.parse(tagPathStr);
         } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            logger.warn("Invalid tag path '{}'", tagPathStr);
+            // an unparseable path can never resolve, let the provider report it as not found
+            return new BasicTagPath(TagReadCoalescer.DEFAULT_PROVIDER, List.of(tagPathStr));
         }
-
-        return tagsManager.readAsync(tagPaths, securityContext).get().get(0).toString();
     }
 
     public String readTagValueX(String tagPathStr) {
@@ -91,39 +255,21 @@ public class JythonExecutor {
             // Convert string path to a TagPath object
             BasicTagPath tagPath = new BasicTagPath(tagPathStr);
 
-            var tagsManager = context.getTagManager().getTagProvider("default");
-
-            // Security level manager and configs
-            var securityManager = context.getSecurityLevelManager();
-            var securityLevelConfig = securityManager.getSecurityLevelsConfig();
-            //logger.info("Security level manager : "+securityManager.getSecurityLevelsConfig());
+            var tagsManager = tagAccess.provider(TagReadCoalescer.DEFAULT_PROVIDER);
 
             // Read tag value
             var igg = tagPath.getParentPath();
             logger.info("igg : {}",igg);
 
-            var jp = tagsManager.browseAsync(igg, new BrowseFilter());
-            logger.info("JP : {}",jp);
-
-            jp.thenAccept(results -> {
-                        if (results != null) {
-                            for (NodeDescription node : results.getResults()) { // Assuming `getItems()` returns an iterable list
-                                System.out.println(node);
-                                logger.info("Node : {}", node);
-                                logger.info("Node : {}", node.getDataType());
-                            }
-                        } else {
-                            System.out.println("No results found.");
-                        }
-                    });
+            browseIndex.childCount(igg).thenAccept(count -> logger.info("{} has {} nodes", igg, count));
 
             //SecurityContext securityContext = SecurityContext.fromAuthenticatedUser(authenticatedUser);
-            SecurityContext securityContext = SecurityContext.fromSecurityLevels(securityLevelConfig);
+            SecurityContext securityContext = tagAccess.securityContext();
 
             // Defining tag paths
             List<TagPath> tagPaths2 = new ArrayList<>();
-            tagPaths2.add(TagPathParser.parse("[default]Simulation/Counter"));
-            tagPaths2.add(TagPathParser.parse("[default]Simulation/Random"));
+            tagPaths2.add(tagAccess.parse("[default]Simulation/Counter"));
+            tagPaths2.add(tagAccess.parse("[default]Simulation/Random"));
 
             // defining write values
             int erste = 70;
@@ -157,85 +303,84 @@ public class JythonExecutor {
         }
     }
 
-    public String createTagValue(String tagPathStr)
+    // Streams a csv, xml or json tag file into the provider in bounded chunks, reporting progress under importId
+    public ImportSummary importTagFile(Reader reader, String format, String basePath, CollisionPolicy collisionPolicy,
+                                       String importId)
+        throws IOException
     {
-        // Creating TagPath and calling the TagProvider there
-        BasicTagPath tagPath = new BasicTagPath("[default]");
-        var tagsManager = context.getTagManager().getTagProvider("default");
-
-        // Security level manager and configs
-        var securityManager = context.getSecurityLevelManager();
-
-        // Read tag value
-        var igg = tagPath.getParentPath();
-
-        // Import text, type and collision policy
-        String importText =  "{\n" +
-                "  \"tags\": [\n" +
-                "    {\n" +
-                "      \"name\": \"Tag12\",\n" +
-                "      \"tagType\": \"AtomicTag\",\n" +
-                "      \"valueSource\": \"opc\",\n" +
-                "      \"opcItemPath\": \"ns=1;s=[Sample_Device][Controls]/baseRateNode\",\n" +
-                "      \"alarms\": [\n" +
-                "        {\n" +
-                "          \"name\": \"Alarm\",\n" +
-                "          \"label\": \"asd\",\n" +
-                "          \"priority\": \"High\",\n" +
-                "          \"displayPath\": \"\",\n" +
-                "          \"ackNotesReqd\": true\n" +
-                "        }\n" +
-                "      ],\n" +
-                "      \"opcServer\": \"Ignition OPC UA Server\"\n" +
-                "    },\n" +
-                "    {\n" +
-                "      \"name\": \"HelloTag\",\n" +
-                "      \"tagType\": \"AtomicTag\",\n" +
-                "      \"valueSource\": \"memory\",\n" +
-                "      \"readOnly\": false,\n" +
-                "      \"writePermissions\": {\n" +
-                "        \"type\": \"AnyOf\",\n" +
-                "        \"securityLevels\": []\n" +
-                "      },\n" +
-                "      \"alarms\": [\n" +
-                "        {\n" +
-                "          \"name\": \"Alarm\",\n" +
-                "          \"label\": \"\"\n" +
-                "        }\n" +
-                "      ],\n" +
-                "      \"readPermissions\": {\n" +
-                "        \"type\": \"AnyOf\",\n" +
-                "        \"securityLevels\": []\n" +
-                "      },\n" +
-                "      \"value\": 4560\n" +
-                "    }\n" +
-                "  ]\n" +
-                "}";
-
-        String importJsonString = tagPathStr;
-        
-        String importType = "json";
-        var collisionPolicy = CollisionPolicy.Overwrite;
-
-        JsonElement element = new JsonParser().parse(importJsonString); // this is a JsonPrimitive (string)
-        String innerJson = element.getAsString();
+        return importTagFile(reader, format, basePath, collisionPolicy, importId, null);
+    }
 
-        logger.info("Importing tag XX");
-        // Calling the function
-        var futureResult = tagsManager.importTagsAsync(igg, innerJson, importType, collisionPolicy);
-        logger.info("Importing tag XX completed! {}", futureResult);
+    // Like importTagFile, writing the tags as the user behind securityContext instead of as the gateway
+    public ImportSummary importTagFile(Reader reader, String format, String basePath, CollisionPolicy collisionPolicy,
+                                       String importId, SecurityContext securityContext)
+        throws IOException
+    {
+        long start = System.nanoTime();
+        ImportSummary summary = importEngine.importTags(reader, format, basePath, collisionPolicy, importId,
+            securityContext);
+        recordImport(start, summary);
+        return summary;
+    }
 
-        futureResult.thenAccept(qualityCodes -> {
-            for (QualityCode code : qualityCodes) {
-                System.out.println("Import Result: " + code);
-                logger.info("Import Result : {}", code);
-            }
-        }).exceptionally(ex -> {
-            System.err.println("Import failed: " + ex.getMessage());
-            logger.info("Import Failed : {}",ex.getMessage());
-            return null;
-        });
+    // Imports only the new and changed tags of the file, optionally removing the tags it no longer has
+    public ImportSummary importTagFileChanges(SpooledUpload upload, String format, String basePath,
+                                              boolean removeMissing, String importId)
+        throws IOException
+    {
+        return importTagFileChanges(upload, format, basePath, removeMissing, importId, null);
+    }
 
-        return "success";
+    // Like importTagFileChanges, writing and removing the tags as the user behind securityContext
+    public ImportSummary importTagFileChanges(SpooledUpload upload, String format, String basePath,
+                                              boolean removeMissing, String importId, SecurityContext securityContext)
+        throws IOException
+    {
+        long start = System.nanoTime();
+        ImportSummary summary = importEngine.importChanges(upload, format, basePath, removeMissing, importId,
+            securityContext);
+        recordImport(start, summary);
+        return summary;
+    }
+
+    private static void recordImport(long startNanos, ImportSummary summary)
+    {
+        IMPORT_DURATION.recordSince(startNanos);
+        IMPORTED_TAGS.mark(summary.getTagCount());
+    }
+
+    // Streams the configuration below basePath to the writer, a folder at a time
+    public void exportTags(String basePath, TagDocumentWriter writer) throws IOException
+    {
+        exporter.export(basePath, writer);
+    }
+
+    // Resolves basePath for a later export, failing if it can't be parsed or its provider doesn't exist
+    public TagExporter.Export prepareExport(String basePath) throws IOException
+    {
+        return exporter.prepare(basePath);
+    }
+
+    // Checks every tag of the file against the tag schema without writing anything
+    public ValidationReport validateTagFile(Reader reader, String format) throws IOException
+    {
+        return importEngine.validate(reader, format);
+    }
+
+    // Imports a tag document given as a JSON string literal below the default provider's root
+    public String createTagValue(String tagPathStr)
+    {
+        JsonElement element = new JsonParser().parse(tagPathStr); // this is a JsonPrimitive (string)
+        String innerJson = element.getAsString();
+
+        try {
+            ImportSummary summary = importEngine.importTags(new StringReader(innerJson), "json",
+                "[" + TagReadCoalescer.DEFAULT_PROVIDER + "]", CollisionPolicy.Overwrite);
+            logger.info("Import Result : {}", summary.toJson());
+            return summary.getFailedCount() == 0 ? "success" : "Failed!";
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Import Failed : {}", e.getMessage());
+            return "Failed!";
+        }
     }
-}
\ No newline at end of file
+}
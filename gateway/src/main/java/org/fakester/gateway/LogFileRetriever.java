@@ -1,86 +1,139 @@
 package org.fakester.gateway;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Calendar;
-
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.fakester.gateway.logs.LogEventFormat;
+import org.fakester.gateway.logs.LogTail;
+import org.fakester.gateway.logs.RotatingLogFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.inductiveautomation.ignition.common.logging.Level;
 import com.inductiveautomation.ignition.common.logging.LogEvent;
 import com.inductiveautomation.ignition.common.logging.LogQueryConfig;
+import com.inductiveautomation.ignition.common.logging.LogResults;
 import com.inductiveautomation.ignition.gateway.model.GatewayContext;
 
-
+/**
+ * Exports the gateway's recent log events to a rotating file, on a background thread so startup never waits for it.
+ * The file lives in {@code RadComponents.LogExport.Directory}, by default {@code radcomponents/logs} in the gateway's
+ * data directory.
+ */
 public class LogFileRetriever {
+    private static final String DIRECTORY = System.getProperty("RadComponents.LogExport.Directory");
+    private static final boolean GZIP = Boolean.getBoolean("RadComponents.LogExport.Gzip");
+    private static final long MAX_FILE_BYTES = Long.getLong("RadComponents.LogExport.MaxFileSize", 16L * 1024 * 1024);
+    private static final long MAX_FILE_AGE_MS = Long.getLong("RadComponents.LogExport.MaxFileAge", 86400000L);
+    private static final int MAX_FILES = Integer.getInteger("RadComponents.LogExport.MaxFiles", 10);
+    // how often the log tail and its search index pick up new events when nobody is reading them, 0 to only refresh
+    // on reads
+    private static final long TAIL_REFRESH_MS = Long.getLong("RadComponents.LogTail.RefreshInterval", 10000L);
+
+    private static final Logger logger = LoggerFactory.getLogger(LogFileRetriever.class);
+
+    private final GatewayContext context;
+    private final RotatingLogFile file;
+    private final LogTail tail;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RadComponents-LogExport");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public volatile LogQueryConfig logQueryConfig = null;
 
-    private static final Logger logger = LoggerFactory.getLogger(JythonExecutor.class);
-    private static GatewayContext context = null;
-
-    public LogQueryConfig logQueryConfig = null;
-    
     public LogFileRetriever(GatewayContext context) {
         this.context = context;
-    }
+        Path directory = DIRECTORY != null ? Paths.get(DIRECTORY)
+            : context.getSystemManager().getDataDir().toPath().resolve("radcomponents").resolve("logs");
+        this.file = new RotatingLogFile(directory, "system-logs", GZIP, MAX_FILE_BYTES, MAX_FILE_AGE_MS, MAX_FILES);
+        this.tail = new LogTail(context.getLoggingManager());
 
-    public void SetLogQueryConfig(int endTime, int logLimit, Level level) {
-        try{
-            Calendar calendar = Calendar.getInstance();
-            int difference = 0 - endTime;
-            long endTimeMillis = calendar.getTimeInMillis();
-
-            calendar.add(Calendar.MINUTE, difference);
-            long startTimeMillis = calendar.getTimeInMillis();
-
-            logQueryConfig = LogQueryConfig.newBuilder().betweenTime(startTimeMillis, endTimeMillis)
-                                .atOrAbove(level)
-                                .limitTo(logLimit)
-                                .build();
-        }
-        catch (Exception ex)
-        {
-            logger.info(ex.getMessage());
+        if (TAIL_REFRESH_MS > 0) {
+            executor.scheduleWithFixedDelay(this::refreshTail, TAIL_REFRESH_MS, TAIL_REFRESH_MS, TimeUnit.MILLISECONDS);
         }
     }
 
-    public void GetLogQuery() throws IOException {
-        if (logQueryConfig == null){
-            throw new NullPointerException("Log Query Config is null");
-        }
-
-        FileWriter fileToWrite = null;
-
+    private void refreshTail() {
         try {
-            fileToWrite = new FileWriter("D://SystemLogs.txt");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            tail.refresh();
+        } catch (RuntimeException e) {
+            logger.warn("Refreshing the log tail failed", e);
         }
+    }
 
-        Calendar calendar = Calendar.getInstance();
+    // The newest log events, fetched incrementally and paged through with a cursor, and indexed for search
+    public LogTail getTail() {
+        return tail;
+    }
 
-        try{
-            int counter = 0;
+    public void SetLogQueryConfig(int endTime, int logLimit, Level level) {
+        logQueryConfig = queryConfig(endTime, logLimit, level);
+    }
 
-            var logResults = context.getLoggingManager().queryLogEvents(logQueryConfig);
-            for (LogEvent log : logResults.getEvents()) {
-                ++counter;
-                fileToWrite.write("Event : "+counter+"\n");
-                fileToWrite.write("Message : " + log.getMessage()+"\n");
+    /**
+     * Events of the last {@code minutes} minutes at or above {@code level}, at most {@code limit} of them.
+     */
+    public static LogQueryConfig queryConfig(int minutes, int limit, Level level) {
+        long end = System.currentTimeMillis();
+        return LogQueryConfig.newBuilder().betweenTime(end - minutes * 60000L, end)
+            .atOrAbove(level)
+            .limitTo(limit)
+            .build();
+    }
 
-                calendar.setTimeInMillis(log.getTimestamp());
+    /**
+     * Appends the events of {@link #logQueryConfig} to the export file in the background, completing with the number
+     * of events written.
+     */
+    public CompletableFuture<Integer> exportAsync() {
+        LogQueryConfig config = logQueryConfig;
+        if (config == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Log Query Config is null"));
+        }
 
-                fileToWrite.write("Timestamp : " + calendar.getTime() +"\n");
-                fileToWrite.write("Level : " + log.getLevel()+"\n");
-                fileToWrite.write("Logger Name : " + log.getLoggerName()+"\n");
+        return CompletableFuture.supplyAsync(() -> {
+            try (RotatingLogFile.Appender out = file.append()) {
+                int count = 0;
+                for (LogEvent event : queryEvents(config)) {
+                    LogEventFormat.write(out, event);
+                    out.endRecord();
+                    count++;
+                }
+                logger.info("Exported {} log events to {}", count, file.getActiveFile());
+                return count;
+            } catch (IOException e) {
+                throw new IllegalStateException("Exporting the log to " + file.getActiveFile() + " failed", e);
             }
-            logger.info("Log file created successfully");
-            fileToWrite.close();
-        }
-        catch(Exception ex){
-            logger.info(ex.getMessage());
+        }, executor);
+    }
+
+    /**
+     * Writes the events matching {@code config} to {@code writer}, returning how many there were.
+     */
+    public int writeEvents(LogQueryConfig config, Writer writer) throws IOException {
+        int count = 0;
+        for (LogEvent event : queryEvents(config)) {
+            LogEventFormat.write(writer, event);
+            count++;
         }
+        return count;
     }
 
+    private List<LogEvent> queryEvents(LogQueryConfig config) {
+        LogResults results = context.getLoggingManager().queryLogEvents(config);
+        return results == null || results.getEvents() == null ? List.of() : results.getEvents();
+    }
 
-}
\ No newline at end of file
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -9,11 +9,19 @@ import org.fakester.common.component.display.AWSInfraSVG;
 import org.fakester.common.component.display.CsvToAlarmLog;
 import org.fakester.common.component.display.Image;
 import org.fakester.common.component.display.ImageTest;
+import org.fakester.common.component.display.LogViewer;
 import org.fakester.common.component.display.Messenger;
 import org.fakester.common.component.display.ScreenCapture;
 import org.fakester.common.component.display.TagCounter;
 import org.fakester.gateway.delegate.AWSInfraDelegate;
+import org.fakester.gateway.delegate.CsvToAlarmLogDelegate;
+import org.fakester.gateway.delegate.DelegateExecutor;
+import org.fakester.gateway.delegate.LogTailBroadcast;
+import org.fakester.gateway.delegate.LogViewerDelegate;
 import org.fakester.gateway.delegate.MessageComponentModelDelegate;
+import org.fakester.gateway.delegate.TagCountBroadcast;
+import org.fakester.gateway.delegate.TagCounterDelegate;
+import org.fakester.gateway.delegate.UpdateThrottle;
 import org.fakester.gateway.endpoint.DataEndpoints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +46,7 @@ public class RadGatewayHook extends AbstractGatewayModuleHook {
     private ComponentModelDelegateRegistry modelDelegateRegistry;
     private ComponentModelDelegateRegistry awsDelegateRegistry;
     public static JythonExecutor jythonExecutor;
-    public LogFileRetriever logFileRetriever;
+    public static LogFileRetriever logFileRetriever;
 
     @Override
     public void setup(GatewayContext context) {
@@ -47,6 +55,7 @@ public class RadGatewayHook extends AbstractGatewayModuleHook {
         logger.info("adding jython class");
         jythonExecutor = new JythonExecutor(context);
         logger.info("after jython class addition");
+        logFileRetriever = new LogFileRetriever(context);
     }
 
     @Override
@@ -73,6 +82,7 @@ public class RadGatewayHook extends AbstractGatewayModuleHook {
             this.componentRegistry.registerComponent(Messenger.DESCRIPTOR);
             this.componentRegistry.registerComponent(ScreenCapture.DESCRIPTOR);
             this.componentRegistry.registerComponent(AWSInfraSVG.DESCRIPTOR);
+            this.componentRegistry.registerComponent(LogViewer.DESCRIPTOR);
             
 
         } else {
@@ -82,6 +92,9 @@ public class RadGatewayHook extends AbstractGatewayModuleHook {
         if (this.modelDelegateRegistry != null) {
             log.info("Registering model delegates.");
             this.modelDelegateRegistry.register(Messenger.COMPONENT_ID, MessageComponentModelDelegate::new);
+            this.modelDelegateRegistry.register(CsvToAlarmLog.COMPONENT_ID, CsvToAlarmLogDelegate::new);
+            this.modelDelegateRegistry.register(TagCounter.COMPONENT_ID, TagCounterDelegate::new);
+            this.modelDelegateRegistry.register(LogViewer.COMPONENT_ID, LogViewerDelegate::new);
         } else {
             log.error("ModelDelegateRegistry was not found!");
         }
@@ -101,9 +114,13 @@ public class RadGatewayHook extends AbstractGatewayModuleHook {
         jythonExecutor.readTagValueX("[default]Simulation/Random");
         logger.info("creatEd value");
 
-        logFileRetriever = new LogFileRetriever(gatewayContext);
+        // written in the background, startup does not wait for the log query or the disk
         logFileRetriever.SetLogQueryConfig(15, 1000, Level.INFO);
-        logFileRetriever.GetLogQuery();
+        logFileRetriever.exportAsync().whenComplete((count, e) -> {
+            if (e != null) {
+                logger.warn("Exporting the gateway log failed", e);
+            }
+        });
     }
 
     @Override
@@ -117,18 +134,33 @@ public class RadGatewayHook extends AbstractGatewayModuleHook {
             this.componentRegistry.removeComponent(Messenger.COMPONENT_ID);
             this.componentRegistry.removeComponent(ScreenCapture.COMPONENT_ID);
             this.componentRegistry.removeComponent(AWSInfraSVG.COMPONENT_ID);
+            this.componentRegistry.removeComponent(LogViewer.COMPONENT_ID);
 
         } else {
             log.warn("Component registry was null, could not unregister Rad Components.");
         }
         if (this.modelDelegateRegistry != null ) {
             this.modelDelegateRegistry.remove(Messenger.COMPONENT_ID);
+            this.modelDelegateRegistry.remove(CsvToAlarmLog.COMPONENT_ID);
+            this.modelDelegateRegistry.remove(TagCounter.COMPONENT_ID);
+            this.modelDelegateRegistry.remove(LogViewer.COMPONENT_ID);
         }
 
         if (this.awsDelegateRegistry != null){
             this.modelDelegateRegistry.remove(AWSInfraSVG.COMPONENT_ID);
         }
 
+        if (jythonExecutor != null) {
+            jythonExecutor.shutdown();
+        }
+        if (logFileRetriever != null) {
+            logFileRetriever.shutdown();
+        }
+        UpdateThrottle.shutdown();
+        TagCountBroadcast.shutdown();
+        LogTailBroadcast.shutdown();
+        DelegateExecutor.shutdown();
+
 
     }
 
@@ -1,10 +1,14 @@
 package org.fakester.gateway.delegate;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ExecutionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
-import org.fakester.gateway.RadGatewayHook;
+import org.fakester.common.component.display.AWSInfraSVG;
+import org.fakester.gateway.metrics.ComponentMetrics;
 import org.python.core.Py;
 import org.python.core.PyObject;
 import org.slf4j.Logger;
@@ -28,17 +32,32 @@ public class AWSInfraDelegate extends ComponentModelDelegate {
     
     public static final String INCOMING_EVENT_TAG_VALUE_RECEIVE = "aws-component-message-receive-event";
     public static final String OUTBOUND_EVENT_TAG_VALUE_SEND = "aws-component-message-send-event";
+    public static final String INCOMING_EVENT_TAG_SUBSCRIBE = "aws-component-tag-subscribe-event";
+
+    // payload keys holding tag paths, and the keys their values are sent back under
+    private static final String[] TAG_KEYS = {"counterTagPath", "randomTagPath"};
+    private static final String[] RESPONSE_KEYS = {"counterValue", "randomValue"};
+    private static final ComponentMetrics METRICS = ComponentMetrics.of(AWSInfraSVG.COMPONENT_ID);
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final TagPushSession pushSession;
+    // the event handling and tag reads of this instance, cancelled when it shuts down
+    private final DelegateTasks tasks = new DelegateTasks();
+    // polls arriving while the previous one is still being read are merged into one follow-up read
+    private final SingleFlightRead polls;
 
     public AWSInfraDelegate(Component component) {
         super(component);
+        this.pushSession = new TagPushSession(payload -> fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, payload));
+        this.polls = new SingleFlightRead(this::readTagValues,
+            response -> fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, response), AWSInfraSVG.COMPONENT_ID);
     }
 
     @Override
     protected void onStartup() {
         // Called when the Gateway's ComponentModel starts.  The start itself happens when the client project is
-        // loading and includes an instance of the the component type in the page/view being started.
+        // loading and includes an instance of the the component type in the page/view being started.  Tag paths are
+        // only known once the client sends its subscribe event, so the push session stays empty until then.
         log.infof("Starting up delegate for '%s'!", component.getComponentAddressPath());
     }
 
@@ -46,6 +65,8 @@ public class AWSInfraDelegate extends ComponentModelDelegate {
     protected void onShutdown() {
         // Called when the component is removed from the page/view and the model is shutting down.
         log.infof("Shutting down delegate for '%s'!", component.getComponentAddressPath());
+        tasks.cancelAll();
+        pushSession.shutdown();
     }
 
     /**
@@ -77,47 +98,95 @@ public class AWSInfraDelegate extends ComponentModelDelegate {
             )));
     }
 
-    // when a ComponentStoreDelegate event is fired from the client side, it comes through this method.
+    // when a ComponentStoreDelegate event is fired from the client side, it comes through this method.  The event is
+    // handled on the shared delegate executor, so the message thread only waits if that is backed up.
     @Override
     public void handleEvent(EventFiredMsg message) {
+        long start = METRICS.eventReceived();
+        tasks.execute(() -> {
+            try {
+                dispatchEvent(message);
+            } finally {
+                METRICS.eventHandled(start);
+            }
+        }, e -> {
+            METRICS.eventHandled(start);
+            log.warnf("Dropped '%s' event of '%s': %s", message.getEventName(), component.getComponentAddressPath(),
+                e.getMessage());
+        });
+    }
+
+    private void dispatchEvent(EventFiredMsg message) {
         log.infof("Received EventFiredMessage of type: %s", message.getEventName());
 
         if (INCOMING_EVENT_TAG_VALUE_RECEIVE.equals(message.getEventName())) {
             JsonObject payload = message.getEvent();
             JsonObject responsePayload = new JsonObject();
 
-            if (payload != null) {
-                String[] tagKeys = {"counterTagPath", "randomTagPath"};
-                String[] responseKeys = {"counterValue", "randomValue"};
-
-                for (int i = 0; i < tagKeys.length; i++) {
-                    JsonElement tagPathElement = payload.get(tagKeys[i]);
-
-                    if (tagPathElement != null && tagPathElement.isJsonPrimitive() && tagPathElement.getAsJsonPrimitive().isString()) {
-                        String tagPath = tagPathElement.getAsJsonPrimitive().getAsString();
-
-                        try {
-                            String value = RadGatewayHook.jythonExecutor.readTagFromPath(tagPath);
-                            responsePayload.addProperty(responseKeys[i], value);
-                        } catch (InterruptedException | ExecutionException e) {
-                            responsePayload.addProperty("error_" + responseKeys[i], "Error reading tag: " + tagPath);
-                        }
-                    } else {
-                        responsePayload.addProperty("error_" + responseKeys[i], "Missing or invalid tag path for " + tagKeys[i]);
-                    }
-                }
-            } else {
-                responsePayload.addProperty("error", "Gateway didn't receive a payload with '" + INCOMING_EVENT_NAME + "' event!");
+            if (payload == null) {
+                responsePayload.addProperty("error", "Gateway didn't receive a payload with '" + INCOMING_EVENT_TAG_VALUE_RECEIVE + "' event!");
+                fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, responsePayload);
+                return;
+            }
+
+            // the response is sent once the read completes, later polls wait for it rather than piling up reads
+            polls.request(payload);
+        }
+
+        if (INCOMING_EVENT_TAG_SUBSCRIBE.equals(message.getEventName())) {
+            JsonObject payload = message.getEvent();
+            JsonObject responsePayload = new JsonObject();
+
+            if (payload == null) {
+                responsePayload.addProperty("error", "Gateway didn't receive a payload with '" + INCOMING_EVENT_TAG_SUBSCRIBE + "' event!");
+                fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, responsePayload);
+                return;
             }
 
-            fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, responsePayload);
+            // values are pushed from the shared subscriptions from here on, starting with the current ones
+            pushSession.subscribe(collectTagPaths(payload, responsePayload), UpdateThrottle.Settings.fromPayload(payload));
+
+            if (responsePayload.size() > 0) {
+                fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, responsePayload);
+            }
         }
     }
 
+    /**
+     * Reads the tags of a poll request, the response is completed once every read has completed or timed out.
+     */
+    private CompletableFuture<JsonObject> readTagValues(JsonObject payload) {
+        JsonObject responsePayload = new JsonObject();
+
+        // collect every requested path first so they are read together in one batch
+        Map<String, String> tagPathsByKey = collectTagPaths(payload, responsePayload);
+        return tasks.track(AsyncTagReads.read(new ArrayList<>(tagPathsByKey.values()),
+            new ArrayList<>(tagPathsByKey.keySet()), responsePayload));
+    }
+
+    /**
+     * Maps each response key to the tag path sent for it, adding an error to {@code responsePayload} for any path that
+     * is missing or not a string.
+     */
+    private static Map<String, String> collectTagPaths(JsonObject payload, JsonObject responsePayload) {
+        Map<String, String> tagPathsByKey = new LinkedHashMap<>();
+
+        for (int i = 0; i < TAG_KEYS.length; i++) {
+            JsonElement tagPathElement = payload.get(TAG_KEYS[i]);
+
+            if (tagPathElement != null && tagPathElement.isJsonPrimitive() && tagPathElement.getAsJsonPrimitive().isString()) {
+                tagPathsByKey.put(RESPONSE_KEYS[i], tagPathElement.getAsJsonPrimitive().getAsString());
+            } else {
+                responsePayload.addProperty("error_" + RESPONSE_KEYS[i], "Missing or invalid tag path for " + TAG_KEYS[i]);
+            }
+        }
+        return tagPathsByKey;
+    }
 
     // not necessary to override for our use case, just here for informational purposes
     @Override
     public void fireEvent(String eventName, JsonObject event) {
+        METRICS.eventPushed(event);
         this.component.fireEvent("model", eventName, event);
     }
 }
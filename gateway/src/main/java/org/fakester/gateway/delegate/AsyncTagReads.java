@@ -0,0 +1,68 @@
+package org.fakester.gateway.delegate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.fakester.gateway.RadGatewayHook;
+import org.fakester.gateway.tags.TagValuePayloads;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
+
+/**
+ * Reads tags for a model delegate without blocking the Perspective message thread.  Results are written into a
+ * response payload once every read has completed or timed out.
+ */
+final class AsyncTagReads {
+    // how long a delegate waits for a single tag before reporting it as timed out
+    static final long READ_TIMEOUT_MS = Long.getLong("RadComponents.Delegate.ReadTimeout", 5000L);
+
+    private AsyncTagReads() {
+        // private constructor
+    }
+
+    /**
+     * Reads each of the given paths and adds its value to {@code responsePayload} under the matching key, in the form
+     * described by {@link TagValuePayloads}.  Failed
+     * reads are added as {@code error_<key>}, and paths that took longer than {@link #READ_TIMEOUT_MS} are also listed
+     * in a {@code timedOut} array.
+     */
+    static CompletableFuture<JsonObject> read(List<String> tagPaths, List<String> valueKeys,
+                                              JsonObject responsePayload) {
+        List<CompletableFuture<QualifiedValue>> reads = new ArrayList<>(tagPaths.size());
+        for (String tagPath : tagPaths) {
+            reads.add(RadGatewayHook.jythonExecutor.readTagFromPathAsync(tagPath)
+                .orTimeout(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+
+        return CompletableFuture.allOf(reads.toArray(new CompletableFuture[0])).handle((ignored, error) -> {
+            JsonArray timedOut = new JsonArray();
+
+            for (int i = 0; i < reads.size(); i++) {
+                String valueKey = valueKeys.get(i);
+                String tagPath = tagPaths.get(i);
+
+                try {
+                    responsePayload.add(valueKey, TagValuePayloads.toJson(reads.get(i).join()));
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof TimeoutException) {
+                        timedOut.add(tagPath);
+                        responsePayload.addProperty("error_" + valueKey, "Timed out reading tag: " + tagPath);
+                    } else {
+                        responsePayload.addProperty("error_" + valueKey, "Error reading tag: " + tagPath);
+                    }
+                }
+            }
+
+            if (timedOut.size() > 0) {
+                responsePayload.add("timedOut", timedOut);
+            }
+            return responsePayload;
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package org.fakester.gateway.delegate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fakester.common.component.display.CsvToAlarmLog;
+import org.fakester.gateway.RadGatewayHook;
+import org.fakester.gateway.importer.ImportProgressListener;
+import org.fakester.gateway.metrics.ComponentMetrics;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.perspective.gateway.api.Component;
+import com.inductiveautomation.perspective.gateway.api.ComponentModelDelegate;
+import com.inductiveautomation.perspective.gateway.messages.EventFiredMsg;
+
+/**
+ * Model Delegate for the CsvToAlarmLog component.  The file itself is uploaded over http, this delegate streams the
+ * progress of that import back to the component while it runs.
+ */
+public class CsvToAlarmLogDelegate extends ComponentModelDelegate {
+    public static final String INCOMING_EVENT_IMPORT_WATCH = "csv-import-watch-event";
+    public static final String OUTBOUND_EVENT_IMPORT_PROGRESS = "csv-import-progress-event";
+    public static final String OUTBOUND_EVENT_IMPORT_FINISHED = "csv-import-finished-event";
+    private static final ComponentMetrics METRICS = ComponentMetrics.of(CsvToAlarmLog.COMPONENT_ID);
+
+    private final Map<String, ImportProgressListener> watchedImports = new ConcurrentHashMap<>();
+
+    public CsvToAlarmLogDelegate(Component component) {
+        super(component);
+    }
+
+    @Override
+    protected void onStartup() {
+        log.infof("Starting up delegate for '%s'!", component.getComponentAddressPath());
+    }
+
+    @Override
+    protected void onShutdown() {
+        log.infof("Shutting down delegate for '%s'!", component.getComponentAddressPath());
+        watchedImports.forEach((importId, listener) -> RadGatewayHook.jythonExecutor.getImportEngine()
+            .unwatch(importId, listener));
+        watchedImports.clear();
+    }
+
+    // when a ComponentStoreDelegate event is fired from the client side, it comes through this method.
+    @Override
+    public void handleEvent(EventFiredMsg message) {
+        long start = METRICS.eventReceived();
+        try {
+            dispatchEvent(message);
+        } finally {
+            METRICS.eventHandled(start);
+        }
+    }
+
+    private void dispatchEvent(EventFiredMsg message) {
+        log.infof("Received EventFiredMessage of type: %s", message.getEventName());
+
+        if (INCOMING_EVENT_IMPORT_WATCH.equals(message.getEventName())) {
+            JsonObject payload = message.getEvent();
+            JsonElement importId = payload == null ? null : payload.get("importId");
+
+            if (importId == null || !importId.isJsonPrimitive()) {
+                JsonObject responsePayload = new JsonObject();
+                responsePayload.addProperty("error", "Gateway didn't receive an importId with '" + INCOMING_EVENT_IMPORT_WATCH + "' event!");
+                fireEvent(OUTBOUND_EVENT_IMPORT_FINISHED, responsePayload);
+                return;
+            }
+
+            watch(importId.getAsString());
+        }
+    }
+
+    private void watch(String importId) {
+        ImportProgressListener listener = new ImportProgressListener() {
+            @Override
+            public void chunkImported(JsonObject progress) {
+                progress.addProperty("importId", importId);
+                fireEvent(OUTBOUND_EVENT_IMPORT_PROGRESS, progress);
+            }
+
+            @Override
+            public void importFinished(JsonObject summary) {
+                summary.addProperty("importId", importId);
+                fireEvent(OUTBOUND_EVENT_IMPORT_FINISHED, summary);
+
+                RadGatewayHook.jythonExecutor.getImportEngine().unwatch(importId, this);
+                watchedImports.remove(importId);
+            }
+        };
+
+        watchedImports.put(importId, listener);
+        RadGatewayHook.jythonExecutor.getImportEngine().watch(importId, listener);
+    }
+
+    // not necessary to override for our use case, just here for informational purposes
+    @Override
+    public void fireEvent(String eventName, JsonObject event) {
+        METRICS.eventPushed(event);
+        this.component.fireEvent("model", eventName, event);
+    }
+}
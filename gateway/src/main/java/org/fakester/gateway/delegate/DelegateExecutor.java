@@ -0,0 +1,140 @@
+package org.fakester.gateway.delegate;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fakester.gateway.metrics.Histogram;
+import org.fakester.gateway.metrics.ModuleMetrics;
+import org.fakester.gateway.metrics.RateMeter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The threads model delegates do their work on, shared by every delegate of the module so the Perspective message
+ * thread only hands events off.
+ *
+ * At most {@link #THREADS} tasks run at a time and at most {@link #QUEUE_SIZE} more wait for a turn.  A caller
+ * submitting while all of those slots are taken waits up to {@link #SUBMIT_TIMEOUT_MS} for one to free up, so a
+ * backlog slows down whoever produces it, and is turned away with a {@link RejectedExecutionException} after that.
+ * Tasks run on virtual threads when the runtime has them, otherwise on a fixed pool of platform threads.
+ */
+public final class DelegateExecutor {
+    private static final int THREADS = Integer.getInteger("RadComponents.DelegateExecutor.Threads", 16);
+    private static final int QUEUE_SIZE = Integer.getInteger("RadComponents.DelegateExecutor.QueueSize", 1000);
+    private static final long SUBMIT_TIMEOUT_MS = Long.getLong("RadComponents.DelegateExecutor.SubmitTimeout", 1000L);
+    private static final boolean VIRTUAL_THREADS =
+        Boolean.parseBoolean(System.getProperty("RadComponents.DelegateExecutor.VirtualThreads", "true"));
+
+    private static final Logger logger = LoggerFactory.getLogger(DelegateExecutor.class);
+    private static final RateMeter REJECTED = ModuleMetrics.rate("delegate_tasks_rejected",
+        "Delegate tasks turned away because the delegate executor was full");
+    private static final Histogram QUEUE_WAIT = ModuleMetrics.histogram("delegate_task_wait",
+        "Time delegate tasks waited before they started running", Histogram.Unit.NANOSECONDS);
+
+    // a slot for every task that is queued or running
+    private static final Semaphore SLOTS = new Semaphore(THREADS + QUEUE_SIZE);
+    // virtual threads are started for every queued task, only this many of them run at a time
+    private static final Semaphore RUNNING = new Semaphore(THREADS);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService VIRTUAL = VIRTUAL_THREADS ? newVirtualThreadExecutor() : null;
+    private static final ExecutorService EXECUTOR = VIRTUAL != null ? VIRTUAL : newPlatformThreadExecutor();
+
+    private DelegateExecutor() {
+        // static only
+    }
+
+    /**
+     * Queues {@code task}, waiting for a free slot if the executor is full.
+     *
+     * @throws RejectedExecutionException if no slot freed up in time, or the executor was shut down
+     */
+    static Future<?> submit(Runnable task) {
+        try {
+            if (!SLOTS.tryAcquire(SUBMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                REJECTED.mark();
+                throw new RejectedExecutionException("Delegate executor is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting for the delegate executor", e);
+        }
+
+        long queued = System.nanoTime();
+        // the slot is given back once the task is done, including when it is cancelled before it ever ran
+        FutureTask<Void> future = new FutureTask<>(() -> run(task, queued), null) {
+            @Override
+            protected void done() {
+                SLOTS.release();
+            }
+        };
+        try {
+            EXECUTOR.execute(future);
+        } catch (RejectedExecutionException e) {
+            SLOTS.release();
+            throw e;
+        }
+        return future;
+    }
+
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    private static void run(Runnable task, long queued) {
+        boolean limited = VIRTUAL != null;
+        try {
+            if (limited) {
+                RUNNING.acquire();
+            }
+            QUEUE_WAIT.recordSince(queued);
+            task.run();
+        } catch (InterruptedException e) {
+            // cancelled while waiting for its turn
+            limited = false;
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Delegate task failed", e);
+        } finally {
+            if (limited) {
+                RUNNING.release();
+            }
+        }
+    }
+
+    /**
+     * Returns {@code Executors.newVirtualThreadPerTaskExecutor()} if this runtime has it.  The module is built for
+     * Java 17, so it is looked up rather than called.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            logger.info("Running delegate work on virtual threads, {} at a time", THREADS);
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        // the slots already bound the queue
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "RadComponents-Delegate-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        logger.info("Running delegate work on {} platform threads", THREADS);
+        return executor;
+    }
+}
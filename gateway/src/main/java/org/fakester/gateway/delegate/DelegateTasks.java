@@ -0,0 +1,165 @@
+package org.fakester.gateway.delegate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The work of one model delegate on the {@link DelegateExecutor}.
+ *
+ * Tasks run one at a time in the order they were queued, so a delegate sees its client's events in order and cannot
+ * hold more than one of the shared threads.  At most {@link #MAX_PENDING} tasks wait behind the running one.  Every
+ * task either runs or is handed to its rejection handler, never left waiting.
+ * Asynchronous work the tasks start can be tracked as well, {@link #cancelAll()} then cancels all of it together when
+ * the delegate shuts down.
+ */
+final class DelegateTasks {
+    private static final int MAX_PENDING = Integer.getInteger("RadComponents.DelegateExecutor.MaxPendingPerDelegate", 32);
+
+    private static final Logger logger = LoggerFactory.getLogger(DelegateTasks.class);
+
+    private final Set<CompletableFuture<?>> tracked = ConcurrentHashMap.newKeySet();
+
+    // guarded by this
+    private final Deque<Task> pending = new ArrayDeque<>();
+    private boolean draining;
+    // the thread running one of the tasks, if any
+    private Thread runner;
+    private boolean closed;
+
+    /**
+     * Queues {@code task} behind the ones already queued.  If it can not run, {@code onRejected} is called instead,
+     * either right away or once the task it waits behind could not be handed to the shared executor.  That is the case
+     * if this delegate already has {@link #MAX_PENDING} tasks waiting, the shared executor is full, or the delegate was
+     * shut down.
+     */
+    void execute(Runnable task, Consumer<RejectedExecutionException> onRejected) {
+        Task queued = new Task(task, onRejected);
+        RejectedExecutionException rejection = null;
+        synchronized (this) {
+            if (closed) {
+                rejection = new RejectedExecutionException("Delegate was shut down");
+            } else if (pending.size() >= MAX_PENDING) {
+                rejection = new RejectedExecutionException("Delegate has " + pending.size() + " tasks waiting");
+            } else {
+                pending.addLast(queued);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+        }
+        // the handler is called without holding the lock, like the task itself
+        if (rejection != null) {
+            queued.reject(rejection);
+            return;
+        }
+
+        // submitting may wait for the shared executor, which must not happen while holding the lock
+        try {
+            DelegateExecutor.submit(this::drain);
+        } catch (RejectedExecutionException e) {
+            // nothing is draining the queue, so the tasks queued behind this one in the meantime go with it
+            List<Task> rejected;
+            synchronized (this) {
+                rejected = new ArrayList<>(pending);
+                pending.clear();
+                draining = false;
+            }
+            rejected.forEach(t -> t.reject(e));
+        }
+    }
+
+    /**
+     * Cancels {@code future} if it has not completed when the delegate shuts down.
+     */
+    <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        tracked.add(future);
+        future.whenComplete((result, error) -> tracked.remove(future));
+        if (isClosed()) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Drops the queued tasks, interrupts the running one and cancels everything tracked.  Tasks queued afterwards are
+     * rejected.
+     */
+    void cancelAll() {
+        List<Task> dropped;
+        synchronized (this) {
+            closed = true;
+            dropped = new ArrayList<>(pending);
+            pending.clear();
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        RejectedExecutionException shutDown = new RejectedExecutionException("Delegate was shut down");
+        dropped.forEach(t -> t.reject(shutDown));
+
+        for (CompletableFuture<?> future : tracked) {
+            future.cancel(true);
+        }
+        tracked.clear();
+    }
+
+    private void drain() {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = closed ? null : pending.pollFirst();
+                if (task == null) {
+                    draining = false;
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+
+            try {
+                task.task.run();
+            } catch (RuntimeException e) {
+                logger.error("Delegate task failed", e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // an interrupt meant for the task must not reach whatever the thread runs next
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private static final class Task {
+        private final Runnable task;
+        private final Consumer<RejectedExecutionException> onRejected;
+
+        private Task(Runnable task, Consumer<RejectedExecutionException> onRejected) {
+            this.task = task;
+            this.onRejected = onRejected;
+        }
+
+        void reject(RejectedExecutionException e) {
+            try {
+                onRejected.accept(e);
+            } catch (RuntimeException handlerError) {
+                logger.error("Rejection handler of a delegate task failed", handlerError);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.fakester.gateway.delegate;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.fakester.gateway.RadGatewayHook;
+import org.fakester.gateway.logs.LogTail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.logging.Level;
+
+/**
+ * Refreshes the {@link LogTail} once per tick and pushes every subscribed LogViewer the events it has not seen yet,
+ * so open log panels share one incremental query instead of each re-reading the log.
+ */
+public final class LogTailBroadcast {
+    private static final long TICK_MS = Long.getLong("RadComponents.LogViewer.BroadcastInterval", 1000L);
+    // events sent in one push, a viewer further behind catches up over the next ticks
+    private static final int MAX_EVENTS_PER_PUSH = Integer.getInteger("RadComponents.LogViewer.MaxEventsPerPush", 500);
+
+    private static final Logger logger = LoggerFactory.getLogger(LogTailBroadcast.class);
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RadComponents-LogTailBroadcast");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<Subscriber> SUBSCRIBERS = ConcurrentHashMap.newKeySet();
+
+    // guarded by LogTailBroadcast.class, runs only while there are subscribers
+    private static ScheduledFuture<?> ticker;
+
+    private LogTailBroadcast() {
+        // static only
+    }
+
+    /**
+     * Subscribes {@code sink} to the events at or above {@code level}, sending it the newest {@code backlog} of them
+     * right away.
+     */
+    static Subscriber subscribe(Level level, int backlog, Consumer<JsonObject> sink) {
+        Subscriber subscriber = new Subscriber(level, sink);
+        SUBSCRIBERS.add(subscriber);
+
+        synchronized (LogTailBroadcast.class) {
+            if (ticker == null) {
+                ticker = SCHEDULER.scheduleWithFixedDelay(LogTailBroadcast::tick, TICK_MS, TICK_MS,
+                    TimeUnit.MILLISECONDS);
+            }
+        }
+
+        SCHEDULER.execute(() -> {
+            LogTail tail = RadGatewayHook.logFileRetriever.getTail();
+            tail.refresh();
+            subscriber.push(tail.read(-1, Math.min(backlog, LogTail.CAPACITY), level));
+        });
+        return subscriber;
+    }
+
+    static void unsubscribe(Subscriber subscriber) {
+        if (subscriber == null || !SUBSCRIBERS.remove(subscriber)) {
+            return;
+        }
+
+        synchronized (LogTailBroadcast.class) {
+            if (SUBSCRIBERS.isEmpty() && ticker != null) {
+                ticker.cancel(false);
+                ticker = null;
+            }
+        }
+    }
+
+    public static void shutdown() {
+        SUBSCRIBERS.clear();
+        SCHEDULER.shutdownNow();
+    }
+
+    private static void tick() {
+        try {
+            LogTail tail = RadGatewayHook.logFileRetriever.getTail();
+            tail.refresh();
+
+            for (Subscriber subscriber : SUBSCRIBERS) {
+                // subscribers that have not had their backlog yet start with the next tick
+                if (subscriber.cursor >= 0 && subscriber.cursor < tail.head()) {
+                    subscriber.push(tail.read(subscriber.cursor, MAX_EVENTS_PER_PUSH, subscriber.level));
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Refreshing the log tail failed", e);
+        }
+    }
+
+    static final class Subscriber {
+        private final Level level;
+        private final Consumer<JsonObject> sink;
+
+        // only touched on the scheduler thread, -1 until the backlog was sent
+        private long cursor = -1;
+
+        private Subscriber(Level level, Consumer<JsonObject> sink) {
+            this.level = level;
+            this.sink = sink;
+        }
+
+        private void push(JsonObject events) {
+            cursor = events.get("nextCursor").getAsLong();
+            if (events.getAsJsonArray("events").size() == 0 && events.get("dropped").getAsLong() == 0
+                || !SUBSCRIBERS.contains(this)) {
+                return;
+            }
+
+            try {
+                sink.accept(events);
+            } catch (RuntimeException e) {
+                logger.warn("Pushing log events failed", e);
+            }
+        }
+    }
+}
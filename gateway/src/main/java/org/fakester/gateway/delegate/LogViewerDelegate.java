@@ -0,0 +1,91 @@
+package org.fakester.gateway.delegate;
+
+import org.fakester.common.component.display.LogViewer;
+import org.fakester.gateway.endpoint.RouteSecurity;
+import org.fakester.gateway.logs.LogTail;
+import org.fakester.gateway.metrics.ComponentMetrics;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.logging.Level;
+import com.inductiveautomation.perspective.gateway.api.Component;
+import com.inductiveautomation.perspective.gateway.api.ComponentModelDelegate;
+import com.inductiveautomation.perspective.gateway.messages.EventFiredMsg;
+
+/**
+ * Model Delegate for the LogViewer component.  Pushes new gateway log events as {@link LogTailBroadcast} picks them
+ * up, the client only keeps the newest of them.  Only sessions whose user has the
+ * {@link RouteSecurity#READ_ROLE} are subscribed.
+ */
+public class LogViewerDelegate extends ComponentModelDelegate {
+    public static final String INCOMING_EVENT_SUBSCRIBE = "log-viewer-subscribe-event";
+    public static final String OUTBOUND_EVENT_LOGS = "log-viewer-events-event";
+
+    private static final ComponentMetrics METRICS = ComponentMetrics.of(LogViewer.COMPONENT_ID);
+
+    private LogTailBroadcast.Subscriber subscriber;
+
+    public LogViewerDelegate(Component component) {
+        super(component);
+    }
+
+    @Override
+    protected void onStartup() {
+        // nothing is pushed until the client subscribes with its level and line count
+        log.infof("Starting up delegate for '%s'!", component.getComponentAddressPath());
+    }
+
+    @Override
+    protected synchronized void onShutdown() {
+        log.infof("Shutting down delegate for '%s'!", component.getComponentAddressPath());
+        LogTailBroadcast.unsubscribe(subscriber);
+        subscriber = null;
+    }
+
+    // when a ComponentStoreDelegate event is fired from the client side, it comes through this method.
+    @Override
+    public void handleEvent(EventFiredMsg message) {
+        long start = METRICS.eventReceived();
+        try {
+            dispatchEvent(message);
+        } finally {
+            METRICS.eventHandled(start);
+        }
+    }
+
+    private void dispatchEvent(EventFiredMsg message) {
+        if (INCOMING_EVENT_SUBSCRIBE.equals(message.getEventName())) {
+            JsonObject payload = message.getEvent();
+            JsonElement level = payload == null ? null : payload.get("level");
+            JsonElement maxLines = payload == null ? null : payload.get("maxLines");
+
+            try {
+                subscribe(level == null ? Level.INFO : LogTail.parseLevel(level.getAsString()),
+                    maxLines == null ? 500 : maxLines.getAsInt());
+            } catch (IllegalArgumentException e) {
+                log.warnf("Ignoring log viewer subscription of '%s': %s", component.getComponentAddressPath(),
+                    e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void subscribe(Level level, int maxLines) {
+        LogTailBroadcast.unsubscribe(subscriber);
+        subscriber = null;
+
+        // the same policy as the tail route, the log holds more than a project's users should see
+        if (!SessionRoles.hasRole(component, RouteSecurity.READ_ROLE)) {
+            log.warnf("Refusing the gateway log to '%s', the session user lacks the '%s' role",
+                component.getComponentAddressPath(), RouteSecurity.READ_ROLE);
+            return;
+        }
+        subscriber = LogTailBroadcast.subscribe(level, maxLines, events -> fireEvent(OUTBOUND_EVENT_LOGS, events));
+    }
+
+    // not necessary to override for our use case, just here for informational purposes
+    @Override
+    public void fireEvent(String eventName, JsonObject event) {
+        METRICS.eventPushed(event);
+        this.component.fireEvent("model", eventName, event);
+    }
+}
@@ -1,9 +1,13 @@
 package org.fakester.gateway.delegate;
 
 import java.util.Arrays;
-import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.fakester.common.component.display.Messenger;
+import org.fakester.gateway.metrics.ComponentMetrics;
+
 import com.inductiveautomation.ignition.common.gson.JsonElement;
 import com.inductiveautomation.ignition.common.gson.JsonObject;
 import com.inductiveautomation.ignition.common.script.builtin.KeywordArgs;
@@ -17,7 +21,6 @@ import org.python.core.PyObject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.fakester.gateway.*;
 
 /**
  * Model Delegate for the Messenger component.
@@ -28,11 +31,17 @@ public class MessageComponentModelDelegate extends ComponentModelDelegate {
     
     public static final String INCOMING_EVENT_TAG_VALUE_RECEIVE = "aws-component-message-receive-event";
     public static final String OUTBOUND_EVENT_TAG_VALUE_SEND = "aws-component-message-send-event";
+    public static final String INCOMING_EVENT_TAG_SUBSCRIBE = "aws-component-tag-subscribe-event";
+    private static final ComponentMetrics METRICS = ComponentMetrics.of(Messenger.COMPONENT_ID);
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final TagPushSession pushSession;
+    // the event handling and tag reads of this instance, cancelled when it shuts down
+    private final DelegateTasks tasks = new DelegateTasks();
 
     public MessageComponentModelDelegate(Component component) {
         super(component);
+        this.pushSession = new TagPushSession(payload -> fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, payload));
     }
 
     @Override
@@ -46,6 +55,8 @@ public class MessageComponentModelDelegate extends ComponentModelDelegate {
     protected void onShutdown() {
         // Called when the component is removed from the page/view and the model is shutting down.
         log.infof("Shutting down delegate for '%s'!", component.getComponentAddressPath());
+        tasks.cancelAll();
+        pushSession.shutdown();
     }
 
     /**
@@ -77,9 +88,25 @@ public class MessageComponentModelDelegate extends ComponentModelDelegate {
             )));
     }
 
-    // when a ComponentStoreDelegate event is fired from the client side, it comes through this method.
+    // when a ComponentStoreDelegate event is fired from the client side, it comes through this method.  The event is
+    // handled on the shared delegate executor, so the message thread only waits if that is backed up.
     @Override
     public void handleEvent(EventFiredMsg message) {
+        long start = METRICS.eventReceived();
+        tasks.execute(() -> {
+            try {
+                dispatchEvent(message);
+            } finally {
+                METRICS.eventHandled(start);
+            }
+        }, e -> {
+            METRICS.eventHandled(start);
+            log.warnf("Dropped '%s' event of '%s': %s", message.getEventName(), component.getComponentAddressPath(),
+                e.getMessage());
+        });
+    }
+
+    private void dispatchEvent(EventFiredMsg message) {
         log.infof("Received EventFiredMessage of type: %s", message.getEventName());
 
         // filter out the message we're interested in
@@ -115,29 +142,17 @@ public class MessageComponentModelDelegate extends ComponentModelDelegate {
 
                 logger.info("TagPath is "+tagPath);
 
-                if (tagPath.isJsonPrimitive() && tagPath.getAsJsonPrimitive().isString()) {
+                if (tagPath != null && tagPath.isJsonPrimitive() && tagPath.getAsJsonPrimitive().isString()) {
                     String tagPathString = tagPath.getAsJsonPrimitive().getAsString();
 
-                    logger.info("TagPathString value  is : "+tagPathString);          
-
-                    String valueOfTag = "";
-                    try {
-                        valueOfTag = RadGatewayHook.jythonExecutor.readTagFromPath(tagPathString);
-                    } catch (InterruptedException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
-                    } catch (ExecutionException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
-                    }
-
-                    logger.info("TagPath Value is : "+valueOfTag);
-
-                    if (valueOfTag != "")
-                    {
-                        responsePayload.addProperty("tagValue", valueOfTag);
-                    }                    
-                    //responsePayload.addProperty("tagValue", next);
+                    logger.info("TagPathString value  is : "+tagPathString);
+
+                    tasks.track(AsyncTagReads.read(List.of(tagPathString), List.of("tagValue"), responsePayload))
+                        .thenAccept(response -> {
+                            fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, response);
+                            logger.info("Value is sent");
+                        });
+                    return;
                 } else {
                     responsePayload.addProperty("error", "Didn't detect count in Gateway Delegate!");
                 }
@@ -146,13 +161,29 @@ public class MessageComponentModelDelegate extends ComponentModelDelegate {
                     "Gateway didn't receive a payload with '" + INCOMING_EVENT_NAME + "' event!");
             }
             fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, responsePayload);
-            logger.info("Value is sent");
+        }
+
+        if (INCOMING_EVENT_TAG_SUBSCRIBE.equals(message.getEventName())) {
+            JsonObject payload = message.getEvent();
+            JsonElement tagPath = payload == null ? null : payload.get("randomTagPath");
+
+            if (tagPath != null && tagPath.isJsonPrimitive() && tagPath.getAsJsonPrimitive().isString()) {
+                // values are pushed from the shared subscription from here on
+                pushSession.subscribe(Map.of("tagValue", tagPath.getAsJsonPrimitive().getAsString()),
+                    UpdateThrottle.Settings.fromPayload(payload));
+            } else {
+                JsonObject responsePayload = new JsonObject();
+                responsePayload.addProperty("error",
+                    "Gateway didn't receive a tag path with '" + INCOMING_EVENT_TAG_SUBSCRIBE + "' event!");
+                fireEvent(OUTBOUND_EVENT_TAG_VALUE_SEND, responsePayload);
+            }
         }
     }
 
     // not necessary to override for our use case, just here for informational purposes
     @Override
     public void fireEvent(String eventName, JsonObject event) {
+        METRICS.eventPushed(event);
         this.component.fireEvent("model", eventName, event);
     }
 }
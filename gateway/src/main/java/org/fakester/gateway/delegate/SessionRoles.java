@@ -0,0 +1,56 @@
+package org.fakester.gateway.delegate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.perspective.gateway.api.Component;
+import com.inductiveautomation.perspective.gateway.api.Session;
+
+/**
+ * Role checks for delegates that push gateway data, so a component only gets what its session's user could read
+ * through the matching data route, see {@link org.fakester.gateway.endpoint.RouteSecurity}.
+ *
+ * The roles are the ones Perspective puts in the session's {@code auth.user.roles} property when the user logs in,
+ * an anonymous session has none.  Roles are matched without regard to case.
+ */
+final class SessionRoles {
+
+    private SessionRoles() {
+        // static only
+    }
+
+    static boolean hasRole(Component component, String role) {
+        return rolesOf(component).stream().anyMatch(role::equalsIgnoreCase);
+    }
+
+    private static List<String> rolesOf(Component component) {
+        Session session = component.getSession();
+        Optional<Object> roles = session == null ? Optional.empty() : session.getSessionProps().read("auth.user.roles");
+        if (roles.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Object value = roles.get();
+        if (value instanceof JsonArray) {
+            return StreamSupport.stream(((JsonArray) value).spliterator(), false)
+                .filter(JsonElement::isJsonPrimitive)
+                .map(JsonElement::getAsString)
+                .collect(Collectors.toList());
+        }
+        if (value instanceof Object[]) {
+            return Arrays.stream((Object[]) value).map(String::valueOf).collect(Collectors.toList());
+        }
+        if (value instanceof Iterable) {
+            return StreamSupport.stream(((Iterable<?>) value).spliterator(), false)
+                .map(String::valueOf)
+                .collect(Collectors.toList());
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,124 @@
+package org.fakester.gateway.delegate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.fakester.gateway.metrics.ModuleMetrics;
+import org.fakester.gateway.metrics.RateMeter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Keeps at most one read of a polling component in flight.
+ *
+ * A request arriving while a read is running does not start another one, it is held until that read completes and is
+ * then read once.  Further requests arriving in the meantime replace the held one, so however many polls pile up
+ * behind a slow provider, they cost a single follow-up read.  Every response says how many requests it answers in
+ * {@code mergedRequests}, 1 unless requests were merged into it.  A read that fails is answered with an
+ * {@code error} response, only a read cancelled by the shutdown of the component goes unanswered.
+ */
+final class SingleFlightRead {
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlightRead.class);
+
+    private final Function<JsonObject, CompletableFuture<JsonObject>> read;
+    private final Consumer<JsonObject> sink;
+    private final RateMeter merged;
+
+    // guarded by this
+    private boolean inFlight;
+    private JsonObject pending;
+    private int pendingRequests;
+
+    /**
+     * @param read          starts a read for a request payload, completing with the response
+     * @param sink          receives the responses
+     * @param componentType the component whose merged requests are counted
+     */
+    SingleFlightRead(Function<JsonObject, CompletableFuture<JsonObject>> read, Consumer<JsonObject> sink,
+                     String componentType) {
+        this.read = read;
+        this.sink = sink;
+        this.merged = ModuleMetrics.rate("delegate_polls_merged", "component", componentType,
+            "Poll requests answered by a read that was already pending instead of their own");
+    }
+
+    void request(JsonObject payload) {
+        synchronized (this) {
+            if (inFlight) {
+                if (pending != null) {
+                    merged.mark();
+                }
+                pending = payload;
+                pendingRequests++;
+                return;
+            }
+            inFlight = true;
+        }
+        start(payload, 1);
+    }
+
+    private void start(JsonObject payload, int requests) {
+        CompletableFuture<JsonObject> future;
+        try {
+            future = read.apply(payload);
+        } catch (RuntimeException e) {
+            logger.warn("Could not start a tag read", e);
+            try {
+                sink.accept(errorResponse(e, requests));
+            } finally {
+                startPending();
+            }
+            return;
+        }
+
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                // cancelled because the component shut down, nothing is waiting for the held request anymore
+                synchronized (this) {
+                    inFlight = false;
+                    pending = null;
+                    pendingRequests = 0;
+                }
+                return;
+            }
+
+            try {
+                if (error != null) {
+                    sink.accept(errorResponse(error, requests));
+                } else {
+                    response.addProperty("mergedRequests", requests);
+                    sink.accept(response);
+                }
+            } finally {
+                startPending();
+            }
+        });
+    }
+
+    private static JsonObject errorResponse(Throwable error, int requests) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        JsonObject response = new JsonObject();
+        response.addProperty("error", String.valueOf(cause.getMessage()));
+        response.addProperty("mergedRequests", requests);
+        return response;
+    }
+
+    private void startPending() {
+        JsonObject next;
+        int requests;
+        synchronized (this) {
+            next = pending;
+            requests = pendingRequests;
+            pending = null;
+            pendingRequests = 0;
+            inFlight = next != null;
+        }
+        if (next != null) {
+            start(next, requests);
+        }
+    }
+}
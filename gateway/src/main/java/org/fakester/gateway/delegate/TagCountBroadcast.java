@@ -0,0 +1,139 @@
+package org.fakester.gateway.delegate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.fakester.gateway.RadGatewayHook;
+import org.fakester.gateway.tags.TagCountCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Computes the counts shown by TagCounter components once per tick and pushes them to every subscribed component, so
+ * the cost of a count does not grow with the number of open dashboards.
+ *
+ * Subscribers counting the same folder share one computation per tick, an empty folder path being the gateway wide
+ * count.  A subscriber is only sent counts that differ from the ones it has, and no more often than its interval.
+ */
+public final class TagCountBroadcast {
+    private static final long TICK_MS = Long.getLong("RadComponents.TagCounter.BroadcastInterval", 1000L);
+
+    private static final Logger logger = LoggerFactory.getLogger(TagCountBroadcast.class);
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RadComponents-TagCountBroadcast");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<Subscriber> SUBSCRIBERS = ConcurrentHashMap.newKeySet();
+
+    // guarded by TagCountBroadcast.class, runs only while there are subscribers
+    private static ScheduledFuture<?> ticker;
+
+    private TagCountBroadcast() {
+        // static only
+    }
+
+    /**
+     * Subscribes {@code sink} to the counts of {@code folderPath}, sending it the current counts right away.
+     */
+    static Subscriber subscribe(String folderPath, long intervalMs, Consumer<JsonObject> sink) {
+        Subscriber subscriber = new Subscriber(folderPath == null ? "" : folderPath, intervalMs, sink);
+        SUBSCRIBERS.add(subscriber);
+
+        synchronized (TagCountBroadcast.class) {
+            if (ticker == null) {
+                ticker = SCHEDULER.scheduleWithFixedDelay(TagCountBroadcast::tick, TICK_MS, TICK_MS,
+                    TimeUnit.MILLISECONDS);
+            }
+        }
+
+        SCHEDULER.execute(() -> subscriber.offer(countsOf(subscriber.folderPath)));
+        return subscriber;
+    }
+
+    static void unsubscribe(Subscriber subscriber) {
+        if (subscriber == null || !SUBSCRIBERS.remove(subscriber)) {
+            return;
+        }
+
+        synchronized (TagCountBroadcast.class) {
+            if (SUBSCRIBERS.isEmpty() && ticker != null) {
+                ticker.cancel(false);
+                ticker = null;
+            }
+        }
+    }
+
+    public static void shutdown() {
+        SUBSCRIBERS.clear();
+        SCHEDULER.shutdownNow();
+    }
+
+    private static void tick() {
+        Map<String, JsonObject> countsByFolder = new HashMap<>();
+        for (Subscriber subscriber : SUBSCRIBERS) {
+            if (subscriber.isDue()) {
+                subscriber.offer(countsByFolder.computeIfAbsent(subscriber.folderPath, TagCountBroadcast::countsOf));
+            }
+        }
+    }
+
+    private static JsonObject countsOf(String folderPath) {
+        try {
+            if (folderPath.isEmpty()) {
+                return RadGatewayHook.jythonExecutor.getTagCounts().toJson();
+            }
+            return RadGatewayHook.jythonExecutor.peekFolderStats(folderPath, 0);
+        } catch (Exception e) {
+            logger.debug("Counting the tags of '{}' failed", folderPath, e);
+            JsonObject error = new JsonObject();
+            error.addProperty("path", folderPath);
+            error.addProperty("error", String.valueOf(e.getMessage()));
+            return error;
+        }
+    }
+
+    static final class Subscriber {
+        private final String folderPath;
+        private final long intervalMs;
+        private final Consumer<JsonObject> sink;
+
+        // only touched on the scheduler thread
+        private String lastSentTag;
+        private long lastSentAt;
+
+        private Subscriber(String folderPath, long intervalMs, Consumer<JsonObject> sink) {
+            this.folderPath = folderPath;
+            this.intervalMs = intervalMs;
+            this.sink = sink;
+        }
+
+        private boolean isDue() {
+            return System.currentTimeMillis() - lastSentAt >= intervalMs;
+        }
+
+        private void offer(JsonObject counts) {
+            String entityTag = TagCountCache.entityTagOf(counts);
+            if (entityTag.equals(lastSentTag) || !SUBSCRIBERS.contains(this)) {
+                return;
+            }
+
+            lastSentTag = entityTag;
+            lastSentAt = System.currentTimeMillis();
+            try {
+                sink.accept(counts);
+            } catch (RuntimeException e) {
+                logger.warn("Pushing tag counts of '{}' failed", folderPath, e);
+            }
+        }
+    }
+}
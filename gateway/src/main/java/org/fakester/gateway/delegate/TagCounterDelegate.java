@@ -0,0 +1,94 @@
+package org.fakester.gateway.delegate;
+
+import org.fakester.common.component.display.TagCounter;
+import org.fakester.gateway.endpoint.RouteSecurity;
+import org.fakester.gateway.metrics.ComponentMetrics;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.perspective.gateway.api.Component;
+import com.inductiveautomation.perspective.gateway.api.ComponentModelDelegate;
+import com.inductiveautomation.perspective.gateway.messages.EventFiredMsg;
+
+/**
+ * Model Delegate for the TagCounter component.  Pushes the counts computed by {@link TagCountBroadcast} instead of
+ * every component polling for them.
+ */
+public class TagCounterDelegate extends ComponentModelDelegate {
+    public static final String INCOMING_EVENT_SUBSCRIBE = "tag-count-subscribe-event";
+    public static final String OUTBOUND_EVENT_COUNT = "tag-count-update-event";
+
+    // lower bound of the interval a client may ask for
+    private static final long MIN_INTERVAL_MS = Long.getLong("RadComponents.TagCounter.MinPushInterval", 250L);
+    private static final ComponentMetrics METRICS = ComponentMetrics.of(TagCounter.COMPONENT_ID);
+
+    private TagCountBroadcast.Subscriber subscriber;
+
+    public TagCounterDelegate(Component component) {
+        super(component);
+    }
+
+    @Override
+    protected void onStartup() {
+        // nothing is pushed until the client subscribes with its folder path and interval
+        log.infof("Starting up delegate for '%s'!", component.getComponentAddressPath());
+    }
+
+    @Override
+    protected synchronized void onShutdown() {
+        log.infof("Shutting down delegate for '%s'!", component.getComponentAddressPath());
+        TagCountBroadcast.unsubscribe(subscriber);
+        subscriber = null;
+    }
+
+    // when a ComponentStoreDelegate event is fired from the client side, it comes through this method.
+    @Override
+    public void handleEvent(EventFiredMsg message) {
+        long start = METRICS.eventReceived();
+        try {
+            dispatchEvent(message);
+        } finally {
+            METRICS.eventHandled(start);
+        }
+    }
+
+    private void dispatchEvent(EventFiredMsg message) {
+        if (INCOMING_EVENT_SUBSCRIBE.equals(message.getEventName())) {
+            JsonObject payload = message.getEvent();
+            subscribe(readString(payload, "folderPath"), Math.max(MIN_INTERVAL_MS, readLong(payload, "interval")));
+        }
+    }
+
+    private synchronized void subscribe(String folderPath, long intervalMs) {
+        TagCountBroadcast.unsubscribe(subscriber);
+        subscriber = null;
+
+        // folder statistics are only for users that could read them from the stats route, the gateway wide count is
+        // public like the tagcount route
+        if (!folderPath.isEmpty() && !SessionRoles.hasRole(component, RouteSecurity.READ_ROLE)) {
+            log.warnf("Refusing folder statistics of '%s' to '%s', the session user lacks the '%s' role", folderPath,
+                component.getComponentAddressPath(), RouteSecurity.READ_ROLE);
+            return;
+        }
+        subscriber = TagCountBroadcast.subscribe(folderPath, intervalMs,
+            counts -> fireEvent(OUTBOUND_EVENT_COUNT, counts));
+    }
+
+    // not necessary to override for our use case, just here for informational purposes
+    @Override
+    public void fireEvent(String eventName, JsonObject event) {
+        METRICS.eventPushed(event);
+        this.component.fireEvent("model", eventName, event);
+    }
+
+    private static String readString(JsonObject payload, String key) {
+        JsonElement element = payload == null ? null : payload.get(key);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : "";
+    }
+
+    private static long readLong(JsonObject payload, String key) {
+        JsonElement element = payload == null ? null : payload.get(key);
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()
+            ? element.getAsLong() : 0L;
+    }
+}
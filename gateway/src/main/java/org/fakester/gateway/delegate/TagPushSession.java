@@ -0,0 +1,83 @@
+package org.fakester.gateway.delegate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.fakester.gateway.RadGatewayHook;
+import org.fakester.gateway.tags.TagSubscriptionManager;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+
+/**
+ * The tag subscriptions of one component instance.  Value changes pass through an {@link UpdateThrottle} and are
+ * pushed to the client as payloads holding only the keys that changed.
+ */
+final class TagPushSession implements TagSubscriptionManager.TagValueListener {
+    private final UpdateThrottle throttle;
+    private volatile Map<TagPath, List<String>> keysByPath = Map.of();
+    private TagSubscriptionManager.Handle handle;
+    private boolean shutDown;
+
+    TagPushSession(Consumer<JsonObject> sink) {
+        this.throttle = new UpdateThrottle(sink);
+    }
+
+    /**
+     * Replaces the current subscriptions with the given value key to tag path bindings, throttled according to
+     * {@code settings}.
+     */
+    synchronized void subscribe(Map<String, String> tagPathsByKey, UpdateThrottle.Settings settings) {
+        close();
+        if (shutDown) {
+            // a subscribe event still being handled when the component went away
+            return;
+        }
+        throttle.configure(settings);
+
+        Map<TagPath, List<String>> keys = new HashMap<>();
+        for (Map.Entry<String, String> binding : tagPathsByKey.entrySet()) {
+            TagPath tagPath = RadGatewayHook.jythonExecutor.parseTagPath(binding.getValue());
+            keys.computeIfAbsent(tagPath, p -> new ArrayList<>()).add(binding.getKey());
+        }
+        keysByPath = keys;
+
+        if (!keys.isEmpty()) {
+            handle = RadGatewayHook.jythonExecutor.getTagSubscriptions()
+                .subscribe(new ArrayList<>(keys.keySet()), this);
+        }
+    }
+
+    synchronized void close() {
+        if (handle != null) {
+            RadGatewayHook.jythonExecutor.getTagSubscriptions().release(handle);
+            handle = null;
+        }
+        keysByPath = Map.of();
+        throttle.reset();
+    }
+
+    /**
+     * Closes the session for good, later subscribes are ignored.
+     */
+    synchronized void shutdown() {
+        shutDown = true;
+        close();
+    }
+
+    @Override
+    public void valueChanged(TagPath tagPath, QualifiedValue value) {
+        List<String> keys = keysByPath.get(tagPath);
+        if (keys == null) {
+            return;
+        }
+
+        for (String key : keys) {
+            throttle.offer(key, value);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.fakester.gateway.delegate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.fakester.gateway.tags.TagValuePayloads;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
+
+/**
+ * Limits how often tag values are pushed to one component.
+ *
+ * Values arriving faster than the configured rate are coalesced so that only the latest value of each key is sent,
+ * and numeric changes within the deadband of the last sent value are dropped before they are serialized.
+ */
+public final class UpdateThrottle {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RadComponents-UpdateThrottle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Consumer<JsonObject> sink;
+    // held from draining a payload until the sink has it, so payloads reach the client in the order they were drained
+    private final Object sendLock = new Object();
+    private volatile Settings settings = Settings.DEFAULT;
+
+    // guarded by 'this'
+    private final Map<String, QualifiedValue> lastSent = new HashMap<>();
+    private final Map<String, QualifiedValue> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private long lastFlushNanos;
+
+    UpdateThrottle(Consumer<JsonObject> sink) {
+        this.sink = sink;
+    }
+
+    void configure(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Queues a value for {@code key}, sending it now if the rate allows, otherwise when the next slot opens up.
+     */
+    void offer(String key, QualifiedValue value) {
+        boolean sendNow = false;
+
+        synchronized (this) {
+            if (settings.isWithinDeadband(lastSent.get(key), value)) {
+                // the client already shows a close enough value, anything queued would be replaced by this one anyway
+                pending.remove(key);
+                return;
+            }
+
+            pending.put(key, value);
+
+            if (scheduledFlush == null) {
+                long now = System.nanoTime();
+                long waitNanos = lastFlushNanos + settings.minIntervalNanos() - now;
+                if (waitNanos <= 0) {
+                    // claims the slot, so concurrent offers schedule a flush instead of sending as well
+                    lastFlushNanos = now;
+                    sendNow = true;
+                } else {
+                    scheduledFlush = SCHEDULER.schedule(this::flush, waitNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        if (sendNow) {
+            send();
+        }
+    }
+
+    /**
+     * Drops anything queued and forgets the last sent values, so the next value of every key is sent.
+     */
+    synchronized void reset() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        pending.clear();
+        lastSent.clear();
+    }
+
+    public static void shutdown() {
+        SCHEDULER.shutdownNow();
+    }
+
+    private void flush() {
+        synchronized (this) {
+            scheduledFlush = null;
+        }
+        send();
+    }
+
+    /**
+     * Sends whatever is pending.  Draining and sending happen under the send lock, otherwise a payload drained later,
+     * holding newer values, could reach the client first and be overwritten by the older one, which the deadband
+     * would then keep the client from ever correcting.
+     */
+    private void send() {
+        synchronized (sendLock) {
+            JsonObject payload;
+            synchronized (this) {
+                payload = drain();
+            }
+
+            if (payload != null) {
+                sink.accept(payload);
+            }
+        }
+    }
+
+    // must hold the send lock and the lock
+    private JsonObject drain() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+
+        JsonObject payload = new JsonObject();
+        for (Map.Entry<String, QualifiedValue> entry : pending.entrySet()) {
+            payload.add(entry.getKey(), TagValuePayloads.toJson(entry.getValue()));
+            lastSent.put(entry.getKey(), entry.getValue());
+        }
+
+        pending.clear();
+        lastFlushNanos = System.nanoTime();
+        return payload;
+    }
+
+    /**
+     * Throttle configuration, read from the component props sent with the subscribe event.
+     */
+    static final class Settings {
+        static final Settings DEFAULT = new Settings(0, 0, false);
+
+        // updates per second, 0 for no limit
+        private final double maxUpdateRate;
+        private final double deadband;
+        private final boolean percentDeadband;
+
+        Settings(double maxUpdateRate, double deadband, boolean percentDeadband) {
+            this.maxUpdateRate = maxUpdateRate;
+            this.deadband = deadband;
+            this.percentDeadband = percentDeadband;
+        }
+
+        static Settings fromPayload(JsonObject payload) {
+            JsonElement mode = payload.get("deadbandMode");
+            return new Settings(
+                readNumber(payload, "maxUpdateRate"),
+                readNumber(payload, "deadband"),
+                mode != null && mode.isJsonPrimitive() && "percent".equals(mode.getAsString())
+            );
+        }
+
+        long minIntervalNanos() {
+            return maxUpdateRate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxUpdateRate) : 0L;
+        }
+
+        boolean isWithinDeadband(QualifiedValue previous, QualifiedValue next) {
+            if (previous == null || deadband <= 0 || !Objects.equals(previous.getQuality(), next.getQuality())) {
+                return false;
+            }
+            if (!(previous.getValue() instanceof Number) || !(next.getValue() instanceof Number)) {
+                return false;
+            }
+
+            double last = ((Number) previous.getValue()).doubleValue();
+            double delta = Math.abs(((Number) next.getValue()).doubleValue() - last);
+            double band = percentDeadband ? Math.abs(last) * deadband / 100d : deadband;
+            return delta <= band;
+        }
+
+        private static double readNumber(JsonObject payload, String key) {
+            JsonElement element = payload.get(key);
+            if (element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()) {
+                return element.getAsDouble();
+            }
+            return 0;
+        }
+    }
+}
@@ -1,75 +1,764 @@
 package org.fakester.gateway.endpoint;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.fakester.gateway.LogFileRetriever;
+import org.fakester.gateway.RadGatewayHook;
+import org.fakester.gateway.logs.LogTail;
+import org.fakester.gateway.importer.SpooledUpload;
+import org.fakester.gateway.importer.TagDocumentWriter;
+import org.fakester.gateway.importer.TagExporter;
+import org.fakester.gateway.importer.TagImportEngine;
+import org.fakester.gateway.importer.ValidationReport;
+import org.fakester.gateway.metrics.Histogram;
+import org.fakester.gateway.metrics.ModuleMetrics;
+import org.fakester.gateway.metrics.RateMeter;
+import org.fakester.gateway.tags.FolderStatsCache;
+import org.fakester.gateway.tags.TagBrowseIndex;
+import org.fakester.gateway.tags.TagCountCache;
+import org.fakester.gateway.tags.TagPathGlob;
+import org.fakester.gateway.tags.TagValuePayloads;
+
+import com.inductiveautomation.ignition.common.gson.Gson;
+import com.inductiveautomation.ignition.common.gson.GsonBuilder;
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonElement;
 import com.inductiveautomation.ignition.common.gson.JsonObject;
-import com.inductiveautomation.ignition.common.tags.model.TagProvider;
-import com.inductiveautomation.ignition.common.tags.model.TagProviderInformation;
-import com.inductiveautomation.ignition.common.util.Futures;
+import com.inductiveautomation.ignition.common.gson.JsonParseException;
+import com.inductiveautomation.ignition.common.gson.JsonParser;
+import com.inductiveautomation.ignition.common.gson.stream.JsonWriter;
+import com.inductiveautomation.ignition.common.logging.Level;
+import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
+import com.inductiveautomation.ignition.common.tags.config.CollisionPolicy;
+import com.inductiveautomation.ignition.common.tags.model.SecurityContext;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.gateway.dataroutes.HttpMethod;
 import com.inductiveautomation.ignition.gateway.dataroutes.RequestContext;
 import com.inductiveautomation.ignition.gateway.dataroutes.RouteGroup;
-import com.inductiveautomation.ignition.gateway.model.GatewayContext;
-import com.inductiveautomation.ignition.gateway.tags.model.GatewayTagManager;
+import com.inductiveautomation.ignition.gateway.dataroutes.RouteHandler;
 
 
 /**
  * Class containing dynamic data 'routes' or 'endpoints'.
  */
 public final class DataEndpoints {
-    // how long to hold cached value before allowing new count calculation
-    private static final long CACHE_DURATION_MS = Long.getLong("RadComponents.TagCounter.CacheDuration", 30000L);
-    private static AtomicReference<Long> tagCount = new AtomicReference<>(0L);
-    private static AtomicReference<Long> timestampOfLastCount = new AtomicReference<>(0L);
+    // not among the servlet api's constants
+    private static final int SC_UNPROCESSABLE_ENTITY = 422;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4";
+    // paths per read, the size of a provider batch in TagReadCoalescer
+    private static final int VALUES_BATCH_SIZE = Integer.getInteger("RadComponents.TagValues.BatchSize", 500);
+    // batches read ahead of the one being written
+    private static final int VALUES_BATCHES_IN_FLIGHT = Integer.getInteger("RadComponents.TagValues.BatchesInFlight", 4);
+    private static final int VALUES_MAX_PATHS = Integer.getInteger("RadComponents.TagValues.MaxPaths", 100000);
+    private static final long VALUES_READ_TIMEOUT_MS = Long.getLong("RadComponents.TagValues.ReadTimeout", 10000L);
+    // upper bound of events in one log download
+    private static final int LOG_EXPORT_MAX_EVENTS = Integer.getInteger("RadComponents.LogExport.MaxEvents", 100000);
+    private static final int LOG_SEARCH_MAX_MATCHES = Integer.getInteger("RadComponents.LogIndex.MaxMatches", 1000);
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
 
     private DataEndpoints() {
         // private constructor
     }
 
     public static void mountRoutes(RouteGroup routes) {
+        // host:port/main/data/radcomponents/component/metrics, add ?format=prometheus for the text format
+        routes.newRoute("/component/metrics")
+            .handler(DataEndpoints::fetchMetrics)
+            .mount();
+
         // creates a new data route reachable at host:port/main/data/radcomppnents/component/tagcount
         routes.newRoute("/component/tagcount")
             .type(RouteGroup.TYPE_JSON)
-            .handler(DataEndpoints::fetchTagCount)
+            .handler(timed("/component/tagcount", DataEndpoints::fetchTagCount))
+            .mount();
+
+        // host:port/main/data/radcomponents/component/tags/stats?path=[default]Folder&depth=1
+        routes.newRoute("/component/tags/stats")
+            .type(RouteGroup.TYPE_JSON)
+            .handler(timed("/component/tags/stats",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::fetchFolderStats)))
+            .mount();
+
+        // host:port/main/data/radcomponents/component/tags/browse?path=[default]Folder&limit=200&cursor=...
+        routes.newRoute("/component/tags/browse")
+            .type(RouteGroup.TYPE_JSON)
+            .handler(timed("/component/tags/browse",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::browseTags)))
+            .mount();
+
+        // POST {"paths": [...]} or {"folder": "[default]Folder", "glob": "Line*/Temp*"} to
+        // host:port/main/data/radcomponents/component/tags/values
+        routes.newRoute("/component/tags/values")
+            .method(HttpMethod.POST)
+            .handler(timed("/component/tags/values",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::readTagValues)))
+            .mount();
+
+        // POST the raw file body to host:port/main/data/radcomponents/component/tags/import?format=csv
+        routes.newRoute("/component/tags/import")
+            .method(HttpMethod.POST)
+            .type(RouteGroup.TYPE_JSON)
+            .handler(timed("/component/tags/import",
+                RouteSecurity.requireRole(RouteSecurity.IMPORT_ROLE, DataEndpoints::importTags)))
+            .mount();
+
+        // dry run: POST the raw file body to host:port/main/data/radcomponents/component/tags/validate?format=csv
+        routes.newRoute("/component/tags/validate")
+            .method(HttpMethod.POST)
+            .type(RouteGroup.TYPE_JSON)
+            .handler(timed("/component/tags/validate",
+                RouteSecurity.requireRole(RouteSecurity.IMPORT_ROLE, DataEndpoints::validateTags)))
+            .mount();
+
+        // host:port/main/data/radcomponents/component/tags/export?path=[default]Folder&format=xml&gzip=true
+        routes.newRoute("/component/tags/export")
+            .handler(timed("/component/tags/export",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::exportTags)))
+            .mount();
+
+        // POST a tag file to host:port/main/data/radcomponents/component/tags/convert?from=xml&to=json
+        routes.newRoute("/component/tags/convert")
+            .method(HttpMethod.POST)
+            .handler(timed("/component/tags/convert",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::convertTags)))
+            .mount();
+
+        // host:port/main/data/radcomponents/component/logs/export?minutes=15&level=INFO&limit=1000&gzip=true
+        routes.newRoute("/component/logs/export")
+            .handler(timed("/component/logs/export",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::exportLogs)))
+            .mount();
+
+        // host:port/main/data/radcomponents/component/logs/search?q=connection+refused&level=WARN&limit=50
+        routes.newRoute("/component/logs/search")
+            .type(RouteGroup.TYPE_JSON)
+            .handler(timed("/component/logs/search",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::searchLogs)))
+            .mount();
+
+        // host:port/main/data/radcomponents/component/logs/rates?logger=gateway.opc&level=WARN&buckets=60&top=10
+        routes.newRoute("/component/logs/rates")
+            .type(RouteGroup.TYPE_JSON)
+            .handler(timed("/component/logs/rates",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::fetchLogRates)))
+            .mount();
+
+        // host:port/main/data/radcomponents/component/logs/tail?cursor=1234&limit=200&level=WARN
+        routes.newRoute("/component/logs/tail")
+            .type(RouteGroup.TYPE_JSON)
+            .handler(timed("/component/logs/tail",
+                RouteSecurity.requireRole(RouteSecurity.READ_ROLE, DataEndpoints::tailLogs)))
             .mount();
     }
 
     /**
-     * Returns a simple json object in form of
+     * Returns the gateway's tag count in form of
      * <pre>
      *     {
-     *         "tagCount": &lt;number&gt;
+     *         "tagCount": &lt;number&gt;,
+     *         "ageMs": &lt;number&gt;,
+     *         "providers": {"default": &lt;number&gt;, ...}
      *     }
      * </pre>
      *
-     * Tag counts are cached and re-caclcated no more often than {@link DataEndpoints#CACHE_DURATION_MS}.
+     * The last counts are returned right away, {@code ageMs} being how long ago they were taken, or -1 before the
+     * first count has finished.  Stale counts are refreshed in the background by {@link TagCountCache}, one refresh
+     * at a time however many clients are polling.
      *
-     * Note: an 'ideal' implementation of this sort would require some additional concurrency handling for optimal
-     * performance and safety, but was skipped to keep example focused on big picture functionality.
+     * TagCounter components get their counts pushed by {@code TagCounterDelegate} and only poll here when that fails,
+     * sending the last {@code ETag} so unchanged counts are answered with an empty 304.
      */
     private static JsonObject fetchTagCount(RequestContext req, HttpServletResponse res) {
-        // if we've exceeded our throttle duration, update count
-        if (System.currentTimeMillis() - timestampOfLastCount.get() > CACHE_DURATION_MS) {
-            timestampOfLastCount.set(System.currentTimeMillis());
+        return unlessNotModified(req.getRequest(), res, RadGatewayHook.jythonExecutor.getTagCounts().toJson());
+    }
+
+    /**
+     * Returns tag statistics of the folder at {@code path} (default {@code [default]}) and, up to {@code depth}
+     * levels (default 1, -1 for all), the folders below it:
+     * <pre>
+     *     {
+     *         "path": "[default]Folder",
+     *         "ageMs": &lt;number&gt;,
+     *         "durationMs": &lt;number&gt;,
+     *         "refreshing": &lt;boolean&gt;,
+     *         "stats": {
+     *             "name": "Folder", "path": "[default]Folder",
+     *             "folders": &lt;number&gt;, "tags": &lt;number&gt;, "udtInstances": &lt;number&gt;, "alarms": &lt;number&gt;,
+     *             "opcTags": &lt;number&gt;, "memoryTags": &lt;number&gt;, "expressionTags": &lt;number&gt;,
+     *             "otherTags": &lt;number&gt;, "configBytes": &lt;number&gt;, "failures": &lt;number&gt;,
+     *             "children": [...]
+     *         }
+     *     }
+     * </pre>
+     *
+     * Counts include everything below the folder.  They are cached, see {@link FolderStatsCache}, and {@code stats}
+     * is missing until the first walk of a large folder has finished.  Takes {@code If-None-Match} like
+     * {@code /component/tagcount}.  The caller needs the {@link RouteSecurity#READ_ROLE}.
+     */
+    private static JsonObject fetchFolderStats(RequestContext req, HttpServletResponse res) {
+        HttpServletRequest request = req.getRequest();
+        String folderPath = Optional.ofNullable(request.getParameter("path")).orElse("[default]");
+
+        try {
+            int depth = Integer.parseInt(Optional.ofNullable(request.getParameter("depth")).orElse("1"));
+            return unlessNotModified(request, res, RadGatewayHook.jythonExecutor.getFolderStats(folderPath, depth));
+        } catch (IllegalArgumentException | IOException e) {
+            res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            JsonObject json = new JsonObject();
+            json.addProperty("error", e.getMessage());
+            return json;
+        }
+    }
+
+    /**
+     * Lists the children of the folder at {@code path} (default {@code [default]}) a page of {@code limit} nodes at a
+     * time, see {@link TagBrowseIndex#page(String, String, int)}.  The next page is asked for by passing the
+     * {@code nextCursor} of the last one as {@code cursor}.  Folders are browsed once and served from the index until
+     * their structure changes.  The caller needs the {@link RouteSecurity#READ_ROLE}.
+     */
+    private static JsonObject browseTags(RequestContext req, HttpServletResponse res) {
+        HttpServletRequest request = req.getRequest();
+        String folderPath = Optional.ofNullable(request.getParameter("path")).orElse("[default]");
+
+        try {
+            int limit = Optional.ofNullable(request.getParameter("limit")).map(Integer::parseInt)
+                .orElse(TagBrowseIndex.DEFAULT_PAGE_SIZE);
+            return RadGatewayHook.jythonExecutor.browseTags(folderPath, request.getParameter("cursor"), limit);
+        } catch (IllegalArgumentException | IOException e) {
+            res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            JsonObject json = new JsonObject();
+            json.addProperty("error", e.getMessage());
+            return json;
+        }
+    }
+
+    /**
+     * Returns the module's metrics, see {@link ModuleMetrics#toJson()}, or with {@code format=prometheus} the same in
+     * the Prometheus text format.
+     */
+    private static Object fetchMetrics(RequestContext req, HttpServletResponse res) throws IOException {
+        if (!"prometheus".equalsIgnoreCase(req.getRequest().getParameter("format"))) {
+            res.setContentType(RouteGroup.TYPE_JSON);
+            return ModuleMetrics.toJson().toString();
+        }
+
+        res.setContentType(PROMETHEUS_CONTENT_TYPE);
+        res.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (Writer writer = res.getWriter()) {
+            writer.write(ModuleMetrics.toPrometheus());
+        }
+        return null;
+    }
+
+    /**
+     * Counts the requests of a route and how long they take.
+     */
+    private static RouteHandler timed(String route, RouteHandler handler) {
+        RateMeter requests = ModuleMetrics.rate("route_requests", "route", route, "Requests handled by a data route");
+        Histogram latency = ModuleMetrics.histogram("route_latency", "route", route,
+            "Time a data route takes to handle a request", Histogram.Unit.NANOSECONDS);
+
+        return (req, res) -> {
+            requests.mark();
+            long start = System.nanoTime();
+            try {
+                return handler.handle(req, res);
+            } finally {
+                latency.recordSince(start);
+            }
+        };
+    }
+
+    /**
+     * Tags {@code payload} with an {@code ETag} of its counts, returning null with status 304 instead if the client
+     * already has them.
+     */
+    private static JsonObject unlessNotModified(HttpServletRequest request, HttpServletResponse res,
+                                                JsonObject payload) {
+        String entityTag = TagCountCache.entityTagOf(payload);
+        res.setHeader("ETag", entityTag);
+        res.setHeader("Cache-Control", "no-cache");
+
+        if (entityTag.equals(request.getHeader("If-None-Match"))) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+        return payload;
+    }
+
+    /**
+     * Reads the current values of the tags listed in the request body, either
+     * <pre>
+     *     {"paths": ["[default]Line1/Temperature", ...]}
+     * </pre>
+     * or every tag below a folder whose path relative to it matches a glob, see {@link TagPathGlob}
+     * <pre>
+     *     {"folder": "[default]Plant", "glob": "Line*&#47;Temp*"}
+     * </pre>
+     * The values are streamed as
+     * <pre>
+     *     {
+     *         "values": [{"path": "...", "value": ..., "quality": "Good", "timestamp": &lt;epoch millis&gt;}, ...],
+     *         "count": &lt;number&gt;,
+     *         "durationMs": &lt;number&gt;
+     *     }
+     * </pre>
+     * in the order of the request.  Paths are read in batches of {@link #VALUES_BATCH_SIZE}, a few batches ahead of
+     * the one being written, and every batch is flushed to the client once it is read.  The paths of a batch that
+     * failed or timed out are written with an {@code error} instead of a value.  The caller needs the
+     * {@link RouteSecurity#READ_ROLE}, and the tags are read with the caller's security context.
+     */
+    private static Object readTagValues(RequestContext req, HttpServletResponse res) throws IOException {
+        long start = System.currentTimeMillis();
+        HttpServletRequest request = req.getRequest();
+        // read as the caller, so tags with read permissions only return values the caller may see
+        SecurityContext securityContext = RouteSecurity.callerOf(req).getSecurityContext();
+
+        List<TagPath> tagPaths;
+        try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            tagPaths = tagPathsOf(new JsonParser().parse(reader));
+        } catch (IllegalArgumentException | JsonParseException | IOException e) {
+            return badRequest(res, e.getMessage());
+        }
 
-            GatewayContext context = req.getGatewayContext();
-            GatewayTagManager tagManager = context.getTagManager();
-            List<TagProvider> providers = tagManager.getTagProviders();
+        res.setContentType(RouteGroup.TYPE_JSON);
+        res.setCharacterEncoding(StandardCharsets.UTF_8.name());
 
-            long count = providers.stream()
-                .map(TagProvider::getStatusInformation)
-                .map(Futures::getSafe)
-                .filter(Objects::nonNull)
-                .mapToLong(TagProviderInformation::getTagCount)
-                .sum();
+        Deque<CompletableFuture<List<QualifiedValue>>> inFlight = new ArrayDeque<>();
+        try (JsonWriter json = new JsonWriter(new BufferedWriter(
+            new OutputStreamWriter(res.getOutputStream(), StandardCharsets.UTF_8), GZIP_BUFFER_SIZE))) {
+            json.beginObject().name("values").beginArray();
 
-            tagCount.set(count);
+            int requested = 0;
+            for (int written = 0; written < tagPaths.size(); written += VALUES_BATCH_SIZE) {
+                while (requested < tagPaths.size() && inFlight.size() < VALUES_BATCHES_IN_FLIGHT) {
+                    List<TagPath> batch = batchOf(tagPaths, requested);
+                    inFlight.add(RadGatewayHook.jythonExecutor.readTagPathsAsync(batch, securityContext));
+                    requested += batch.size();
+                }
+
+                writeValues(json, batchOf(tagPaths, written), inFlight.poll());
+                json.flush();
+            }
+
+            json.endArray();
+            json.name("count").value(tagPaths.size());
+            json.name("durationMs").value(System.currentTimeMillis() - start);
+            json.endObject();
         }
+        return null;
+    }
+
+    private static List<TagPath> tagPathsOf(JsonElement body) throws IOException {
+        JsonObject request = body != null && body.isJsonObject() ? body.getAsJsonObject() : new JsonObject();
+
+        JsonElement paths = request.get("paths");
+        if (paths != null && paths.isJsonArray()) {
+            JsonArray array = paths.getAsJsonArray();
+            if (array.size() > VALUES_MAX_PATHS) {
+                throw new IllegalArgumentException("At most " + VALUES_MAX_PATHS + " paths can be read at once");
+            }
+
+            List<TagPath> tagPaths = new ArrayList<>(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                JsonElement path = array.get(i);
+                if (!path.isJsonPrimitive()) {
+                    throw new IllegalArgumentException("'paths' entry " + i + " is not a tag path");
+                }
+                tagPaths.add(RadGatewayHook.jythonExecutor.parseTagPath(path.getAsString()));
+            }
+            return tagPaths;
+        }
+
+        JsonElement folder = request.get("folder");
+        JsonElement glob = request.get("glob");
+        if (folder == null || glob == null) {
+            throw new IllegalArgumentException("Expected either 'paths' or 'folder' and 'glob'");
+        }
+        if (!folder.isJsonPrimitive() || !glob.isJsonPrimitive()) {
+            throw new IllegalArgumentException("'folder' and 'glob' must be strings");
+        }
+        return RadGatewayHook.jythonExecutor.resolveTagGlob(folder.getAsString(), glob.getAsString(),
+            VALUES_MAX_PATHS);
+    }
+
+    private static List<TagPath> batchOf(List<TagPath> tagPaths, int from) {
+        return tagPaths.subList(from, Math.min(tagPaths.size(), from + VALUES_BATCH_SIZE));
+    }
+
+    private static void writeValues(JsonWriter json, List<TagPath> batch,
+                                    CompletableFuture<List<QualifiedValue>> read) throws IOException {
+        List<QualifiedValue> values = null;
+        String error = null;
+        try {
+            values = read.get(VALUES_READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Interrupted";
+        } catch (ExecutionException e) {
+            error = String.valueOf(e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            error = "Read timed out after " + VALUES_READ_TIMEOUT_MS + " ms";
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("path", batch.get(i).toStringFull());
+            if (values != null) {
+                for (Map.Entry<String, JsonElement> property : TagValuePayloads.toJson(values.get(i)).entrySet()) {
+                    entry.add(property.getKey(), property.getValue());
+                }
+            } else {
+                entry.addProperty("error", error);
+            }
+            GSON.toJson(entry, json);
+        }
+    }
+
+    /**
+     * Imports the tag file sent as the request body.  The file is parsed as it is read and imported in chunks, so it
+     * is never held in memory as a whole.  The caller needs the {@link RouteSecurity#IMPORT_ROLE} and the tags are
+     * written with the caller's security context.  Query parameters:
+     * <ul>
+     *     <li>{@code format} - {@code csv}, {@code wincc}, {@code xml} or {@code json}</li>
+     *     <li>{@code path} - folder or provider to import into, defaults to {@code [default]}</li>
+     *     <li>{@code collisionPolicy} - one of {@link CollisionPolicy}, defaults to {@code Overwrite}</li>
+     *     <li>{@code mode} - {@code incremental} to only import new and changed tags, ignoring {@code collisionPolicy},
+     *     and to skip a file identical to the last one imported into the same path</li>
+     *     <li>{@code removeMissing} - with {@code mode=incremental}, {@code true} removes the existing tags the file
+     *     does not have, which also needs the {@link RouteSecurity#REMOVE_ROLE}</li>
+     *     <li>{@code validate} - {@code true} checks the whole file first, as {@code /component/tags/validate} does,
+     *     and imports nothing if any tag is invalid.  The validation report is then returned with status 422</li>
+     *     <li>{@code importId} - optional id that progress is reported under, see {@code CsvToAlarmLogDelegate}</li>
+     * </ul>
+     * Returns a summary of the form
+     * <pre>
+     *     {
+     *         "tags": &lt;number&gt;,
+     *         "chunks": &lt;number&gt;,
+     *         "failed": &lt;number&gt;,
+     *         "durationMs": &lt;number&gt;,
+     *         "tagsPerSecond": &lt;number&gt;,
+     *         "unchanged": &lt;number&gt;,
+     *         "removed": &lt;number&gt;,
+     *         "fileUnchanged": &lt;boolean&gt;,
+     *         "errors": [{"row": &lt;number&gt;, "name": "...", "error": "..."}]
+     *     }
+     * </pre>
+     */
+    private static JsonObject importTags(RequestContext req, HttpServletResponse res) throws IOException {
+        HttpServletRequest request = req.getRequest();
+        String format = request.getParameter("format");
+        String basePath = Optional.ofNullable(request.getParameter("path")).orElse("[default]");
+        // optional, lets a CsvToAlarmLog delegate watching this id receive progress while the import runs
+        String importId = request.getParameter("importId");
+
+        boolean incremental = "incremental".equals(request.getParameter("mode"));
+        boolean validate = Boolean.parseBoolean(request.getParameter("validate"));
+        // the tags are written as the caller, so the provider's own permissions apply on top of the route's role
+        RouteSecurity.Caller caller = RouteSecurity.callerOf(req);
+        SecurityContext securityContext = caller.getSecurityContext();
+
+        // removing tags is destructive enough to need a role of its own
+        boolean removeMissing = incremental && Boolean.parseBoolean(request.getParameter("removeMissing"));
+        if (removeMissing && !caller.hasRole(RouteSecurity.REMOVE_ROLE)) {
+            res.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            JsonObject json = new JsonObject();
+            json.addProperty("error", "removeMissing requires the '" + RouteSecurity.REMOVE_ROLE + "' role");
+            return json;
+        }
+
+        try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            CollisionPolicy collisionPolicy = CollisionPolicy.valueOf(
+                Optional.ofNullable(request.getParameter("collisionPolicy")).orElse("Overwrite"));
+
+            if (!incremental && !validate) {
+                return RadGatewayHook.jythonExecutor.importTagFile(reader, format, basePath, collisionPolicy, importId,
+                    securityContext).toJson();
+            }
+
+            // validation and incremental imports both read the upload more than once
+            try (SpooledUpload upload = SpooledUpload.spool(reader)) {
+                if (validate) {
+                    try (Reader spooled = upload.openReader()) {
+                        ValidationReport report = RadGatewayHook.jythonExecutor.validateTagFile(spooled, format);
+                        if (!report.isValid()) {
+                            res.setStatus(SC_UNPROCESSABLE_ENTITY);
+                            return report.toJson();
+                        }
+                    }
+                }
+
+                if (incremental) {
+                    return RadGatewayHook.jythonExecutor.importTagFileChanges(upload, format, basePath, removeMissing,
+                        importId, securityContext).toJson();
+                }
+
+                try (Reader spooled = upload.openReader()) {
+                    return RadGatewayHook.jythonExecutor.importTagFile(spooled, format, basePath, collisionPolicy,
+                        importId, securityContext).toJson();
+                }
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            JsonObject json = new JsonObject();
+            json.addProperty("error", e.getMessage());
+            return json;
+        }
+    }
+
+    /**
+     * Checks an uploaded tag file against the tag schema without importing anything.  Takes the same {@code format}
+     * parameter as {@code /component/tags/import} and returns
+     * <pre>
+     *     {
+     *         "valid": &lt;boolean&gt;,
+     *         "tags": &lt;number&gt;,
+     *         "errorCount": &lt;number&gt;,
+     *         "durationMs": &lt;number&gt;,
+     *         "errors": [{"row": &lt;number&gt;, "column": "alarms/0/priority", "name": "...", "error": "..."}]
+     *     }
+     * </pre>
+     */
+    private static JsonObject validateTags(RequestContext req, HttpServletResponse res) throws IOException {
+        HttpServletRequest request = req.getRequest();
+
+        try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            return RadGatewayHook.jythonExecutor.validateTagFile(reader, request.getParameter("format")).toJson();
+        } catch (IllegalArgumentException | IOException e) {
+            res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            JsonObject json = new JsonObject();
+            json.addProperty("error", e.getMessage());
+            return json;
+        }
+    }
+
+    /**
+     * Streams the tag configuration below {@code path} (default {@code [default]}) straight to the response, as
+     * {@code format} {@code json} (the default) or {@code xml}.  With {@code gzip=true} the download is compressed.
+     * Errors found before anything was written are answered with status 400, later ones end the download early.
+     * The caller needs the {@link RouteSecurity#READ_ROLE}.
+     */
+    private static Object exportTags(RequestContext req, HttpServletResponse res) throws IOException {
+        HttpServletRequest request = req.getRequest();
+        String basePath = Optional.ofNullable(request.getParameter("path")).orElse("[default]");
+        String format = Optional.ofNullable(request.getParameter("format")).orElse("json");
+
+        // resolved before the response is started, so an unknown path can still be answered with status 400
+        TagExporter.Export export;
+        try {
+            export = RadGatewayHook.jythonExecutor.prepareExport(basePath);
+        } catch (IllegalArgumentException | IOException e) {
+            return badRequest(res, e.getMessage());
+        }
+        return streamTagDocument(request, res, format, "tags", export::writeTo);
+    }
+
+    /**
+     * Converts a tag file posted as the request body from {@code from} to {@code to}, both one of the import formats,
+     * writing the result as it is parsed.  Takes {@code gzip} like {@code /component/tags/export}, and needs the same
+     * role.
+     */
+    private static Object convertTags(RequestContext req, HttpServletResponse res) throws IOException {
+        HttpServletRequest request = req.getRequest();
+        String from = request.getParameter("from");
+        String to = Optional.ofNullable(request.getParameter("to")).orElse("json");
+
+        try {
+            TagImportEngine.parserFor(from);
+        } catch (IllegalArgumentException e) {
+            return badRequest(res, e.getMessage());
+        }
+
+        try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            return streamTagDocument(request, res, to, "converted-tags",
+                writer -> TagExporter.convert(reader, from, writer));
+        }
+    }
+
+    /**
+     * Streams the gateway's log events of the last {@code minutes} (default 15) at or above {@code level} (default
+     * {@code INFO}) as text, at most {@code limit} of them (default 1000), in the format of the log export file, see
+     * {@link org.fakester.gateway.logs.LogEventFormat}.  With {@code gzip=true} the download is compressed.  The
+     * caller needs the {@link RouteSecurity#READ_ROLE}.
+     */
+    private static Object exportLogs(RequestContext req, HttpServletResponse res) throws IOException {
+        HttpServletRequest request = req.getRequest();
+        boolean gzip = Boolean.parseBoolean(request.getParameter("gzip"));
+
+        int minutes;
+        int limit;
+        Level level;
+        try {
+            minutes = Integer.parseInt(Optional.ofNullable(request.getParameter("minutes")).orElse("15"));
+            limit = Math.min(LOG_EXPORT_MAX_EVENTS,
+                Integer.parseInt(Optional.ofNullable(request.getParameter("limit")).orElse("1000")));
+            level = Level.valueOf(Optional.ofNullable(request.getParameter("level")).orElse("INFO").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return badRequest(res, e.getMessage());
+        }
+
+        res.setContentType(gzip ? "application/gzip" : "text/plain");
+        res.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        res.setHeader("Content-Disposition", "attachment; filename=\"system-logs.log" + (gzip ? ".gz" : "") + "\"");
+
+        OutputStream out = res.getOutputStream();
+        if (gzip) {
+            out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), GZIP_BUFFER_SIZE)) {
+            RadGatewayHook.logFileRetriever.writeEvents(LogFileRetriever.queryConfig(minutes, limit, level), writer);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the log events logged since {@code cursor}, the {@code nextCursor} of the last call, or without one the
+     * newest {@code limit} (default 200) events, see {@link LogTail#read(long, int, Level)}.  Only events at or above
+     * {@code level} (default {@code INFO}) are returned.  The gateway log is only queried for events newer than the
+     * ones already kept, however many clients are polling.  The caller needs the {@link RouteSecurity#READ_ROLE}.
+     */
+    private static JsonObject tailLogs(RequestContext req, HttpServletResponse res) {
+        HttpServletRequest request = req.getRequest();
+
+        try {
+            long cursor = Long.parseLong(Optional.ofNullable(request.getParameter("cursor")).orElse("-1"));
+            int limit = Math.min(LogTail.CAPACITY,
+                Integer.parseInt(Optional.ofNullable(request.getParameter("limit")).orElse("200")));
+            Level level = LogTail.parseLevel(Optional.ofNullable(request.getParameter("level")).orElse("INFO"));
+
+            LogTail tail = RadGatewayHook.logFileRetriever.getTail();
+            tail.refresh();
+            return tail.read(cursor, Math.max(1, limit), level);
+        } catch (IllegalArgumentException e) {
+            res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            JsonObject json = new JsonObject();
+            json.addProperty("error", e.getMessage());
+            return json;
+        }
+    }
+
+    /**
+     * Searches the indexed log events, see {@link org.fakester.gateway.logs.LogIndex#search}.  Query parameters:
+     * <ul>
+     *     <li>{@code q} - words that must all appear in the message, case does not matter</li>
+     *     <li>{@code logger} - only events of this logger and the loggers below it</li>
+     *     <li>{@code level} - only events at or above this level, defaults to {@code TRACE}</li>
+     *     <li>{@code from}, {@code to} - time range in epoch millis, defaults to everything indexed</li>
+     *     <li>{@code limit} - number of matches returned, newest first, defaults to 50</li>
+     * </ul>
+     * Returns the matches together with per-logger and per-level counts of all matches.  The caller needs the
+     * {@link RouteSecurity#READ_ROLE}.
+     */
+    private static JsonObject searchLogs(RequestContext req, HttpServletResponse res) {
+        HttpServletRequest request = req.getRequest();
+
+        try {
+            Level level = LogTail.parseLevel(Optional.ofNullable(request.getParameter("level")).orElse("TRACE"));
+            long from = Long.parseLong(Optional.ofNullable(request.getParameter("from")).orElse("0"));
+            long to = Optional.ofNullable(request.getParameter("to")).map(Long::parseLong).orElse(Long.MAX_VALUE);
+            int limit = Math.max(0, Math.min(LOG_SEARCH_MAX_MATCHES,
+                Integer.parseInt(Optional.ofNullable(request.getParameter("limit")).orElse("50"))));
+
+            LogTail tail = RadGatewayHook.logFileRetriever.getTail();
+            tail.refresh();
+            return tail.getIndex().search(request.getParameter("q"), request.getParameter("logger"), level, from, to,
+                limit);
+        } catch (IllegalArgumentException e) {
+            res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            JsonObject json = new JsonObject();
+            json.addProperty("error", e.getMessage());
+            return json;
+        }
+    }
+
+    /**
+     * Returns the number of log events per time bucket of the loggers below {@code logger} (default all) at or above
+     * {@code level} (default {@code INFO}), for the last {@code buckets} buckets (default 60), see
+     * {@link org.fakester.gateway.logs.LogRates#toJson}.  Only the {@code top} (default 10) busiest series are
+     * returned, as plain arrays of counts a sparkline can draw directly.  {@code truncated} is
+     * {@link LogTail#getTruncated()}, the counts miss events if it is above zero.  The caller needs the
+     * {@link RouteSecurity#READ_ROLE}.
+     */
+    private static JsonObject fetchLogRates(RequestContext req, HttpServletResponse res) {
+        HttpServletRequest request = req.getRequest();
+
+        try {
+            Level level = LogTail.parseLevel(Optional.ofNullable(request.getParameter("level")).orElse("INFO"));
+            int buckets = Integer.parseInt(Optional.ofNullable(request.getParameter("buckets")).orElse("60"));
+            int top = Integer.parseInt(Optional.ofNullable(request.getParameter("top")).orElse("10"));
+
+            LogTail tail = RadGatewayHook.logFileRetriever.getTail();
+            tail.refresh();
+            JsonObject json = tail.getRates().toJson(request.getParameter("logger"), level, buckets, Math.max(0, top));
+            // counts can only cover the events the tail managed to read
+            json.addProperty("truncated", tail.getTruncated());
+            return json;
+        } catch (IllegalArgumentException e) {
+            res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            JsonObject json = new JsonObject();
+            json.addProperty("error", e.getMessage());
+            return json;
+        }
+    }
+
+    private interface TagDocumentSource {
+        void writeTo(TagDocumentWriter writer) throws IOException;
+    }
+
+    /**
+     * Writes the document of {@code source} to the response.  Anything that can be answered with status 400 has to be
+     * checked before, once the response stream is opened a failure can only end the download early.
+     */
+    private static Object streamTagDocument(HttpServletRequest request, HttpServletResponse res, String format,
+                                            String fileName, TagDocumentSource source) throws IOException {
+        boolean gzip = Boolean.parseBoolean(request.getParameter("gzip"));
+        String extension = format.toLowerCase() + (gzip ? ".gz" : "");
+
+        if (!TagExporter.isSupportedFormat(format)) {
+            return badRequest(res, "Unsupported export format '" + format + "'");
+        }
+
+        res.setContentType(gzip ? "application/gzip" : "xml".equalsIgnoreCase(format) ? "application/xml" : RouteGroup.TYPE_JSON);
+        res.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        res.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "." + extension + "\"");
+
+        OutputStream out = res.getOutputStream();
+        if (gzip) {
+            out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), GZIP_BUFFER_SIZE)) {
+            source.writeTo(TagExporter.writerFor(format, writer));
+        }
+        return null;
+    }
 
+    private static String badRequest(HttpServletResponse res, String message) {
+        res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        res.setContentType(RouteGroup.TYPE_JSON);
         JsonObject json = new JsonObject();
-        json.addProperty("tagCount", tagCount.get());
-        return json;
+        json.addProperty("error", message);
+        return json.toString();
     }
 }
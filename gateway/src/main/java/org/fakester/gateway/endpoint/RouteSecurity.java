@@ -0,0 +1,197 @@
+package org.fakester.gateway.endpoint;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
+
+import org.fakester.gateway.metrics.ModuleMetrics;
+import org.fakester.gateway.metrics.RateMeter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.tags.model.SecurityContext;
+import com.inductiveautomation.ignition.common.user.BasicAuthenticatedUser;
+import com.inductiveautomation.ignition.common.user.User;
+import com.inductiveautomation.ignition.gateway.authentication.impl.BasicAuthChallenge;
+import com.inductiveautomation.ignition.gateway.dataroutes.RequestContext;
+import com.inductiveautomation.ignition.gateway.dataroutes.RouteGroup;
+import com.inductiveautomation.ignition.gateway.dataroutes.RouteHandler;
+import com.inductiveautomation.ignition.gateway.user.UserSourceManager;
+import com.inductiveautomation.ignition.gateway.user.UserSourceProfile;
+
+/**
+ * Access control of the data routes that read tag values, tag configuration or the gateway log, or change the tag
+ * configuration.
+ *
+ * Callers authenticate with HTTP Basic against the user source {@link #USER_SOURCE} and need the role the route
+ * requires.  Missing or wrong credentials are answered with status 401 and a Basic challenge, so a browser asks for
+ * them, a missing role with 403.  The check runs in the route's handler rather than as the route's access control,
+ * which could only answer 403 without a challenge.  A successful login is remembered for {@link #AUTH_CACHE_TTL_MS}
+ * so polling clients do not hit the user source on every request.  Handlers get the caller, and the security context
+ * the tag system should see, from {@link #callerOf(RequestContext)}.
+ */
+public final class RouteSecurity {
+    // roles a route may require, matched without regard to case
+    public static final String READ_ROLE = System.getProperty("RadComponents.Routes.ReadRole", "Administrator");
+    public static final String IMPORT_ROLE = System.getProperty("RadComponents.Routes.ImportRole", "Administrator");
+    public static final String REMOVE_ROLE = System.getProperty("RadComponents.Routes.RemoveRole", "Administrator");
+
+    private static final String USER_SOURCE = System.getProperty("RadComponents.Routes.UserSource", "default");
+    private static final long AUTH_CACHE_TTL_MS = Long.getLong("RadComponents.Routes.AuthCacheTtl", 60000L);
+    private static final int AUTH_CACHE_SIZE = Integer.getInteger("RadComponents.Routes.AuthCacheSize", 1000);
+    private static final String CHALLENGE = "Basic realm=\"RadComponents\", charset=\"UTF-8\"";
+    private static final String CALLER_ATTRIBUTE = RouteSecurity.class.getName() + ".caller";
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteSecurity.class);
+    private static final RateMeter DENIED = ModuleMetrics.rate("route_requests_denied",
+        "Data route requests turned away for missing credentials or roles");
+    // keyed by a hash of the Authorization header, never by the password itself
+    private static final ConcurrentMap<String, Caller> AUTHENTICATED = new ConcurrentHashMap<>();
+
+    private RouteSecurity() {
+        // static only
+    }
+
+    /**
+     * The authenticated user behind a request.
+     */
+    static final class Caller {
+        private final String username;
+        private final Set<String> roles;
+        private final SecurityContext securityContext;
+        private final long expiresAt;
+
+        private Caller(String username, Collection<String> roles) {
+            this.username = username;
+            this.roles = roles.stream().map(role -> role.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+            this.securityContext = SecurityContext.fromAuthenticatedUser(
+                new BasicAuthenticatedUser(USER_SOURCE, username, username, roles));
+            this.expiresAt = System.currentTimeMillis() + AUTH_CACHE_TTL_MS;
+        }
+
+        String getUsername() {
+            return username;
+        }
+
+        boolean hasRole(String role) {
+            return roles.contains(role.toLowerCase(Locale.ROOT));
+        }
+
+        /**
+         * The security context tag operations of this caller run with.
+         */
+        SecurityContext getSecurityContext() {
+            return securityContext;
+        }
+    }
+
+    /**
+     * Wraps {@code handler} so it only runs for authenticated callers that have {@code role}.
+     */
+    static RouteHandler requireRole(String role, RouteHandler handler) {
+        return (req, res) -> {
+            Caller caller = authenticate(req);
+            if (caller == null) {
+                res.setHeader("WWW-Authenticate", CHALLENGE);
+                return deny(res, HttpServletResponse.SC_UNAUTHORIZED, "Authentication required");
+            }
+            if (!caller.hasRole(role)) {
+                return deny(res, HttpServletResponse.SC_FORBIDDEN,
+                    "User '" + caller.username + "' does not have the '" + role + "' role");
+            }
+
+            req.getRequest().setAttribute(CALLER_ATTRIBUTE, caller);
+            return handler.handle(req, res);
+        };
+    }
+
+    /**
+     * Returns the caller let through by {@link #requireRole}.
+     */
+    static Caller callerOf(RequestContext req) {
+        Caller caller = (Caller) req.getRequest().getAttribute(CALLER_ATTRIBUTE);
+        if (caller == null) {
+            throw new IllegalStateException("Route is not guarded by RouteSecurity.requireRole");
+        }
+        return caller;
+    }
+
+    private static Caller authenticate(RequestContext req) {
+        String header = req.getRequest().getHeader("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return null;
+        }
+
+        String key = hash(header);
+        Caller cached = AUTHENTICATED.get(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int colon = credentials.indexOf(':');
+        if (colon <= 0) {
+            return null;
+        }
+        String username = credentials.substring(0, colon);
+        String password = credentials.substring(colon + 1);
+
+        UserSourceManager userSources = req.getGatewayContext().getUserSourceManager();
+        UserSourceProfile profile = userSources.getProfile(USER_SOURCE);
+        if (profile == null) {
+            logger.warn("User source '{}' for data routes was not found", USER_SOURCE);
+            return null;
+        }
+
+        User user;
+        try {
+            user = profile.authenticate(new BasicAuthChallenge(username, password));
+        } catch (Exception e) {
+            logger.warn("Authenticating '{}' against user source '{}' failed", username, USER_SOURCE, e);
+            return null;
+        }
+        if (user == null) {
+            logger.info("Rejected credentials of '{}' for a data route", username);
+            return null;
+        }
+
+        Caller caller = new Caller(username, user.getRoles());
+        if (AUTHENTICATED.size() >= AUTH_CACHE_SIZE) {
+            AUTHENTICATED.clear();
+        }
+        AUTHENTICATED.put(key, caller);
+        return caller;
+    }
+
+    private static String deny(HttpServletResponse res, int status, String message) {
+        DENIED.mark();
+        res.setStatus(status);
+        res.setContentType(RouteGroup.TYPE_JSON);
+        JsonObject json = new JsonObject();
+        json.addProperty("error", message);
+        return json.toString();
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
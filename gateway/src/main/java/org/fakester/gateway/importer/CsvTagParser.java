@@ -0,0 +1,120 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Parses the flattened CSV form of Ignition's JSON tag export, one row per tag.
+ *
+ * Column headers are JSON property paths such as {@code tags/name}, {@code alarms/0/priority} or
+ * {@code writePermissions/type}.  Rows without a name are skipped.
+ */
+public class CsvTagParser implements TagRecordParser {
+    private static final String TAGS_PREFIX = "tags/";
+    // alarms/<index>/<property>
+    private static final Pattern ALARM_HEADER = Pattern.compile("alarms/(\\d{1,4})/(.+)");
+
+    @Override
+    public void parse(Reader reader, TagRecordSink sink) throws IOException {
+        CsvLineReader lines = new CsvLineReader(reader, ',');
+
+        List<String> headerRow = lines.readRow();
+        if (headerRow == null) {
+            return;
+        }
+
+        List<String> headers = new ArrayList<>(headerRow.size());
+        for (String header : headerRow) {
+            String cleanHeader = header.trim();
+            headers.add(cleanHeader.startsWith(TAGS_PREFIX) ? cleanHeader.substring(TAGS_PREFIX.length()) : cleanHeader);
+        }
+
+        List<String> values;
+        while ((values = lines.readRow()) != null) {
+            JsonObject tag = toTag(headers, values);
+            if (tag.has("name")) {
+                sink.accept(new TagRecord(List.of(), tag, lines.getRowStartLine()));
+            }
+        }
+    }
+
+    private static JsonObject toTag(List<String> headers, List<String> values) {
+        JsonObject tag = new JsonObject();
+        JsonArray alarms = new JsonArray();
+
+        for (int i = 0; i < headers.size() && i < values.size(); i++) {
+            String value = values.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+
+            String header = headers.get(i);
+
+            Matcher alarmHeader = ALARM_HEADER.matcher(header);
+            if (alarmHeader.matches()) {
+                alarmAt(alarms, Integer.parseInt(alarmHeader.group(1))).add(alarmHeader.group(2), ImportValues.toJson(value));
+                continue;
+            }
+
+            if (header.startsWith("writePermissions/") || header.startsWith("readPermissions/")) {
+                String[] parts = header.split("/", 2);
+                if (!tag.has(parts[0])) {
+                    JsonObject permissions = new JsonObject();
+                    permissions.add("securityLevels", new JsonArray());
+                    tag.add(parts[0], permissions);
+                }
+                if ("type".equals(parts[1])) {
+                    tag.getAsJsonObject(parts[0]).addProperty("type", value);
+                }
+                continue;
+            }
+
+            tag.add(header, ImportValues.toJson(value));
+        }
+
+        if (alarms.size() > 0) {
+            for (JsonElement alarm : alarms) {
+                normalizeAlarm(alarm.getAsJsonObject());
+            }
+            tag.add("alarms", alarms);
+        }
+
+        applyTagDefaults(tag);
+        return tag;
+    }
+
+    private static JsonObject alarmAt(JsonArray alarms, int index) {
+        while (alarms.size() <= index) {
+            alarms.add(new JsonObject());
+        }
+        return alarms.get(index).getAsJsonObject();
+    }
+
+    static void normalizeAlarm(JsonObject alarm) {
+        if (!alarm.has("displayPath")) {
+            alarm.addProperty("displayPath", "");
+        }
+
+        JsonElement priority = alarm.get("priority");
+        if (priority != null && priority.isJsonPrimitive() && "3".equals(priority.getAsString())) {
+            alarm.addProperty("priority", "High");
+        }
+    }
+
+    static void applyTagDefaults(JsonObject tag) {
+        if (!tag.has("tagType")) {
+            tag.addProperty("tagType", "AtomicTag");
+        }
+        if (!tag.has("valueSource") && "AtomicTag".equals(tag.get("tagType").getAsString())) {
+            tag.addProperty("valueSource", tag.has("opcItemPath") ? "opc" : "memory");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the hash of the last file imported into each target path, in a properties file that survives gateway
+ * restarts.  A file that could not be written is only logged, the next import then compares its tags again.
+ */
+final class ImportHashStore {
+    private static final Logger logger = LoggerFactory.getLogger(ImportHashStore.class);
+
+    private final Path file;
+    private Properties hashes = null;
+
+    ImportHashStore(Path file) {
+        this.file = file;
+    }
+
+    synchronized String get(String target) {
+        return load().getProperty(target);
+    }
+
+    synchronized void put(String target, String hash) {
+        load().setProperty(target, hash);
+        store();
+    }
+
+    synchronized void remove(String target) {
+        if (load().remove(target) != null) {
+            store();
+        }
+    }
+
+    private Properties load() {
+        if (hashes == null) {
+            hashes = new Properties();
+            if (Files.isRegularFile(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    hashes.load(in);
+                } catch (IOException e) {
+                    logger.warn("Could not read import hashes from '{}'", file, e);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private void store() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                hashes.store(out, "Hashes of the last file imported into each tag path");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write import hashes to '{}'", file, e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.fakester.gateway.importer;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Follows a running import.  Chunks of different top-level folders are imported in parallel, so
+ * {@link #chunkImported} may be called from several threads at once.
+ */
+public interface ImportProgressListener {
+    ImportProgressListener NONE = new ImportProgressListener() {
+        @Override
+        public void chunkImported(JsonObject progress) {
+        }
+
+        @Override
+        public void importFinished(JsonObject summary) {
+        }
+    };
+
+    /**
+     * Called after each chunk with the running totals from {@link ImportSummary#toProgressJson}.
+     */
+    void chunkImported(JsonObject progress);
+
+    /**
+     * Called once with the final {@link ImportSummary#toJson} summary, which has an {@code error} property if the
+     * file could not be read to the end.
+     */
+    void importFinished(JsonObject summary);
+}
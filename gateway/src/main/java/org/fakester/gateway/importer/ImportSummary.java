@@ -0,0 +1,115 @@
+package org.fakester.gateway.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.model.values.QualityCode;
+
+/**
+ * Running totals of one import, safe to update from several chunk imports at once.
+ */
+public class ImportSummary {
+    // only the first failures are kept, the count still covers all of them
+    private static final int MAX_REPORTED_ERRORS = Integer.getInteger("RadComponents.Import.MaxReportedErrors", 100);
+
+    private int tagCount = 0;
+    private int chunkCount = 0;
+    private int failedCount = 0;
+    private int unchangedCount = 0;
+    private int removedCount = 0;
+    private boolean fileUnchanged = false;
+    private final List<JsonObject> errors = new ArrayList<>();
+    private final long startedAt = System.currentTimeMillis();
+
+    synchronized void addChunk(int tags) {
+        chunkCount++;
+        tagCount += tags;
+    }
+
+    synchronized void addUnchanged() {
+        unchangedCount++;
+    }
+
+    synchronized void addRemoved(int tags) {
+        removedCount += tags;
+    }
+
+    synchronized void markFileUnchanged() {
+        fileUnchanged = true;
+    }
+
+    synchronized JsonObject addFailure(TagRecord record, QualityCode quality) {
+        return addFailure(record.getRow(), record.getName(), quality == null ? "Unknown" : quality.toString());
+    }
+
+    /**
+     * Counts a failed tag and returns its description, which is only kept here for the first failures.
+     */
+    synchronized JsonObject addFailure(int row, String name, String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("row", row);
+        error.addProperty("name", name);
+        error.addProperty("error", message);
+
+        failedCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+        return error;
+    }
+
+    public synchronized int getTagCount() {
+        return tagCount;
+    }
+
+    public synchronized int getFailedCount() {
+        return failedCount;
+    }
+
+    public synchronized int getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    public synchronized int getRemovedCount() {
+        return removedCount;
+    }
+
+    public synchronized JsonObject toJson() {
+        JsonObject json = totals();
+
+        JsonArray errorArray = new JsonArray();
+        errors.forEach(errorArray::add);
+        json.add("errors", errorArray);
+        return json;
+    }
+
+    /**
+     * The totals so far together with the failures of the chunk that just finished, all of them rather than only the
+     * first ones.
+     */
+    public synchronized JsonObject toProgressJson(List<JsonObject> chunkFailures) {
+        JsonObject json = totals();
+
+        JsonArray failureArray = new JsonArray();
+        chunkFailures.forEach(failureArray::add);
+        json.add("failures", failureArray);
+        return json;
+    }
+
+    private JsonObject totals() {
+        long durationMs = System.currentTimeMillis() - startedAt;
+
+        JsonObject json = new JsonObject();
+        json.addProperty("tags", tagCount);
+        json.addProperty("chunks", chunkCount);
+        json.addProperty("failed", failedCount);
+        json.addProperty("durationMs", durationMs);
+        json.addProperty("tagsPerSecond", durationMs == 0 ? 0 : tagCount * 1000L / durationMs);
+        json.addProperty("unchanged", unchangedCount);
+        json.addProperty("removed", removedCount);
+        json.addProperty("fileUnchanged", fileUnchanged);
+        return json;
+    }
+}
@@ -0,0 +1,48 @@
+package org.fakester.gateway.importer;
+
+import java.math.BigDecimal;
+import java.util.regex.Pattern;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonParseException;
+import com.inductiveautomation.ignition.common.gson.JsonParser;
+import com.inductiveautomation.ignition.common.gson.JsonPrimitive;
+
+/**
+ * Converts the text of a CSV cell or XML property into a JSON value, the way the browser-side converter used to:
+ * booleans and numbers are typed, embedded JSON is parsed and anything else is kept as a string.
+ */
+final class ImportValues {
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
+
+    private ImportValues() {
+        // private constructor
+    }
+
+    static JsonElement toJson(String text) {
+        String value = text.trim();
+
+        if ("TRUE".equalsIgnoreCase(value) || "FALSE".equalsIgnoreCase(value)) {
+            return new JsonPrimitive(Boolean.parseBoolean(value.toLowerCase()));
+        }
+
+        if (NUMBER.matcher(value).matches()) {
+            BigDecimal number = new BigDecimal(value);
+            try {
+                return new JsonPrimitive(number.longValueExact());
+            } catch (ArithmeticException e) {
+                return new JsonPrimitive(number.doubleValue());
+            }
+        }
+
+        if (value.startsWith("{") || value.startsWith("[") || value.startsWith("\"")) {
+            try {
+                return new JsonParser().parse(value);
+            } catch (JsonParseException e) {
+                // not actually JSON, keep the text
+            }
+        }
+
+        return new JsonPrimitive(value);
+    }
+}
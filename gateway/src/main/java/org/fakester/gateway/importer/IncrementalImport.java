@@ -0,0 +1,265 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.gson.JsonPrimitive;
+import com.inductiveautomation.ignition.common.model.values.QualityCode;
+import com.inductiveautomation.ignition.common.tags.model.SecurityContext;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+
+/**
+ * Compares an import file against the configuration already below the target path, so that only new and changed
+ * tags are written.
+ *
+ * Tag definitions are compared by a hash of their canonical JSON: object members sorted by name, numbers written
+ * without trailing zeros and child tags left out, since those are compared on their own.  A definition that spells
+ * out a default the provider leaves out of its export hashes differently and is simply imported again.
+ */
+final class IncrementalImport {
+    private static final String SEPARATOR = "/";
+
+    private final Map<String, Long> existingHashes;
+    private final Set<String> seen = new HashSet<>();
+
+    private IncrementalImport(Map<String, Long> existingHashes) {
+        this.existingHashes = existingHashes;
+    }
+
+    /**
+     * Exports the configuration below {@code basePath} and hashes every tag in it.  The configuration is walked a
+     * folder at a time like {@link TagExporter} does, so only a batch of definitions and the hashes are held, never
+     * the whole export.
+     */
+    static IncrementalImport load(TagProvider provider, TagPath basePath) throws IOException {
+        Map<String, Long> hashes = new HashMap<>();
+        // a folder is exported as itself, a provider only as the container of its tags
+        boolean exportedAsFolder = basePath.getItemName() != null && !basePath.getItemName().isEmpty();
+        new TagExporter.Export(provider, basePath).writeTo(new HashingWriter(hashes, exportedAsFolder));
+        return new IncrementalImport(hashes);
+    }
+
+    /**
+     * Returns a sink that passes on only the records that are new or differ from the existing configuration.
+     */
+    TagRecordParser.TagRecordSink filter(TagRecordParser.TagRecordSink sink, ImportSummary summary) {
+        return record -> {
+            String key = keyOf(record.getParentPath(), record.getName());
+            seen.add(key);
+
+            Long existing = existingHashes.get(key);
+            if (existing != null && existing == hash(record.getTag())) {
+                summary.addUnchanged();
+            } else {
+                sink.accept(record);
+            }
+        };
+    }
+
+    /**
+     * Removes the existing tags that were not in the imported file, with {@code securityContext} unless it is null.
+     * Tags inside a removed folder go with it.
+     */
+    void removeMissing(TagProvider provider, TagPath basePath, ImportSummary summary, SecurityContext securityContext)
+        throws IOException {
+        Set<String> missing = new HashSet<>(existingHashes.keySet());
+        missing.removeAll(seen);
+
+        List<TagPath> removals = new ArrayList<>();
+        for (String key : missing) {
+            String[] parts = key.split(SEPARATOR);
+            if (!hasMissingAncestor(parts, missing)) {
+                removals.add(TagImportEngine.resolve(basePath, List.of(parts)));
+            }
+        }
+        if (removals.isEmpty()) {
+            return;
+        }
+
+        List<QualityCode> results;
+        try {
+            CompletableFuture<List<QualityCode>> removed = securityContext == null
+                ? provider.removeTagConfigsAsync(removals)
+                : provider.removeTagConfigsAsync(removals, securityContext);
+            results = removed.get(TagImportEngine.CHUNK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Removing " + removals.size() + " tags below " + basePath + " failed", e);
+        }
+
+        int removed = 0;
+        for (int i = 0; i < results.size() && i < removals.size(); i++) {
+            if (results.get(i).isGood()) {
+                removed++;
+            } else {
+                summary.addFailure(0, removals.get(i).toStringPartial(), "Removing failed: " + results.get(i));
+            }
+        }
+        summary.addRemoved(removed);
+    }
+
+    /**
+     * Takes the hash of every exported tag and folder in place of writing it, keyed by its path below the base path.
+     */
+    private static final class HashingWriter implements TagDocumentWriter {
+        private final Map<String, Long> hashes;
+        private final List<String> openFolders = new ArrayList<>();
+        // the base folder itself is not part of the compared configuration
+        private boolean skipFirstFolder;
+
+        private HashingWriter(Map<String, Long> hashes, boolean skipFirstFolder) {
+            this.hashes = hashes;
+            this.skipFirstFolder = skipFirstFolder;
+        }
+
+        @Override
+        public void beginFolder(JsonObject folder) {
+            if (skipFirstFolder) {
+                skipFirstFolder = false;
+                openFolders.add(null);
+                return;
+            }
+            String name = folder.get("name").getAsString();
+            hashes.put(keyOf(parentPath(), name), hash(folder));
+            openFolders.add(name);
+        }
+
+        @Override
+        public void endFolder() {
+            openFolders.remove(openFolders.size() - 1);
+        }
+
+        @Override
+        public void writeTag(JsonObject tag) {
+            JsonElement name = tag.get("name");
+            if (name != null && name.isJsonPrimitive()) {
+                hashes.put(keyOf(parentPath(), name.getAsString()), hash(tag));
+            }
+        }
+
+        @Override
+        public void finish() {
+            // nothing to flush
+        }
+
+        private List<String> parentPath() {
+            List<String> path = new ArrayList<>(openFolders.size());
+            for (String folder : openFolders) {
+                if (folder != null) {
+                    path.add(folder);
+                }
+            }
+            return path;
+        }
+    }
+
+    private static boolean hasMissingAncestor(String[] parts, Set<String> missing) {
+        StringBuilder ancestor = new StringBuilder();
+        for (int i = 0; i < parts.length - 1; i++) {
+            if (i > 0) {
+                ancestor.append(SEPARATOR);
+            }
+            ancestor.append(parts[i]);
+            if (missing.contains(ancestor.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String keyOf(List<String> parentPath, String name) {
+        if (parentPath.isEmpty()) {
+            return name;
+        }
+        return String.join(SEPARATOR, parentPath) + SEPARATOR + name;
+    }
+
+    /**
+     * Returns the first 64 bits of the SHA-256 of the tag's canonical JSON.
+     */
+    static long hash(JsonObject tag) {
+        StringBuilder canonical = new StringBuilder();
+        appendCanonical(tag, canonical, true);
+
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private static void appendCanonical(JsonElement element, StringBuilder out, boolean tagRoot) {
+        if (element == null || element.isJsonNull()) {
+            out.append("null");
+        } else if (element.isJsonObject()) {
+            Map<String, JsonElement> members = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                if (!(tagRoot && "tags".equals(member.getKey()) && isFolder(element.getAsJsonObject()))) {
+                    members.put(member.getKey(), member.getValue());
+                }
+            }
+            out.append('{');
+            for (Map.Entry<String, JsonElement> member : members.entrySet()) {
+                out.append(new JsonPrimitive(member.getKey())).append(':');
+                appendCanonical(member.getValue(), out, false);
+                out.append(',');
+            }
+            out.append('}');
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.append('[');
+            for (JsonElement item : array) {
+                appendCanonical(item, out, false);
+                out.append(',');
+            }
+            out.append(']');
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isNumber()) {
+                out.append(canonicalNumber(primitive.getAsString()));
+            } else {
+                out.append(primitive);
+            }
+        }
+    }
+
+    private static String canonicalNumber(String number) {
+        try {
+            return new BigDecimal(number).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return number;
+        }
+    }
+
+    private static boolean isFolder(JsonObject tag) {
+        JsonElement tagType = tag.get("tagType");
+        return tagType != null && tagType.isJsonPrimitive() && "Folder".equals(tagType.getAsString());
+    }
+}
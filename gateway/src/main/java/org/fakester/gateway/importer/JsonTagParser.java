@@ -0,0 +1,93 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.gson.JsonParseException;
+import com.inductiveautomation.ignition.common.gson.JsonParser;
+import com.inductiveautomation.ignition.common.gson.stream.JsonReader;
+import com.inductiveautomation.ignition.common.gson.stream.JsonToken;
+
+/**
+ * Parses Ignition's JSON tag export format with a streaming reader.
+ *
+ * The document may be a bare array of tags, an object holding a {@code tags} array, or an exported folder.  Folders
+ * are passed on as soon as their {@code tags} array starts, so properties listed after it are not applied.  Members
+ * of non-folder tags, such as UDT instances, stay embedded in their parent's definition.
+ */
+public class JsonTagParser implements TagRecordParser {
+    private static final JsonParser PARSER = new JsonParser();
+
+    @Override
+    public void parse(Reader reader, TagRecordSink sink) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        Counter counter = new Counter();
+
+        try {
+            if (json.peek() == JsonToken.BEGIN_ARRAY) {
+                parseTagArray(json, List.of(), sink, counter);
+            } else {
+                parseTag(json, List.of(), sink, counter, true);
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Invalid tag JSON at " + json.getPath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void parseTagArray(JsonReader json, List<String> parentPath, TagRecordSink sink, Counter counter)
+        throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            parseTag(json, parentPath, sink, counter, false);
+        }
+        json.endArray();
+    }
+
+    /**
+     * Reads one tag object.  The document root is only treated as a tag if it is a named folder, otherwise it is just
+     * the container of the {@code tags} array.
+     */
+    private static void parseTag(JsonReader json, List<String> parentPath, TagRecordSink sink, Counter counter,
+                                 boolean root) throws IOException {
+        int row = root ? 0 : ++counter.count;
+        JsonObject tag = new JsonObject();
+        boolean emitted = false;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+
+            if ("tags".equals(name) && json.peek() == JsonToken.BEGIN_ARRAY && isFolder(tag)) {
+                if (!emitted) {
+                    CsvTagParser.applyTagDefaults(tag);
+                    sink.accept(new TagRecord(parentPath, tag, root ? ++counter.count : row));
+                    emitted = true;
+                }
+                parseTagArray(json, XmlTagParser.childPath(parentPath, tag), sink, counter);
+            } else if ("tags".equals(name) && root && json.peek() == JsonToken.BEGIN_ARRAY) {
+                parseTagArray(json, parentPath, sink, counter);
+                emitted = true;
+            } else {
+                JsonElement value = PARSER.parse(json);
+                tag.add(name, value);
+            }
+        }
+        json.endObject();
+
+        if (!emitted && (!root || tag.has("name"))) {
+            CsvTagParser.applyTagDefaults(tag);
+            sink.accept(new TagRecord(parentPath, tag, root ? ++counter.count : row));
+        }
+    }
+
+    private static boolean isFolder(JsonObject tag) {
+        return tag.has("name") && tag.has("tagType") && "Folder".equals(tag.get("tagType").getAsString());
+    }
+
+    private static final class Counter {
+        private int count = 0;
+    }
+}
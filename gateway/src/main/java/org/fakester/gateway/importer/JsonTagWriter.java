@@ -0,0 +1,68 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import com.inductiveautomation.ignition.common.gson.Gson;
+import com.inductiveautomation.ignition.common.gson.GsonBuilder;
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.gson.stream.JsonWriter;
+
+/**
+ * Writes Ignition's JSON tag format, as read by {@link JsonTagParser}: an object holding a {@code tags} array, with
+ * each folder's children in its own {@code tags} array.
+ */
+public class JsonTagWriter implements TagDocumentWriter {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final JsonWriter json;
+
+    public JsonTagWriter(Writer writer) throws IOException {
+        this.json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("tags").beginArray();
+    }
+
+    @Override
+    public void beginFolder(JsonObject folder) throws IOException {
+        json.beginObject();
+        // name and tagType go first, readers decide how to treat the tags array by them
+        writeMember("name", folder.get("name"));
+        writeMember("tagType", folder.get("tagType"));
+        for (Map.Entry<String, JsonElement> member : folder.entrySet()) {
+            String name = member.getKey();
+            if (!"name".equals(name) && !"tagType".equals(name) && !"tags".equals(name)) {
+                writeMember(name, member.getValue());
+            }
+        }
+        json.name("tags").beginArray();
+    }
+
+    @Override
+    public void endFolder() throws IOException {
+        json.endArray();
+        json.endObject();
+    }
+
+    @Override
+    public void writeTag(JsonObject tag) throws IOException {
+        GSON.toJson(tag, json);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private void writeMember(String name, JsonElement value) throws IOException {
+        if (value != null) {
+            json.name(name);
+            GSON.toJson(value, json);
+        }
+    }
+}
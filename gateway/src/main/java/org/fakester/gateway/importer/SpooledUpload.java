@@ -0,0 +1,74 @@
+package org.fakester.gateway.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * An uploaded import file copied to a temporary file, for imports that have to read it more than once or need its
+ * hash before reading it.  Closing the upload deletes the copy.
+ */
+public final class SpooledUpload implements Closeable {
+    private final Path file;
+    private final String hash;
+
+    private SpooledUpload(Path file, String hash) {
+        this.file = file;
+        this.hash = hash;
+    }
+
+    /**
+     * Copies {@code reader} to a temporary file as UTF-8, computing the SHA-256 of the content on the way.
+     */
+    public static SpooledUpload spool(Reader reader) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        Path file = Files.createTempFile("rad-tag-import", ".upload");
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file), digest);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            reader.transferTo(writer);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return new SpooledUpload(file, hex.toString());
+    }
+
+    /**
+     * The SHA-256 of the content, in hex.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Opens a new reader over the whole content.
+     */
+    public Reader openReader() throws IOException {
+        return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
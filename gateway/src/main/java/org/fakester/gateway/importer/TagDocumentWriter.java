@@ -0,0 +1,29 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Writes a tag document one tag at a time, the counterpart of {@link TagRecordParser}.  Folders are opened and
+ * closed around their children, so nothing but the open folder path has to be kept.
+ */
+public interface TagDocumentWriter {
+
+    /**
+     * Writes a folder's own properties and opens its child list.  Any {@code tags} member of {@code folder} is ignored.
+     */
+    void beginFolder(JsonObject folder) throws IOException;
+
+    void endFolder() throws IOException;
+
+    /**
+     * Writes a tag that is not a folder, including any members embedded in it.
+     */
+    void writeTag(JsonObject tag) throws IOException;
+
+    /**
+     * Closes the document and flushes it, without closing the underlying stream.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,180 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.fakester.gateway.tags.TagAccessCache;
+import org.fakester.gateway.tags.TagReadCoalescer;
+
+import com.inductiveautomation.ignition.common.browsing.BrowseFilter;
+import com.inductiveautomation.ignition.common.browsing.Results;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.tags.browsing.NodeDescription;
+import com.inductiveautomation.ignition.common.tags.config.types.TagObjectType;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+
+/**
+ * Writes the tag configuration below a folder or provider to a {@link TagDocumentWriter} while walking it, so the
+ * document is never held as a whole.  Folders are browsed one at a time, and the other tags of a folder are
+ * exported from the provider in batches of at most {@link TagImportEngine#CHUNK_SIZE}.
+ */
+public class TagExporter {
+    private final TagAccessCache tagAccess;
+
+    public TagExporter(TagAccessCache tagAccess) {
+        this.tagAccess = tagAccess;
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return "json".equalsIgnoreCase(format) || "xml".equalsIgnoreCase(format);
+    }
+
+    /**
+     * Returns the writer for a file format, one of {@code json} or {@code xml}.
+     */
+    public static TagDocumentWriter writerFor(String format, Writer writer) throws IOException {
+        switch (format == null ? "" : format.toLowerCase()) {
+            case "json":
+                return new JsonTagWriter(writer);
+            case "xml":
+                return new XmlTagWriter(writer);
+            default:
+                throw new IllegalArgumentException("Unsupported export format '" + format + "'");
+        }
+    }
+
+    /**
+     * Converts a tag file from one format to another, holding no more than one tag and the open folder path.
+     */
+    public static void convert(Reader reader, String fromFormat, TagDocumentWriter writer) throws IOException {
+        TagRecordParser parser = TagImportEngine.parserFor(fromFormat);
+        TagTreeSink sink = new TagTreeSink(writer);
+        parser.parse(TagImportEngine.skipByteOrderMark(reader), sink);
+        sink.finish();
+    }
+
+    /**
+     * Exports {@code basePath} and everything below it.  A folder is written as itself, a provider as its top-level
+     * tags.
+     */
+    public void export(String basePath, TagDocumentWriter writer) throws IOException {
+        prepare(basePath).writeTo(writer);
+    }
+
+    /**
+     * Resolves {@code basePath} and its provider without exporting anything yet, so an unknown path can be reported
+     * before a response is started.
+     *
+     * @throws IOException              if the path can't be parsed
+     * @throws IllegalArgumentException if its provider does not exist
+     */
+    public Export prepare(String basePath) throws IOException {
+        TagPath baseTagPath = tagAccess.parse(basePath);
+        TagProvider provider = tagAccess.provider(TagReadCoalescer.providerNameOf(baseTagPath));
+        if (provider == null) {
+            throw new IllegalArgumentException("Tag provider for '" + basePath + "' was not found");
+        }
+        return new Export(provider, baseTagPath);
+    }
+
+    /**
+     * The export of one resolved folder or provider.
+     */
+    public static final class Export {
+        private final TagProvider provider;
+        private final TagPath baseTagPath;
+
+        Export(TagProvider provider, TagPath baseTagPath) {
+            this.provider = provider;
+            this.baseTagPath = baseTagPath;
+        }
+
+        public void writeTo(TagDocumentWriter writer) throws IOException {
+            String folderName = baseTagPath.getItemName();
+            if (folderName == null || folderName.isEmpty()) {
+                exportChildren(provider, baseTagPath, writer);
+            } else {
+                JsonObject folder = new JsonObject();
+                folder.addProperty("name", folderName);
+                folder.addProperty("tagType", "Folder");
+                writer.beginFolder(folder);
+                exportChildren(provider, baseTagPath, writer);
+                writer.endFolder();
+            }
+            writer.finish();
+        }
+    }
+
+    private static void exportChildren(TagProvider provider, TagPath folderPath, TagDocumentWriter writer)
+        throws IOException {
+        Collection<NodeDescription> children = browse(provider, folderPath);
+        List<TagPath> batch = new ArrayList<>();
+
+        for (NodeDescription child : children) {
+            if (child.getObjectType() == TagObjectType.Folder) {
+                continue;
+            }
+            batch.add(folderPath.getChildPath(child.getName()));
+            if (batch.size() >= TagImportEngine.CHUNK_SIZE) {
+                exportBatch(provider, folderPath, batch, writer);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            exportBatch(provider, folderPath, batch, writer);
+        }
+
+        for (NodeDescription child : children) {
+            if (child.getObjectType() == TagObjectType.Folder) {
+                JsonObject folder = new JsonObject();
+                folder.addProperty("name", child.getName());
+                folder.addProperty("tagType", "Folder");
+                writer.beginFolder(folder);
+                exportChildren(provider, folderPath.getChildPath(child.getName()), writer);
+                writer.endFolder();
+            }
+        }
+    }
+
+    private static void exportBatch(TagProvider provider, TagPath folderPath, List<TagPath> paths,
+                                    TagDocumentWriter writer) throws IOException {
+        String json = await(provider.exportTagsAsync(folderPath, paths, "json"),
+            "Exporting " + paths.size() + " tags from " + folderPath);
+        if (json == null || json.isEmpty()) {
+            return;
+        }
+
+        // the batch has no folders, so every record is a tag of this folder with its members embedded
+        new JsonTagParser().parse(new StringReader(json), record -> writer.writeTag(record.getTag()));
+    }
+
+    private static Collection<NodeDescription> browse(TagProvider provider, TagPath folderPath) throws IOException {
+        Results<NodeDescription> results = await(provider.browseAsync(folderPath, new BrowseFilter()),
+            "Browsing " + folderPath);
+        if (results == null || results.getResults() == null) {
+            return List.of();
+        }
+        return results.getResults();
+    }
+
+    private static <T> T await(CompletableFuture<T> future, String action) throws IOException {
+        try {
+            return future.get(TagImportEngine.CHUNK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(action + " was interrupted", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException(action + " failed", e);
+        }
+    }
+}
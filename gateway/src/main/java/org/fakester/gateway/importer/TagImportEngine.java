@@ -0,0 +1,512 @@
+package org.fakester.gateway.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.fakester.gateway.tags.TagAccessCache;
+import org.fakester.gateway.tags.TagReadCoalescer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.model.values.QualityCode;
+import com.inductiveautomation.ignition.common.tags.config.CollisionPolicy;
+import com.inductiveautomation.ignition.common.tags.model.SecurityContext;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+
+/**
+ * Imports tag files of any size by streaming them through a {@link TagRecordParser} and importing the parsed tags in
+ * bounded chunks.  A chunk never spans two folders, and a folder is always imported before the tags inside it.
+ *
+ * Chunks of the same top-level folder are imported one after another, while different top-level folders are
+ * imported in parallel on a shared pool of {@link #PARALLELISM} threads.  Progress can be followed by registering an
+ * {@link ImportProgressListener} under the id the import is started with.
+ */
+public class TagImportEngine {
+    // maximum number of tags sent to the provider in a single importTagsAsync call
+    static final int CHUNK_SIZE = Integer.getInteger("RadComponents.Import.ChunkSize", 1000);
+    // how long a single chunk may take before the import is abandoned
+    static final long CHUNK_TIMEOUT_MS = Long.getLong("RadComponents.Import.ChunkTimeout", 120000L);
+    // number of chunks imported at the same time, across all running imports
+    static final int PARALLELISM = Integer.getInteger("RadComponents.Import.Parallelism", 4);
+    // chunks a single import may have parsed but not yet imported, which bounds the memory it holds
+    static final int MAX_PENDING_CHUNKS = Integer.getInteger("RadComponents.Import.MaxPendingChunks", PARALLELISM * 2);
+    // records checked together by one thread when validating
+    static final int VALIDATION_BATCH_SIZE = Integer.getInteger("RadComponents.Import.ValidationBatchSize", 2000);
+
+    // longest header line looked at when telling CSV dialects apart
+    private static final int PEEK_LIMIT = 64 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(TagImportEngine.class);
+
+    private final TagAccessCache tagAccess;
+    private final ImportHashStore hashStore;
+    private final ExecutorService executor;
+    private final Map<String, List<ImportProgressListener>> watchers = new ConcurrentHashMap<>();
+
+    /**
+     * @param hashFile where the hash of the last file imported into each path is kept for {@link #importChanges}
+     */
+    public TagImportEngine(TagAccessCache tagAccess, Path hashFile) {
+        this.tagAccess = tagAccess;
+        this.hashStore = new ImportHashStore(hashFile);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(PARALLELISM, runnable -> {
+            Thread thread = new Thread(runnable, "rad-tag-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers a listener for the import started with {@code importId}.  Watching may begin before the import does.
+     */
+    public void watch(String importId, ImportProgressListener listener) {
+        watchers.computeIfAbsent(importId, id -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void unwatch(String importId, ImportProgressListener listener) {
+        watchers.computeIfPresent(importId, (id, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        watchers.clear();
+    }
+
+    /**
+     * Returns the parser for a file format, one of {@code csv}, {@code wincc}, {@code xml} or {@code json}.
+     */
+    public static TagRecordParser parserFor(String format) {
+        switch (format == null ? "" : format.toLowerCase()) {
+            case "csv":
+                return new CsvTagParser();
+            case "wincc":
+                return new WinCcAlarmParser();
+            case "xml":
+                return new XmlTagParser();
+            case "json":
+                return new JsonTagParser();
+            default:
+                throw new IllegalArgumentException("Unsupported import format '" + format + "'");
+        }
+    }
+
+    /**
+     * Imports every tag read from {@code reader} below {@code basePath}, returning once the last chunk is done.
+     */
+    public ImportSummary importTags(Reader reader, String format, String basePath, CollisionPolicy collisionPolicy)
+        throws IOException {
+        return importTags(reader, format, basePath, collisionPolicy, null, null);
+    }
+
+    /**
+     * Like {@link #importTags(Reader, String, String, CollisionPolicy)}, reporting progress to the listeners watching
+     * {@code importId}, if it is not null.  The tags are written with {@code securityContext}, the one of the user
+     * that asked for the import, or as the gateway itself if it is null.
+     */
+    public ImportSummary importTags(Reader reader, String format, String basePath, CollisionPolicy collisionPolicy,
+                                    String importId, SecurityContext securityContext) throws IOException {
+        TagRecordParser parser = parserFor(format);
+        TagPath baseTagPath = tagAccess.parse(basePath);
+        TagProvider provider = providerOf(baseTagPath);
+
+        ImportSummary summary = new ImportSummary();
+        ImportProgressListener listener = listenerFor(importId);
+        run(parser, reader, provider, baseTagPath, collisionPolicy, securityContext, summary, listener, sink -> sink);
+
+        listener.importFinished(summary.toJson());
+        logger.info("Imported {} tags into '{}' with {} failures", summary.getTagCount(), basePath,
+            summary.getFailedCount());
+        return summary;
+    }
+
+    /**
+     * Imports only the tags of the file that are new or differ from the configuration already below
+     * {@code basePath}, optionally removing the existing tags the file no longer has.  A file identical to the last
+     * one fully imported into the same path, with the same options, is skipped without looking at its tags.  Tags are
+     * written and removed with {@code securityContext} like {@link #importTags} does.
+     */
+    public ImportSummary importChanges(SpooledUpload upload, String format, String basePath, boolean removeMissing,
+                                       String importId, SecurityContext securityContext) throws IOException {
+        TagRecordParser parser = parserFor(format);
+        TagPath baseTagPath = tagAccess.parse(basePath);
+        TagProvider provider = providerOf(baseTagPath);
+
+        ImportSummary summary = new ImportSummary();
+        ImportProgressListener listener = listenerFor(importId);
+        String target = baseTagPath.toStringFull();
+        String fileHash = upload.getHash() + "|" + format.toLowerCase() + "|" + removeMissing;
+
+        if (fileHash.equals(hashStore.get(target))) {
+            summary.markFileUnchanged();
+            listener.importFinished(summary.toJson());
+            logger.info("Skipped importing into '{}', the file is unchanged since the last import", basePath);
+            return summary;
+        }
+
+        try {
+            IncrementalImport changes = IncrementalImport.load(provider, baseTagPath);
+            try (Reader reader = upload.openReader()) {
+                run(parser, reader, provider, baseTagPath, CollisionPolicy.Overwrite, securityContext, summary, listener,
+                    sink -> changes.filter(sink, summary));
+            }
+            if (removeMissing) {
+                changes.removeMissing(provider, baseTagPath, summary, securityContext);
+            }
+
+            if (summary.getFailedCount() == 0) {
+                hashStore.put(target, fileHash);
+            } else {
+                hashStore.remove(target);
+            }
+        } catch (IOException | RuntimeException e) {
+            hashStore.remove(target);
+            throw e;
+        }
+
+        listener.importFinished(summary.toJson());
+        logger.info("Imported {} changed tags into '{}', {} unchanged, {} removed, {} failures", summary.getTagCount(),
+            basePath, summary.getUnchangedCount(), summary.getRemovedCount(), summary.getFailedCount());
+        return summary;
+    }
+
+    /**
+     * Checks every tag in the file against {@link TagSchema} without writing anything.  Tags are validated in batches
+     * spread over all cores while the file is still being parsed.  A file that cannot be parsed is reported as an
+     * error of its own rather than thrown.
+     */
+    public ValidationReport validate(Reader reader, String format) throws IOException {
+        TagRecordParser parser = parserFor(format);
+        BufferedReader input = skipByteOrderMark(reader);
+        parser = dialectOf(parser, input);
+
+        ValidationReport report = new ValidationReport();
+        ValidatingSink sink = new ValidatingSink(report);
+        try {
+            parser.parse(input, sink);
+        } catch (IOException e) {
+            JsonObject error = new JsonObject();
+            error.addProperty("row", 0);
+            error.addProperty("error", e.getMessage());
+            report.addErrors(List.of(error));
+        } finally {
+            sink.finish();
+        }
+
+        report.finish();
+        logger.info("Validated {} file with {} errors", format, report.getErrorCount());
+        return report;
+    }
+
+    /**
+     * HMI alarm lists are uploaded as plain .csv files, this switches to their parser when the header matches.
+     */
+    private static TagRecordParser dialectOf(TagRecordParser parser, BufferedReader input) throws IOException {
+        if (parser instanceof CsvTagParser && WinCcAlarmParser.isAlarmListHeader(peekLine(input))) {
+            return new WinCcAlarmParser();
+        }
+        return parser;
+    }
+
+    private TagProvider providerOf(TagPath baseTagPath) {
+        TagProvider provider = tagAccess.provider(TagReadCoalescer.providerNameOf(baseTagPath));
+        if (provider == null) {
+            throw new IllegalArgumentException("Tag provider for '" + baseTagPath + "' was not found");
+        }
+        return provider;
+    }
+
+    /**
+     * Parses the file and imports the records let through by {@code filter}, returning once every chunk is done.
+     * The listener is told about a failed import here, its callers report the ones that succeed.
+     */
+    private void run(TagRecordParser parser, Reader reader, TagProvider provider, TagPath baseTagPath,
+                     CollisionPolicy collisionPolicy, SecurityContext securityContext, ImportSummary summary,
+                     ImportProgressListener listener, UnaryOperator<TagRecordParser.TagRecordSink> filter)
+        throws IOException {
+        BufferedReader input = skipByteOrderMark(reader);
+        parser = dialectOf(parser, input);
+
+        ChunkingSink sink = new ChunkingSink(provider, baseTagPath, collisionPolicy, securityContext, summary, listener);
+        try {
+            parser.parse(input, filter.apply(sink));
+            sink.flush();
+        } catch (IOException | RuntimeException e) {
+            JsonObject failed = sink.awaitChunks().toJson();
+            failed.addProperty("error", e.getMessage());
+            listener.importFinished(failed);
+            throw e;
+        }
+        sink.awaitChunks();
+    }
+
+    private ImportProgressListener listenerFor(String importId) {
+        return importId == null ? ImportProgressListener.NONE : forwardTo(importId);
+    }
+
+    /**
+     * Looks the watchers of an import up on every call, so a listener registered after the upload started still
+     * receives the remaining progress.
+     */
+    private ImportProgressListener forwardTo(String importId) {
+        return new ImportProgressListener() {
+            @Override
+            public void chunkImported(JsonObject progress) {
+                watchers.getOrDefault(importId, List.of()).forEach(listener -> listener.chunkImported(progress));
+            }
+
+            @Override
+            public void importFinished(JsonObject summary) {
+                watchers.getOrDefault(importId, List.of()).forEach(listener -> listener.importFinished(summary));
+            }
+        };
+    }
+
+    static TagPath resolve(TagPath basePath, List<String> folders) {
+        TagPath path = basePath;
+        for (String folder : folders) {
+            path = path.getChildPath(folder);
+        }
+        return path;
+    }
+
+    static BufferedReader skipByteOrderMark(Reader reader) throws IOException {
+        BufferedReader buffered = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        buffered.mark(1);
+        if (buffered.read() != '\uFEFF') {
+            buffered.reset();
+        }
+        return buffered;
+    }
+
+    static String peekLine(BufferedReader reader) throws IOException {
+        reader.mark(PEEK_LIMIT);
+        String line = reader.readLine();
+        reader.reset();
+        return line;
+    }
+
+    /**
+     * Imports one chunk, records the outcome of every tag in it and returns the tags that failed.
+     */
+    static List<JsonObject> importChunk(TagProvider provider, TagPath target, List<TagRecord> records,
+                                        CollisionPolicy collisionPolicy, SecurityContext securityContext,
+                                        ImportSummary summary) throws IOException {
+        JsonArray tags = new JsonArray();
+        for (TagRecord record : records) {
+            tags.add(record.getTag());
+        }
+        JsonObject document = new JsonObject();
+        document.add("tags", tags);
+
+        List<QualityCode> results;
+        try {
+            CompletableFuture<List<QualityCode>> imported = securityContext == null
+                ? provider.importTagsAsync(target, document.toString(), "json", collisionPolicy)
+                : provider.importTagsAsync(target, document.toString(), "json", collisionPolicy, securityContext);
+            results = imported.get(CHUNK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Importing " + records.size() + " tags into " + target + " failed", e);
+        }
+
+        summary.addChunk(records.size());
+        List<JsonObject> failures = new ArrayList<>();
+        for (int i = 0; i < results.size() && i < records.size(); i++) {
+            if (!results.get(i).isGood()) {
+                failures.add(summary.addFailure(records.get(i), results.get(i)));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Collects consecutive records of the same folder and hands them on once the chunk is full or the folder changes.
+     * Each top-level folder gets its own chain of chunk imports, which starts after the chunk holding the folder
+     * itself.  Parsing waits while {@link #MAX_PENDING_CHUNKS} chunks are queued.
+     */
+    private final class ChunkingSink implements TagRecordParser.TagRecordSink {
+        private static final String ROOT_CHAIN = "";
+
+        private final TagProvider provider;
+        private final TagPath basePath;
+        private final CollisionPolicy collisionPolicy;
+        private final SecurityContext securityContext;
+        private final ImportSummary summary;
+        private final ImportProgressListener listener;
+        private final Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+        // last chunk import queued for each top-level folder, only touched by the parsing thread
+        private final Map<String, CompletableFuture<Void>> chains = new HashMap<>();
+        private List<TagRecord> chunk = new ArrayList<>();
+        private List<String> chunkFolder = null;
+
+        private ChunkingSink(TagProvider provider, TagPath basePath, CollisionPolicy collisionPolicy,
+                             SecurityContext securityContext, ImportSummary summary, ImportProgressListener listener) {
+            this.provider = provider;
+            this.basePath = basePath;
+            this.collisionPolicy = collisionPolicy;
+            this.securityContext = securityContext;
+            this.summary = summary;
+            this.listener = listener;
+            chains.put(ROOT_CHAIN, CompletableFuture.completedFuture(null));
+        }
+
+        @Override
+        public void accept(TagRecord record) throws IOException {
+            if (record.getName() == null) {
+                // the provider could not place it, and it must not fail the other tags of its chunk
+                summary.addFailure(record.getRow(), null, "Tag has no name");
+                return;
+            }
+            if (!record.getParentPath().equals(chunkFolder) || chunk.size() >= CHUNK_SIZE) {
+                flush();
+                chunkFolder = record.getParentPath();
+            }
+            chunk.add(record);
+        }
+
+        void flush() throws IOException {
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            try {
+                if (!pendingChunks.tryAcquire(CHUNK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("Timed out waiting for earlier chunks to be imported");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import was interrupted", e);
+            }
+
+            List<TagRecord> records = chunk;
+            TagPath target = resolve(basePath, chunkFolder);
+            String chain = chunkFolder.isEmpty() ? ROOT_CHAIN : chunkFolder.get(0);
+            CompletableFuture<Void> previous = chains.computeIfAbsent(chain, folder -> chains.get(ROOT_CHAIN));
+            chains.put(chain, previous.thenRunAsync(() -> importQueued(target, records), executor));
+            chunk = new ArrayList<>();
+        }
+
+        private void importQueued(TagPath target, List<TagRecord> records) {
+            List<JsonObject> failures;
+            try {
+                failures = importChunk(provider, target, records, collisionPolicy, securityContext, summary);
+            } catch (IOException | RuntimeException e) {
+                // the chunk is lost, but the other chunks of the folder may still import
+                logger.warn("Importing {} tags into '{}' failed", records.size(), target, e);
+                summary.addChunk(records.size());
+                failures = new ArrayList<>(records.size());
+                for (TagRecord record : records) {
+                    failures.add(summary.addFailure(record.getRow(), record.getName(), e.getMessage()));
+                }
+            } finally {
+                pendingChunks.release();
+            }
+
+            try {
+                listener.chunkImported(summary.toProgressJson(failures));
+            } catch (RuntimeException e) {
+                logger.warn("Import progress listener failed", e);
+            }
+        }
+
+        /**
+         * Waits for every queued chunk to be imported.
+         */
+        ImportSummary awaitChunks() {
+            CompletableFuture.allOf(chains.values().toArray(new CompletableFuture[0])).join();
+            return summary;
+        }
+    }
+
+    /**
+     * Validates records in batches on the common fork join pool.  Duplicate names are caught here on the parsing
+     * thread, since they depend on every record seen before.
+     */
+    private static final class ValidatingSink implements TagRecordParser.TagRecordSink {
+        private final ValidationReport report;
+        private final Semaphore pendingBatches = new Semaphore(Runtime.getRuntime().availableProcessors() * 2);
+        private final List<CompletableFuture<Void>> batches = new ArrayList<>();
+        private final Set<String> names = new HashSet<>();
+        private List<TagRecord> batch = new ArrayList<>();
+
+        private ValidatingSink(ValidationReport report) {
+            this.report = report;
+        }
+
+        @Override
+        public void accept(TagRecord record) throws IOException {
+            String key = record.getParentPath() + "/" + record.getTag().get("name");
+            if (record.getTag().has("name") && !names.add(key)) {
+                report.addErrors(List.of(TagSchema.error(record, "name", "is used by another tag in the same folder")));
+            }
+
+            batch.add(record);
+            if (batch.size() >= VALIDATION_BATCH_SIZE) {
+                submit();
+            }
+        }
+
+        private void submit() throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                pendingBatches.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Validation was interrupted", e);
+            }
+
+            List<TagRecord> records = batch;
+            batches.add(CompletableFuture.runAsync(() -> {
+                try {
+                    List<JsonObject> errors = new ArrayList<>();
+                    for (TagRecord record : records) {
+                        errors.addAll(TagSchema.INSTANCE.validate(record));
+                    }
+                    report.addTags(records.size());
+                    report.addErrors(errors);
+                } finally {
+                    pendingBatches.release();
+                }
+            }, ForkJoinPool.commonPool()));
+            batches.removeIf(CompletableFuture::isDone);
+            batch = new ArrayList<>();
+        }
+
+        void finish() throws IOException {
+            submit();
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+        }
+    }
+}
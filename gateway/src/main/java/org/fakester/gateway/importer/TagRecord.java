@@ -0,0 +1,44 @@
+package org.fakester.gateway.importer;
+
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * A single tag definition read from an import file, without any child tags of its own.
+ */
+public final class TagRecord {
+    private final List<String> parentPath;
+    private final JsonObject tag;
+    private final int row;
+
+    /**
+     * @param parentPath folder names between the import's base path and this tag, empty for top-level tags
+     * @param tag the tag definition in Ignition's JSON tag format
+     * @param row where the definition starts in the source file: the line for CSV and XML, the position of the tag
+     *            among all tags in the file for JSON
+     */
+    public TagRecord(List<String> parentPath, JsonObject tag, int row) {
+        this.parentPath = parentPath;
+        this.tag = tag;
+        this.row = row;
+    }
+
+    public List<String> getParentPath() {
+        return parentPath;
+    }
+
+    public JsonObject getTag() {
+        return tag;
+    }
+
+    public String getName() {
+        JsonElement name = tag.get("name");
+        return name != null && name.isJsonPrimitive() ? name.getAsString() : null;
+    }
+
+    public int getRow() {
+        return row;
+    }
+}
@@ -0,0 +1,20 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads tag definitions from an import file one at a time, so that files of any size can be imported without
+ * holding them in memory.
+ */
+public interface TagRecordParser {
+
+    /**
+     * Receives each tag as soon as it has been parsed.  Folders are always passed on before the tags inside them.
+     */
+    interface TagRecordSink {
+        void accept(TagRecord record) throws IOException;
+    }
+
+    void parse(Reader reader, TagRecordSink sink) throws IOException;
+}
@@ -0,0 +1,262 @@
+package org.fakester.gateway.importer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.gson.JsonPrimitive;
+
+/**
+ * The tag and alarm properties an import is checked against before anything is written.
+ *
+ * The rules are compiled once into lookup tables, one checker per known property, so validating a record costs a map
+ * lookup per property.  Properties without a rule are passed through, the provider knows more of them than this
+ * schema does.  A rule only rejects values the provider could never accept, such as unknown enum names or text in a
+ * numeric property.  Bound properties are not checked.
+ */
+public final class TagSchema {
+    public static final TagSchema INSTANCE = new TagSchema();
+
+    // characters Ignition does not allow in tag and alarm names
+    private static final Pattern ILLEGAL_NAME = Pattern.compile("[\\[\\]{}./\\\\:;,*?\"<>|]");
+
+    private static final Set<String> NUMERIC_TYPES = Set.of("Int1", "Int2", "Int4", "Int8", "Float4", "Float8");
+
+    private final Map<String, Rule> tagRules = new HashMap<>();
+    private final Map<String, Rule> alarmRules = new HashMap<>();
+
+    /**
+     * Checks one property value, returning the problem or null if the value is acceptable.
+     */
+    private interface Rule {
+        String check(JsonElement value);
+    }
+
+    private TagSchema() {
+        tagRules.put("name", TagSchema::checkName);
+        tagRules.put("tagType", oneOf("AtomicTag", "Folder", "UdtInstance", "UdtType", "Provider"));
+        tagRules.put("valueSource", oneOf("memory", "opc", "expr", "derived", "reference", "query", "db"));
+        Rule dataTypeName = oneOf("Int1", "Int2", "Int4", "Int8", "Float4", "Float8", "Boolean", "String",
+            "DateTime", "Text", "Document", "Int1Array", "Int2Array", "Int4Array", "Int8Array", "Float4Array",
+            "Float8Array", "BooleanArray", "StringArray", "DateTimeArray", "ByteArray", "DataSet");
+        Rule legacyDataTypeCode = intBetween(0, 99);
+        // legacy XML exports number their data types
+        tagRules.put("dataType", value -> legacyDataTypeCode.check(value) == null ? null : dataTypeName.check(value));
+        tagRules.put("enabled", TagSchema::checkBoolean);
+        tagRules.put("readOnly", TagSchema::checkBoolean);
+        tagRules.put("historyEnabled", TagSchema::checkBoolean);
+        tagRules.put("deadband", TagSchema::checkNumber);
+        tagRules.put("scaleMode", oneOf("Off", "Linear", "Square", "ExponentialFilter", "BitInversion"));
+        tagRules.put("opcItemPath", TagSchema::checkText);
+        tagRules.put("opcServer", TagSchema::checkText);
+        tagRules.put("expression", TagSchema::checkText);
+        tagRules.put("typeId", TagSchema::checkText);
+        tagRules.put("alarms", value -> value.isJsonArray() ? null : "must be a list of alarms");
+        tagRules.put("readPermissions", TagSchema::checkPermissions);
+        tagRules.put("writePermissions", TagSchema::checkPermissions);
+
+        alarmRules.put("name", TagSchema::checkName);
+        alarmRules.put("priority", oneOf("Diagnostic", "Low", "Medium", "High", "Critical", "0", "1", "2", "3", "4"));
+        // the names of Ignition's AlarmMode enum
+        alarmRules.put("mode", oneOf("Equality", "NotEqual", "AboveValue", "BelowValue", "BetweenValues",
+            "OutsideValues", "OutOfRange", "BadQuality", "AnyChange", "Bit", "OnCondition"));
+        alarmRules.put("bitPosition", intBetween(0, 63));
+        alarmRules.put("setpointA", TagSchema::checkNumber);
+        alarmRules.put("setpointB", TagSchema::checkNumber);
+        alarmRules.put("deadband", TagSchema::checkNumber);
+        alarmRules.put("enabled", TagSchema::checkBoolean);
+        alarmRules.put("ackMode", oneOf("Unused", "Auto", "Manual"));
+        alarmRules.put("ackNotesReqd", TagSchema::checkBoolean);
+        alarmRules.put("label", TagSchema::checkText);
+        alarmRules.put("displayPath", TagSchema::checkText);
+        alarmRules.put("notes", TagSchema::checkText);
+    }
+
+    /**
+     * Returns every problem with the record, each as {@code {row, column, name, error}}.  The column is the
+     * property's path within the tag, {@code alarms/0/priority} for example, which is also the CSV column header.
+     */
+    public List<JsonObject> validate(TagRecord record) {
+        List<JsonObject> errors = new ArrayList<>();
+        JsonObject tag = record.getTag();
+
+        if (!tag.has("name")) {
+            errors.add(error(record, "name", "is required"));
+        }
+
+        for (Map.Entry<String, JsonElement> property : tag.entrySet()) {
+            String problem = check(tagRules.get(property.getKey()), property.getValue());
+            if (problem != null) {
+                errors.add(error(record, property.getKey(), problem));
+            }
+        }
+
+        if (isString(tag.get("valueSource"), "opc") && !tag.has("opcItemPath")) {
+            errors.add(error(record, "opcItemPath", "is required for OPC tags"));
+        }
+        checkValue(record, tag, errors);
+
+        JsonElement alarms = tag.get("alarms");
+        if (alarms != null && alarms.isJsonArray()) {
+            checkAlarms(record, alarms.getAsJsonArray(), errors);
+        }
+        return errors;
+    }
+
+    private void checkAlarms(TagRecord record, JsonArray alarms, List<JsonObject> errors) {
+        Set<String> names = new TreeSet<>();
+        for (int i = 0; i < alarms.size(); i++) {
+            String column = "alarms/" + i;
+            if (!alarms.get(i).isJsonObject()) {
+                errors.add(error(record, column, "must be an alarm definition"));
+                continue;
+            }
+
+            JsonObject alarm = alarms.get(i).getAsJsonObject();
+            if (!alarm.has("name")) {
+                errors.add(error(record, column + "/name", "is required"));
+            } else if (alarm.get("name").isJsonPrimitive() && !names.add(alarm.get("name").getAsString())) {
+                errors.add(error(record, column + "/name", "is used by another alarm of this tag"));
+            }
+
+            for (Map.Entry<String, JsonElement> property : alarm.entrySet()) {
+                String problem = check(alarmRules.get(property.getKey()), property.getValue());
+                if (problem != null) {
+                    errors.add(error(record, column + "/" + property.getKey(), problem));
+                }
+            }
+
+            if (isString(alarm.get("mode"), "Bit") && !alarm.has("bitPosition")) {
+                errors.add(error(record, column + "/bitPosition", "is required for bit state alarms"));
+            }
+        }
+    }
+
+    /**
+     * A static value has to fit the tag's data type.
+     */
+    private static void checkValue(TagRecord record, JsonObject tag, List<JsonObject> errors) {
+        JsonElement value = tag.get("value");
+        JsonElement dataType = tag.get("dataType");
+        if (value == null || dataType == null || !value.isJsonPrimitive() || !dataType.isJsonPrimitive()) {
+            return;
+        }
+
+        String type = dataType.getAsString();
+        if (NUMERIC_TYPES.contains(type) && checkNumber(value) != null) {
+            errors.add(error(record, "value", "is not a number, as the " + type + " data type requires"));
+        } else if ("Boolean".equals(type) && checkBoolean(value) != null) {
+            errors.add(error(record, "value", "is not true or false, as the Boolean data type requires"));
+        }
+    }
+
+    /**
+     * A property bound to a tag, an expression or a UDT parameter holds a binding object instead of its value, which
+     * is only known once the binding is evaluated.  No rule applies to those.
+     */
+    private static String check(Rule rule, JsonElement value) {
+        if (rule == null || isBinding(value)) {
+            return null;
+        }
+        return rule.check(value);
+    }
+
+    private static boolean isBinding(JsonElement value) {
+        return value.isJsonObject() && value.getAsJsonObject().has("bindType");
+    }
+
+    private static Rule oneOf(String... allowed) {
+        Map<String, String> byLowerCase = new HashMap<>();
+        for (String value : allowed) {
+            byLowerCase.put(value.toLowerCase(Locale.ROOT), value);
+        }
+        String message = "must be one of " + String.join(", ", Arrays.asList(allowed));
+
+        return value -> value.isJsonPrimitive()
+            && byLowerCase.containsKey(value.getAsString().toLowerCase(Locale.ROOT)) ? null : message;
+    }
+
+    private static Rule intBetween(int min, int max) {
+        String message = "must be a whole number from " + min + " to " + max;
+        return value -> {
+            if (checkNumber(value) != null) {
+                return message;
+            }
+            double number = value.getAsDouble();
+            return number == Math.rint(number) && number >= min && number <= max ? null : message;
+        };
+    }
+
+    private static String checkName(JsonElement value) {
+        if (!value.isJsonPrimitive() || value.getAsString().trim().isEmpty()) {
+            return "must not be empty";
+        }
+        String name = value.getAsString();
+        if (!name.equals(name.trim())) {
+            return "must not start or end with spaces";
+        }
+        return ILLEGAL_NAME.matcher(name).find() ? "must not contain any of [ ] { } . / \\ : ; , * ? \" < > |" : null;
+    }
+
+    private static String checkBoolean(JsonElement value) {
+        if (value.isJsonPrimitive()) {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isBoolean() || "true".equalsIgnoreCase(primitive.getAsString())
+                || "false".equalsIgnoreCase(primitive.getAsString())) {
+                return null;
+            }
+        }
+        return "must be true or false";
+    }
+
+    private static String checkNumber(JsonElement value) {
+        if (value.isJsonPrimitive()) {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isNumber()) {
+                return null;
+            }
+            try {
+                Double.parseDouble(primitive.getAsString());
+                return null;
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+        }
+        return "must be a number";
+    }
+
+    private static String checkText(JsonElement value) {
+        return value.isJsonPrimitive() ? null : "must be text";
+    }
+
+    private static String checkPermissions(JsonElement value) {
+        if (!value.isJsonObject()) {
+            return "must be a permissions object";
+        }
+        JsonElement type = value.getAsJsonObject().get("type");
+        return type == null || isString(type, "AnyOf") || isString(type, "AllOf") ? null : "type must be AnyOf or AllOf";
+    }
+
+    private static boolean isString(JsonElement element, String expected) {
+        return element != null && element.isJsonPrimitive() && expected.equalsIgnoreCase(element.getAsString());
+    }
+
+    static JsonObject error(TagRecord record, String column, String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("row", record.getRow());
+        error.addProperty("column", column);
+        JsonElement name = record.getTag().get("name");
+        error.addProperty("name", name != null && name.isJsonPrimitive() ? name.getAsString() : null);
+        error.addProperty("error", column + " " + message);
+        return error;
+    }
+}
@@ -0,0 +1,74 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Turns the flat records of a {@link TagRecordParser} back into a tree for a {@link TagDocumentWriter}, which is all
+ * converting between the tag file formats takes.  Parsers pass records on depth first, so only the path of open
+ * folders is held.  Folders a record is placed in without having been passed on themselves, as in CSV files, are
+ * written with no properties of their own.
+ */
+public final class TagTreeSink implements TagRecordParser.TagRecordSink {
+    private final TagDocumentWriter writer;
+    private final List<String> openFolders = new ArrayList<>();
+
+    public TagTreeSink(TagDocumentWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void accept(TagRecord record) throws IOException {
+        List<String> parentPath = record.getParentPath();
+
+        int common = 0;
+        while (common < openFolders.size() && common < parentPath.size()
+            && openFolders.get(common).equals(parentPath.get(common))) {
+            common++;
+        }
+        while (openFolders.size() > common) {
+            closeFolder();
+        }
+        while (openFolders.size() < parentPath.size()) {
+            JsonObject folder = new JsonObject();
+            folder.addProperty("name", parentPath.get(openFolders.size()));
+            folder.addProperty("tagType", "Folder");
+            openFolder(folder);
+        }
+
+        if (isFolder(record.getTag())) {
+            openFolder(record.getTag());
+        } else {
+            writer.writeTag(record.getTag());
+        }
+    }
+
+    /**
+     * Closes the folders still open and the document.
+     */
+    public void finish() throws IOException {
+        while (!openFolders.isEmpty()) {
+            closeFolder();
+        }
+        writer.finish();
+    }
+
+    private void openFolder(JsonObject folder) throws IOException {
+        writer.beginFolder(folder);
+        openFolders.add(folder.get("name").getAsString());
+    }
+
+    private void closeFolder() throws IOException {
+        writer.endFolder();
+        openFolders.remove(openFolders.size() - 1);
+    }
+
+    static boolean isFolder(JsonObject tag) {
+        JsonElement tagType = tag.get("tagType");
+        return tagType != null && tagType.isJsonPrimitive() && "Folder".equals(tagType.getAsString());
+    }
+}
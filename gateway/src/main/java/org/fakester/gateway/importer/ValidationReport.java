@@ -0,0 +1,66 @@
+package org.fakester.gateway.importer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * The outcome of validating an import file without writing anything, safe to update from several threads.
+ */
+public class ValidationReport {
+    // errors listed in the report, the count still covers all of them
+    private static final int MAX_REPORTED_ERRORS = Integer.getInteger("RadComponents.Import.MaxValidationErrors", 10000);
+
+    private int tagCount = 0;
+    private int errorCount = 0;
+    private final List<JsonObject> errors = new ArrayList<>();
+    private final long startedAt = System.currentTimeMillis();
+    private long finishedAt = 0;
+
+    synchronized void addTags(int tags) {
+        tagCount += tags;
+    }
+
+    synchronized void addErrors(List<JsonObject> found) {
+        errorCount += found.size();
+        for (JsonObject error : found) {
+            if (errors.size() >= MAX_REPORTED_ERRORS) {
+                break;
+            }
+            errors.add(error);
+        }
+    }
+
+    synchronized void finish() {
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public synchronized boolean isValid() {
+        return errorCount == 0;
+    }
+
+    public synchronized int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Returns the report with its errors in file order, which batches validated in parallel do not finish in.
+     */
+    public synchronized JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("valid", errorCount == 0);
+        json.addProperty("tags", tagCount);
+        json.addProperty("errorCount", errorCount);
+        json.addProperty("durationMs", (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt);
+
+        JsonArray errorArray = new JsonArray();
+        errors.stream()
+            .sorted(Comparator.comparingInt(error -> error.get("row").getAsInt()))
+            .forEach(errorArray::add);
+        json.add("errors", errorArray);
+        return json;
+    }
+}
@@ -0,0 +1,255 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Converts a WinCC / TIA Portal HMI alarm list export into bit state alarms.
+ *
+ * The export is semicolon delimited, with one row per discrete alarm and the columns {@code Name},
+ * {@code Alarm text}, {@code Class}, {@code Trigger tag}, {@code Trigger bit} and the optional acknowledgement,
+ * group, report and info text columns.  Alarms are grouped by the 16 bit word their trigger bit falls in, and every
+ * word becomes one memory tag carrying an alarm per bit, instead of an expression tag per alarm.  A trigger tag that
+ * is an array of words becomes one tag per word, named {@code <tag>_<word>}.
+ *
+ * Alarms are held until the end of the file, since the rows of one trigger word are not required to be adjacent; an
+ * HMI device's alarm list is bounded well below the sizes the other parsers stream.
+ */
+public class WinCcAlarmParser implements TagRecordParser {
+    public static final char DELIMITER = ';';
+
+    private static final String NO_VALUE = "<No value>";
+    private static final int WORD_BITS = 16;
+
+    private static final String COL_NAME = "Name";
+    private static final String COL_ALARM_TEXT = "Alarm text";
+    private static final String COL_CLASS = "Class";
+    private static final String COL_TRIGGER_TAG = "Trigger tag";
+    private static final String COL_TRIGGER_BIT = "Trigger bit";
+    private static final String COL_ACK_TAG = "Acknowledgement tag";
+    private static final String COL_ACK_BIT = "Acknowledgement bit";
+    private static final String COL_PLC_ACK_TAG = "PLC acknowledgement tag";
+    private static final String COL_PLC_ACK_BIT = "PLC acknowledgement bit";
+    private static final String COL_GROUP = "Group";
+    private static final String COL_REPORT = "Report";
+    private static final String COL_INFO_TEXT = "Info text";
+
+    private static final Logger logger = LoggerFactory.getLogger(WinCcAlarmParser.class);
+
+    /**
+     * Returns true if {@code headerLine} is the header of a WinCC alarm list export.
+     */
+    public static boolean isAlarmListHeader(String headerLine) {
+        return headerLine != null && headerLine.indexOf(DELIMITER) >= 0 && headerLine.contains(COL_TRIGGER_TAG)
+            && headerLine.contains(COL_TRIGGER_BIT);
+    }
+
+    @Override
+    public void parse(Reader reader, TagRecordSink sink) throws IOException {
+        CsvLineReader lines = new CsvLineReader(reader, DELIMITER);
+
+        List<String> headerRow = lines.readRow();
+        if (headerRow == null) {
+            return;
+        }
+        Columns columns = new Columns(headerRow);
+
+        // trigger tag -> word index -> alarms on that word, in file order of the trigger tags
+        Map<String, TreeMap<Integer, JsonArray>> words = new LinkedHashMap<>();
+        Map<String, Integer> firstRows = new LinkedHashMap<>();
+        int skipped = 0;
+
+        List<String> values;
+        while ((values = lines.readRow()) != null) {
+            String name = columns.get(values, COL_NAME);
+            String triggerTag = columns.get(values, COL_TRIGGER_TAG);
+            Integer triggerBit = toInt(columns.get(values, COL_TRIGGER_BIT));
+
+            if (name == null || triggerTag == null || triggerBit == null || triggerBit < 0) {
+                // analog alarms and rows without a trigger have no bit to watch
+                skipped++;
+                continue;
+            }
+
+            JsonObject alarm = toAlarm(columns, values, name, triggerBit % WORD_BITS);
+            firstRows.putIfAbsent(triggerTag, lines.getRowStartLine());
+            words.computeIfAbsent(triggerTag, tag -> new TreeMap<>())
+                .computeIfAbsent(triggerBit / WORD_BITS, word -> new JsonArray())
+                .add(alarm);
+        }
+
+        if (skipped > 0) {
+            logger.warn("Skipped {} alarm list rows without a name, trigger tag or trigger bit", skipped);
+        }
+
+        Set<List<String>> folders = new HashSet<>();
+        for (Map.Entry<String, TreeMap<Integer, JsonArray>> entry : words.entrySet()) {
+            List<String> path = Arrays.asList(entry.getKey().split("\\\\"));
+            List<String> parentPath = path.subList(0, path.size() - 1);
+            String tagName = path.get(path.size() - 1);
+            int row = firstRows.get(entry.getKey());
+
+            emitFolders(parentPath, folders, row, sink);
+
+            boolean array = entry.getValue().size() > 1 || entry.getValue().firstKey() > 0;
+            for (Map.Entry<Integer, JsonArray> word : entry.getValue().entrySet()) {
+                String name = array ? tagName + "_" + word.getKey() : tagName;
+                sink.accept(new TagRecord(parentPath, toTag(name, entry.getKey(), word.getValue()), row));
+            }
+        }
+    }
+
+    private static void emitFolders(List<String> parentPath, Set<List<String>> folders, int row, TagRecordSink sink)
+        throws IOException {
+        for (int depth = 1; depth <= parentPath.size(); depth++) {
+            List<String> folderPath = new ArrayList<>(parentPath.subList(0, depth));
+            if (folders.add(folderPath)) {
+                JsonObject folder = new JsonObject();
+                folder.addProperty("name", folderPath.get(depth - 1));
+                folder.addProperty("tagType", "Folder");
+                sink.accept(new TagRecord(folderPath.subList(0, depth - 1), folder, row));
+            }
+        }
+    }
+
+    private static JsonObject toTag(String name, String triggerTag, JsonArray alarms) {
+        JsonObject tag = new JsonObject();
+        tag.addProperty("name", name);
+        tag.addProperty("tagType", "AtomicTag");
+        tag.addProperty("valueSource", "memory");
+        tag.addProperty("dataType", "Int2");
+        tag.addProperty("value", 0);
+        tag.addProperty("documentation", "WinCC trigger tag " + triggerTag);
+        tag.add("alarms", alarms);
+        return tag;
+    }
+
+    private static JsonObject toAlarm(Columns columns, List<String> values, String name, int bitPosition) {
+        String alarmClass = columns.get(values, COL_CLASS);
+        String ackTag = columns.get(values, COL_ACK_TAG);
+        String plcAckTag = columns.get(values, COL_PLC_ACK_TAG);
+
+        JsonObject alarm = new JsonObject();
+        alarm.addProperty("name", name);
+        alarm.addProperty("mode", "Bit");
+        alarm.addProperty("bitPosition", bitPosition);
+        alarm.addProperty("label", orEmpty(columns.get(values, COL_ALARM_TEXT)));
+        alarm.addProperty("priority", priorityOf(alarmClass));
+        // WinCC error class alarms have to be acknowledged, as do alarms with an acknowledgement tag
+        alarm.addProperty("ackMode", "Errors".equals(alarmClass) || ackTag != null || plcAckTag != null ? "Manual" : "Auto");
+
+        String infoText = columns.get(values, COL_INFO_TEXT);
+        if (infoText != null) {
+            alarm.addProperty("notes", infoText);
+        }
+
+        // everything Ignition has no setting for is kept as associated data
+        if (alarmClass != null) {
+            alarm.addProperty("alarmClass", alarmClass);
+        }
+        if (ackTag != null) {
+            alarm.addProperty("ackTag", ackTag + "." + orZero(columns.get(values, COL_ACK_BIT)));
+        }
+        if (plcAckTag != null) {
+            alarm.addProperty("plcAckTag", plcAckTag + "." + orZero(columns.get(values, COL_PLC_ACK_BIT)));
+        }
+        String group = columns.get(values, COL_GROUP);
+        if (group != null) {
+            alarm.addProperty("group", group);
+        }
+        if ("True".equalsIgnoreCase(columns.get(values, COL_REPORT))) {
+            alarm.addProperty("report", true);
+        }
+
+        CsvTagParser.normalizeAlarm(alarm);
+        return alarm;
+    }
+
+    private static String priorityOf(String alarmClass) {
+        if (alarmClass == null) {
+            return "Low";
+        }
+        switch (alarmClass) {
+            case "Errors":
+                return "High";
+            case "Warnings":
+                return "Medium";
+            case "System":
+                return "Diagnostic";
+            default:
+                return "Low";
+        }
+    }
+
+    private static Integer toInt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String orZero(String value) {
+        return value == null ? "0" : value;
+    }
+
+    /**
+     * Finds columns by the start of their header, since localized exports append the language, as in
+     * {@code Alarm text [de-DE], Alarm text}.
+     */
+    private static final class Columns {
+        private final Map<String, Integer> indexes = new LinkedHashMap<>();
+
+        private Columns(List<String> headers) throws IOException {
+            for (String column : new String[] {COL_NAME, COL_ALARM_TEXT, COL_CLASS, COL_TRIGGER_TAG, COL_TRIGGER_BIT,
+                COL_ACK_TAG, COL_ACK_BIT, COL_PLC_ACK_TAG, COL_PLC_ACK_BIT, COL_GROUP, COL_REPORT, COL_INFO_TEXT}) {
+                for (int i = 0; i < headers.size(); i++) {
+                    String header = headers.get(i).trim();
+                    if (header.equals(column) || header.startsWith(column + " ")) {
+                        indexes.put(column, i);
+                        break;
+                    }
+                }
+            }
+
+            for (String required : new String[] {COL_NAME, COL_TRIGGER_TAG, COL_TRIGGER_BIT}) {
+                if (!indexes.containsKey(required)) {
+                    throw new IOException("Not a WinCC alarm list, the '" + required + "' column is missing");
+                }
+            }
+        }
+
+        /**
+         * Returns the trimmed value of a column, or null if it is empty, missing or {@code <No value>}.
+         */
+        private String get(List<String> values, String column) {
+            Integer index = indexes.get(column);
+            if (index == null || index >= values.size()) {
+                return null;
+            }
+            String value = values.get(index).trim();
+            return value.isEmpty() || NO_VALUE.equals(value) ? null : value;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Parses Ignition's XML tag export format with a streaming StAX reader.
+ * <pre>
+ *     &lt;Tags&gt;
+ *         &lt;Tag name="Simulation" type="Folder"&gt;
+ *             &lt;Tags&gt;
+ *                 &lt;Tag name="Sinusoid" type="AtomicTag"&gt;
+ *                     &lt;Property name="valueSource"&gt;opc&lt;/Property&gt;
+ *                     &lt;CompoundProperty name="alarms"&gt;&lt;PropertySet&gt;...&lt;/PropertySet&gt;&lt;/CompoundProperty&gt;
+ *                 &lt;/Tag&gt;
+ *             &lt;/Tags&gt;
+ *         &lt;/Tag&gt;
+ *     &lt;/Tags&gt;
+ * </pre>
+ * Folders are passed on as soon as their child list starts, with their children following as separate records.
+ * Children of any other tag type, such as UDT instance members, stay embedded in their parent's definition.  A
+ * {@code Tag} without a name is passed on without one, for the import to report it as a failed record.
+ */
+public class XmlTagParser implements TagRecordParser {
+
+    @Override
+    public void parse(Reader reader, TagRecordSink sink) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        try {
+            XMLStreamReader xml = factory.createXMLStreamReader(reader);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && "Tag".equals(xml.getLocalName())) {
+                        parseTag(xml, List.of(), sink);
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid tag XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the {@code Tag} element the reader is positioned on.  When {@code sink} is null the tag and all its
+     * children are returned as one embedded definition instead of being passed on.
+     */
+    private static JsonObject parseTag(XMLStreamReader xml, List<String> parentPath, TagRecordSink sink)
+        throws XMLStreamException, IOException {
+        int row = xml.getLocation().getLineNumber();
+        JsonObject tag = new JsonObject();
+        String name = xml.getAttributeValue(null, "name");
+        if (name != null) {
+            tag.addProperty("name", name);
+        }
+        String type = xml.getAttributeValue(null, "type");
+        tag.addProperty("tagType", type == null ? "AtomicTag" : type);
+
+        // a folder without a name has no path for its children, they stay embedded and fail along with it
+        boolean folder = "Folder".equals(type) && sink != null && name != null;
+        boolean emitted = false;
+        JsonArray embeddedTags = null;
+
+        while (xml.hasNext()) {
+            int event = xml.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT && "Tag".equals(xml.getLocalName())) {
+                break;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            switch (xml.getLocalName()) {
+                case "Property":
+                    String propName = xml.getAttributeValue(null, "name");
+                    String text = xml.getElementText();
+                    if (propName != null) {
+                        tag.add(propName, ImportValues.toJson(text));
+                    }
+                    break;
+                case "CompoundProperty":
+                    if ("alarms".equals(xml.getAttributeValue(null, "name"))) {
+                        tag.add("alarms", parseAlarms(xml));
+                    }
+                    break;
+                case "Tag":
+                    if (folder) {
+                        if (!emitted) {
+                            CsvTagParser.applyTagDefaults(tag);
+                            sink.accept(new TagRecord(parentPath, tag, row));
+                            emitted = true;
+                        }
+                        parseTag(xml, childPath(parentPath, tag), sink);
+                    } else {
+                        if (embeddedTags == null) {
+                            embeddedTags = new JsonArray();
+                            tag.add("tags", embeddedTags);
+                        }
+                        embeddedTags.add(parseTag(xml, parentPath, null));
+                    }
+                    break;
+                default:
+                    // <Tags> wrappers and unknown elements carry nothing of their own
+                    break;
+            }
+        }
+
+        if (sink != null && !emitted) {
+            CsvTagParser.applyTagDefaults(tag);
+            sink.accept(new TagRecord(parentPath, tag, row));
+        }
+        return tag;
+    }
+
+    private static JsonArray parseAlarms(XMLStreamReader xml) throws XMLStreamException {
+        JsonArray alarms = new JsonArray();
+        JsonObject alarm = null;
+
+        while (xml.hasNext()) {
+            int event = xml.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT && "CompoundProperty".equals(xml.getLocalName())) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && "PropertySet".equals(xml.getLocalName())) {
+                alarm = new JsonObject();
+                alarms.add(alarm);
+            } else if (event == XMLStreamConstants.END_ELEMENT && "PropertySet".equals(xml.getLocalName())) {
+                CsvTagParser.normalizeAlarm(alarm);
+                alarm = null;
+            } else if (event == XMLStreamConstants.START_ELEMENT && "Property".equals(xml.getLocalName())
+                && alarm != null) {
+                String propName = xml.getAttributeValue(null, "name");
+                String text = xml.getElementText();
+                if (propName != null) {
+                    alarm.add(propName, ImportValues.toJson(text));
+                }
+            }
+        }
+        return alarms;
+    }
+
+    static List<String> childPath(List<String> parentPath, JsonObject folder) {
+        List<String> path = new ArrayList<>(parentPath.size() + 1);
+        path.addAll(parentPath);
+        path.add(folder.get("name").getAsString());
+        return path;
+    }
+}
@@ -0,0 +1,163 @@
+package org.fakester.gateway.importer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Writes Ignition's XML tag format, as read by {@link XmlTagParser}.  Primitive properties are written as their
+ * text, objects and arrays as JSON text, and alarms as a {@code CompoundProperty} with one {@code PropertySet} per
+ * alarm.
+ */
+public class XmlTagWriter implements TagDocumentWriter {
+    private static final String INDENT = "   ";
+
+    private final XMLStreamWriter xml;
+    private int depth = 0;
+
+    public XmlTagWriter(Writer writer) throws IOException {
+        try {
+            this.xml = XMLOutputFactory.newFactory().createXMLStreamWriter(writer);
+            xml.writeStartElement("Tags");
+            xml.writeAttribute("MinVersion", "8.0.0");
+            xml.writeAttribute("locale", "en_US");
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not start the tag XML", e);
+        }
+    }
+
+    @Override
+    public void beginFolder(JsonObject folder) throws IOException {
+        try {
+            startTag(folder);
+            newLine(1);
+            xml.writeStartElement("Tags");
+            depth += 2;
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write folder " + folder.get("name"), e);
+        }
+    }
+
+    @Override
+    public void endFolder() throws IOException {
+        try {
+            depth -= 2;
+            newLine(1);
+            xml.writeEndElement();
+            newLine(0);
+            xml.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not close a folder", e);
+        }
+    }
+
+    @Override
+    public void writeTag(JsonObject tag) throws IOException {
+        try {
+            writeTagElement(tag);
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write tag " + tag.get("name"), e);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try {
+            newLine(-1);
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not finish the tag XML", e);
+        }
+    }
+
+    private void writeTagElement(JsonObject tag) throws XMLStreamException {
+        startTag(tag);
+
+        JsonElement members = tag.get("tags");
+        if (members != null && members.isJsonArray() && members.getAsJsonArray().size() > 0) {
+            newLine(1);
+            xml.writeStartElement("Tags");
+            depth += 2;
+            for (JsonElement member : members.getAsJsonArray()) {
+                if (member.isJsonObject()) {
+                    writeTagElement(member.getAsJsonObject());
+                }
+            }
+            depth -= 2;
+            newLine(1);
+            xml.writeEndElement();
+        }
+
+        newLine(0);
+        xml.writeEndElement();
+    }
+
+    /**
+     * Opens a {@code Tag} element and writes its properties, leaving it open for children.
+     */
+    private void startTag(JsonObject tag) throws XMLStreamException {
+        newLine(0);
+        xml.writeStartElement("Tag");
+        xml.writeAttribute("name", textOf(tag.get("name")));
+        xml.writeAttribute("type", tag.has("tagType") ? textOf(tag.get("tagType")) : "AtomicTag");
+
+        for (Map.Entry<String, JsonElement> property : tag.entrySet()) {
+            String name = property.getKey();
+            if ("name".equals(name) || "tagType".equals(name) || "tags".equals(name)) {
+                continue;
+            }
+            if ("alarms".equals(name) && property.getValue().isJsonArray()) {
+                writeAlarms(property.getValue());
+            } else {
+                writeProperty(name, property.getValue(), 1);
+            }
+        }
+    }
+
+    private void writeAlarms(JsonElement alarms) throws XMLStreamException {
+        newLine(1);
+        xml.writeStartElement("CompoundProperty");
+        xml.writeAttribute("name", "alarms");
+        for (JsonElement alarm : alarms.getAsJsonArray()) {
+            if (!alarm.isJsonObject()) {
+                continue;
+            }
+            newLine(2);
+            xml.writeStartElement("PropertySet");
+            for (Map.Entry<String, JsonElement> property : alarm.getAsJsonObject().entrySet()) {
+                writeProperty(property.getKey(), property.getValue(), 3);
+            }
+            newLine(2);
+            xml.writeEndElement();
+        }
+        newLine(1);
+        xml.writeEndElement();
+    }
+
+    private void writeProperty(String name, JsonElement value, int indent) throws XMLStreamException {
+        newLine(indent);
+        xml.writeStartElement("Property");
+        xml.writeAttribute("name", name);
+        xml.writeCharacters(textOf(value));
+        xml.writeEndElement();
+    }
+
+    private void newLine(int indent) throws XMLStreamException {
+        xml.writeCharacters("\n" + INDENT.repeat(Math.max(0, depth + indent + 1)));
+    }
+
+    private static String textOf(JsonElement value) {
+        if (value == null || value.isJsonNull()) {
+            return "";
+        }
+        return value.isJsonPrimitive() ? value.getAsString() : value.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package org.fakester.gateway.logs;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+import com.inductiveautomation.ignition.common.logging.LogEvent;
+
+/**
+ * Writes log events one per line, as
+ * <pre>
+ *     2024-05-01T12:00:00.123Z INFO  gateway.SomeLogger - message
+ * </pre>
+ * Further lines of a multi-line message are indented by a tab, so every line starting without one is a new event.
+ */
+public final class LogEventFormat {
+
+    private LogEventFormat() {
+        // private constructor
+    }
+
+    public static void write(Writer writer, LogEvent event) throws IOException {
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(event.getTimestamp()), writer);
+        writer.write(' ');
+
+        String level = String.valueOf(event.getLevel());
+        writer.write(level);
+        for (int i = level.length(); i < 6; i++) {
+            writer.write(' ');
+        }
+
+        writer.write(String.valueOf(event.getLoggerName()));
+        writer.write(" - ");
+
+        String message = String.valueOf(event.getMessage());
+        int start = 0;
+        int end;
+        while ((end = message.indexOf('\n', start)) >= 0) {
+            writer.write(message, start, end - start);
+            writer.write("\n\t");
+            start = end + 1;
+        }
+        writer.write(message, start, message.length() - start);
+        writer.write('\n');
+    }
+}
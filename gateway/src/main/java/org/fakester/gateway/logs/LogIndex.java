@@ -0,0 +1,267 @@
+package org.fakester.gateway.logs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.logging.Level;
+
+/**
+ * An inverted index over the log events picked up by {@link LogTail}, searchable by the words of their message, their
+ * logger and their level.
+ *
+ * Events are grouped in buckets of {@link #BUCKET_MS}, each with its own postings, so the oldest events are dropped a
+ * whole bucket at a time once more than {@link #MAX_EVENTS} are indexed, and a search limited to a time range only
+ * looks at the buckets overlapping it.  Search is newest first.
+ */
+public final class LogIndex {
+    private static final long BUCKET_MS = Long.getLong("RadComponents.LogIndex.BucketSize", 60000L);
+    private static final int MAX_EVENTS = Integer.getInteger("RadComponents.LogIndex.MaxEvents", 100000);
+    // facet entries returned per facet, the most frequent ones
+    private static final int MAX_FACET_ENTRIES = Integer.getInteger("RadComponents.LogIndex.MaxFacetEntries", 20);
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // oldest first, guarded by lock
+    private final Deque<Bucket> buckets = new ArrayDeque<>();
+    private int size;
+
+    /**
+     * Indexes an event.  Events are expected in the order they were logged, one that is older than the newest bucket
+     * joins that bucket.
+     */
+    public void add(long timestamp, Level level, String logger, String message) {
+        Set<String> tokens = tokenize(message);
+        lock.writeLock().lock();
+        try {
+            Bucket bucket = buckets.peekLast();
+            if (bucket == null || timestamp >= bucket.start + BUCKET_MS) {
+                bucket = new Bucket(timestamp - Math.floorMod(timestamp, BUCKET_MS));
+                buckets.addLast(bucket);
+            }
+            bucket.add(new Entry(timestamp, level, logger, message), tokens);
+            size++;
+
+            while (size > MAX_EVENTS && buckets.size() > 1) {
+                size -= buckets.removeFirst().entries.size();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the newest {@code limit} events logged between {@code from} and {@code to} whose message contains all
+     * words of {@code query}, logged by {@code logger} or a logger below it if not empty, at or above {@code level}:
+     * <pre>
+     *     {
+     *         "total": &lt;number&gt;,
+     *         "matches": [{"timestamp": &lt;epoch millis&gt;, "level": "WARN", "logger": "...", "message": "..."}],
+     *         "facets": {"loggers": {"name": &lt;number&gt;, ...}, "levels": {"WARN": &lt;number&gt;, ...}},
+     *         "indexed": &lt;number&gt;,
+     *         "oldest": &lt;epoch millis&gt;
+     *     }
+     * </pre>
+     * Facets count all matches, not only the ones returned.
+     */
+    public JsonObject search(String query, String logger, Level level, long from, long to, int limit) {
+        List<String> tokens = new ArrayList<>(tokenize(query));
+        String loggerPrefix = logger == null || logger.isEmpty() ? null : logger;
+
+        int total = 0;
+        JsonArray matches = new JsonArray();
+        Map<String, Integer> loggers = new HashMap<>();
+        Map<String, Integer> levels = new TreeMap<>();
+
+        lock.readLock().lock();
+        try {
+            Iterator<Bucket> newestFirst = buckets.descendingIterator();
+            while (newestFirst.hasNext()) {
+                Bucket bucket = newestFirst.next();
+                if (bucket.start > to || bucket.start + BUCKET_MS <= from) {
+                    continue;
+                }
+
+                int[] candidates = bucket.candidates(tokens);
+                for (int i = candidates.length - 1; i >= 0; i--) {
+                    Entry entry = bucket.entries.get(candidates[i]);
+                    if (entry.timestamp < from || entry.timestamp > to
+                        || entry.level != null && level != null && entry.level.ordinal() < level.ordinal()
+                        || loggerPrefix != null && !isLoggerOrBelow(entry.logger, loggerPrefix)) {
+                        continue;
+                    }
+
+                    total++;
+                    loggers.merge(entry.logger, 1, Integer::sum);
+                    levels.merge(String.valueOf(entry.level), 1, Integer::sum);
+                    if (matches.size() < limit) {
+                        matches.add(entry.toJson());
+                    }
+                }
+            }
+
+            JsonObject json = new JsonObject();
+            json.addProperty("total", total);
+            json.add("matches", matches);
+            JsonObject facets = new JsonObject();
+            facets.add("loggers", topCounts(loggers));
+            facets.add("levels", topCounts(levels));
+            json.add("facets", facets);
+            json.addProperty("indexed", size);
+            Bucket oldest = buckets.peekFirst();
+            if (oldest != null && !oldest.entries.isEmpty()) {
+                json.addProperty("oldest", oldest.entries.get(0).timestamp);
+            }
+            return json;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isLoggerOrBelow(String name, String prefix) {
+        return name.startsWith(prefix) && (name.length() == prefix.length() || name.charAt(prefix.length()) == '.');
+    }
+
+    private static JsonObject topCounts(Map<String, Integer> counts) {
+        JsonObject json = new JsonObject();
+        counts.entrySet().stream()
+            .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
+            .limit(MAX_FACET_ENTRIES)
+            .forEach(count -> json.addProperty(count.getKey(), count.getValue()));
+        return json;
+    }
+
+    /**
+     * Splits {@code text} into its distinct lower case words, letters and digits only.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_TOKEN_LENGTH && length <= MAX_TOKEN_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase());
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Bucket {
+        private final long start;
+        private final List<Entry> entries = new ArrayList<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+
+        private Bucket(long start) {
+            this.start = start;
+        }
+
+        private void add(Entry entry, Set<String> tokens) {
+            int id = entries.size();
+            entries.add(entry);
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, t -> new Postings()).add(id);
+            }
+        }
+
+        /**
+         * Returns the ids of the entries containing all {@code tokens}, in ascending order.
+         */
+        private int[] candidates(List<String> tokens) {
+            if (tokens.isEmpty()) {
+                int[] all = new int[entries.size()];
+                Arrays.setAll(all, i -> i);
+                return all;
+            }
+
+            // intersect starting from the rarest word, so the candidates shrink as fast as possible
+            List<Postings> lists = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Postings list = postings.get(token);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+            int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            int length = result.length;
+            for (int l = 1; l < lists.size() && length > 0; l++) {
+                Postings other = lists.get(l);
+                int kept = 0;
+                int j = 0;
+                for (int i = 0; i < length; i++) {
+                    while (j < other.size && other.ids[j] < result[i]) {
+                        j++;
+                    }
+                    if (j < other.size && other.ids[j] == result[i]) {
+                        result[kept++] = result[i];
+                    }
+                }
+                length = kept;
+            }
+            return Arrays.copyOf(result, length);
+        }
+    }
+
+    /**
+     * Entry ids of one word in one bucket, ascending since ids are handed out in order.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    private static final class Entry {
+        private final long timestamp;
+        private final Level level;
+        private final String logger;
+        private final String message;
+
+        private Entry(long timestamp, Level level, String logger, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.message = message;
+        }
+
+        private JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("timestamp", timestamp);
+            json.addProperty("level", String.valueOf(level));
+            json.addProperty("logger", logger);
+            json.addProperty("message", message);
+            return json;
+        }
+    }
+}
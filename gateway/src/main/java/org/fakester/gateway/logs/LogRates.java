@@ -0,0 +1,189 @@
+package org.fakester.gateway.logs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.logging.Level;
+
+/**
+ * Rolling counts of log events per logger and level, in fixed time buckets covering the last
+ * {@code BUCKETS * BUCKET_MS}, by default an hour in ten second buckets.
+ *
+ * Counts are added as {@link LogTail} picks events up, the log is never queried again for them.  Every series is a
+ * ring of buckets that is reused as time moves on, so memory only grows with the number of distinct loggers, and at
+ * most {@link #MAX_SERIES} of those are told apart.  Events of further loggers are counted under {@link #OTHER}.
+ */
+public final class LogRates {
+    public static final String OTHER = "(other)";
+    private static final long BUCKET_MS = Long.getLong("RadComponents.LogRates.BucketSize", 10000L);
+    private static final int BUCKETS = Integer.getInteger("RadComponents.LogRates.Buckets", 360);
+    private static final int MAX_SERIES = Integer.getInteger("RadComponents.LogRates.MaxSeries", 500);
+
+    // guarded by this
+    private final Map<String, Series> series = new HashMap<>();
+
+    public synchronized void record(long timestamp, Level level, String logger) {
+        long bucket = Math.floorDiv(timestamp, BUCKET_MS);
+        if (bucket <= currentBucket() - BUCKETS) {
+            return;
+        }
+
+        String key = logger + '|' + level;
+        Series counts = series.get(key);
+        if (counts == null) {
+            if (series.size() >= MAX_SERIES) {
+                dropIdleSeries();
+            }
+            if (series.size() >= MAX_SERIES) {
+                key = OTHER + '|' + level;
+                logger = OTHER;
+                counts = series.get(key);
+            }
+            if (counts == null) {
+                counts = new Series(logger, level);
+                series.put(key, counts);
+            }
+        }
+        counts.increment(bucket);
+    }
+
+    /**
+     * Returns the counts of the last {@code buckets} buckets, oldest first, of the loggers at or below
+     * {@code loggerPrefix} (all if empty) at or above {@code level}.  Only the {@code top} series with the most events
+     * are returned, the totals over all loggers are always included:
+     * <pre>
+     *     {
+     *         "bucketMs": &lt;number&gt;,
+     *         "start": &lt;epoch millis of the first bucket&gt;,
+     *         "total": [&lt;number&gt;, ...],
+     *         "series": [{"logger": "...", "level": "WARN", "total": &lt;number&gt;, "peak": &lt;number&gt;,
+     *                     "counts": [&lt;number&gt;, ...]}]
+     *     }
+     * </pre>
+     */
+    public synchronized JsonObject toJson(String loggerPrefix, Level level, int buckets, int top) {
+        int length = Math.max(1, Math.min(buckets, BUCKETS));
+        long last = currentBucket();
+        long first = last - length + 1;
+
+        int[] total = new int[length];
+        List<Series> matching = new ArrayList<>();
+        for (Series counts : series.values()) {
+            if (level != null && counts.level != null && counts.level.ordinal() < level.ordinal()
+                || loggerPrefix != null && !loggerPrefix.isEmpty() && !isLoggerOrBelow(counts.logger, loggerPrefix)) {
+                continue;
+            }
+            counts.window = counts.window(first, length);
+            counts.windowTotal = 0;
+            for (int i = 0; i < length; i++) {
+                total[i] += counts.window[i];
+                counts.windowTotal += counts.window[i];
+            }
+            if (counts.windowTotal > 0) {
+                matching.add(counts);
+            }
+        }
+        matching.sort((a, b) -> Long.compare(b.windowTotal, a.windowTotal));
+
+        JsonArray seriesJson = new JsonArray();
+        for (Series counts : matching.subList(0, Math.min(top, matching.size()))) {
+            JsonObject json = new JsonObject();
+            json.addProperty("logger", counts.logger);
+            json.addProperty("level", String.valueOf(counts.level));
+            json.addProperty("total", counts.windowTotal);
+            int peak = 0;
+            for (int count : counts.window) {
+                peak = Math.max(peak, count);
+            }
+            json.addProperty("peak", peak);
+            json.add("counts", toArray(counts.window));
+            seriesJson.add(json);
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("bucketMs", BUCKET_MS);
+        json.addProperty("start", first * BUCKET_MS);
+        json.add("total", toArray(total));
+        json.add("series", seriesJson);
+        return json;
+    }
+
+    private static long currentBucket() {
+        return Math.floorDiv(System.currentTimeMillis(), BUCKET_MS);
+    }
+
+    /**
+     * Forgets the series without events in the window, making room for new loggers.
+     */
+    private void dropIdleSeries() {
+        long first = currentBucket() - BUCKETS + 1;
+        Iterator<Series> all = series.values().iterator();
+        while (all.hasNext()) {
+            Series counts = all.next();
+            if (!OTHER.equals(counts.logger) && counts.newestBucket < first) {
+                all.remove();
+            }
+        }
+    }
+
+    private static boolean isLoggerOrBelow(String name, String prefix) {
+        return name.startsWith(prefix) && (name.length() == prefix.length() || name.charAt(prefix.length()) == '.');
+    }
+
+    private static JsonArray toArray(int[] counts) {
+        JsonArray array = new JsonArray();
+        for (int count : counts) {
+            array.add(count);
+        }
+        return array;
+    }
+
+    private static final class Series {
+        private final String logger;
+        private final Level level;
+        // the bucket each slot currently counts, a slot holding an older one is reset before it is reused
+        private final long[] buckets = new long[BUCKETS];
+        private final int[] counts = new int[BUCKETS];
+        private long newestBucket = Long.MIN_VALUE;
+
+        // scratch space of toJson
+        private int[] window;
+        private long windowTotal;
+
+        private Series(String logger, Level level) {
+            this.logger = logger;
+            this.level = level;
+            Arrays.fill(buckets, Long.MIN_VALUE);
+        }
+
+        private void increment(long bucket) {
+            int slot = (int) Math.floorMod(bucket, (long) BUCKETS);
+            if (buckets[slot] > bucket) {
+                // the slot has moved on to a later bucket, this one is out of the window
+                return;
+            }
+            if (buckets[slot] != bucket) {
+                buckets[slot] = bucket;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+            newestBucket = Math.max(newestBucket, bucket);
+        }
+
+        private int[] window(long first, int length) {
+            int[] window = new int[length];
+            for (int i = 0; i < length; i++) {
+                long bucket = first + i;
+                int slot = (int) Math.floorMod(bucket, (long) BUCKETS);
+                window[i] = buckets[slot] == bucket ? counts[slot] : 0;
+            }
+            return window;
+        }
+    }
+}
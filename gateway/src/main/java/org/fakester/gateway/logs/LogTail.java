@@ -0,0 +1,248 @@
+package org.fakester.gateway.logs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.logging.Level;
+import com.inductiveautomation.ignition.common.logging.LogEvent;
+import com.inductiveautomation.ignition.common.logging.LogQueryConfig;
+import com.inductiveautomation.ignition.common.logging.LogResults;
+import com.inductiveautomation.ignition.gateway.logging.LoggingManager;
+
+/**
+ * The newest gateway log events, kept in a ring buffer that readers page through with a cursor.
+ *
+ * Every refresh only queries the events newer than the newest one already kept, the high-water mark, so polling it
+ * costs the new events rather than a whole time window.  Each event gets a sequence number, and a reader's cursor is
+ * the sequence number it wants next.  A reader that falls more than {@link #CAPACITY} events behind is told how many
+ * it missed.  Every event kept is also added to a {@link LogIndex}, which keeps far more of them for searching, and
+ * counted in {@link LogRates}.
+ *
+ * A query returns at most {@link #CAPACITY} events.  A window that fills a query may hold more, so it is split in
+ * halves that are read oldest first, until every part fits or is a single millisecond.  Events beyond the limit within
+ * one millisecond cannot be read, every such window is counted as a truncation.  A refresh stops after
+ * {@link #MAX_QUERIES} queries, the next one continues from the newest event it got to.
+ */
+public final class LogTail {
+    public static final int CAPACITY = Integer.getInteger("RadComponents.LogTail.Capacity", 5000);
+    // how far back the first refresh looks
+    private static final long INITIAL_WINDOW_MS = Long.getLong("RadComponents.LogTail.InitialWindow", 900000L);
+    // refreshes closer together than this return the events already kept
+    private static final long MIN_REFRESH_INTERVAL_MS = Long.getLong("RadComponents.LogTail.MinRefreshInterval", 500L);
+    // upper bound of log queries one refresh makes while catching up on a burst
+    private static final int MAX_QUERIES = Integer.getInteger("RadComponents.LogTail.MaxQueriesPerRefresh", 32);
+    private static final Level MIN_LEVEL = Level.valueOf(System.getProperty("RadComponents.LogTail.Level", "INFO"));
+    private static final Level[] LEVELS = Level.values();
+
+    private final LoggingManager loggingManager;
+    private final Record[] records = new Record[CAPACITY];
+    private final LogIndex index = new LogIndex();
+    private final LogRates rates = new LogRates();
+    // logger names repeat on almost every event, keep one copy of each
+    private final ConcurrentMap<String, String> loggerNames = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private long nextSeq;
+    private long watermark = System.currentTimeMillis() - INITIAL_WINDOW_MS;
+    private final Set<Record> atWatermark = new HashSet<>();
+    private long lastRefresh;
+    private long truncated;
+
+    public LogTail(LoggingManager loggingManager) {
+        this.loggingManager = loggingManager;
+    }
+
+    /**
+     * Appends the events logged since the last refresh.
+     */
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        if (now - lastRefresh < MIN_REFRESH_INTERVAL_MS) {
+            return;
+        }
+        lastRefresh = now;
+
+        // windows still to read, oldest first, both ends included like the query's
+        Deque<long[]> windows = new ArrayDeque<>();
+        windows.push(new long[] {watermark, now});
+        for (int queries = 0; !windows.isEmpty() && queries < MAX_QUERIES; queries++) {
+            long[] window = windows.pop();
+            List<LogEvent> events = query(window[0], window[1]);
+
+            if (events.size() >= CAPACITY) {
+                if (window[0] < window[1]) {
+                    long middle = window[0] + (window[1] - window[0]) / 2;
+                    windows.push(new long[] {middle + 1, window[1]});
+                    windows.push(new long[] {window[0], middle});
+                    continue;
+                }
+                truncated++;
+            }
+            append(events);
+        }
+    }
+
+    private List<LogEvent> query(long from, long to) {
+        LogQueryConfig config = LogQueryConfig.newBuilder().betweenTime(from, to)
+            .atOrAbove(MIN_LEVEL)
+            .limitTo(CAPACITY)
+            .build();
+        LogResults results = loggingManager.queryLogEvents(config);
+        if (results == null || results.getEvents() == null) {
+            return List.of();
+        }
+        return results.getEvents();
+    }
+
+    private void append(List<LogEvent> events) {
+        List<Record> fresh = new ArrayList<>(events.size());
+        for (LogEvent event : events) {
+            fresh.add(new Record(event.getTimestamp(), event.getLevel(),
+                loggerNames.computeIfAbsent(String.valueOf(event.getLoggerName()), name -> name),
+                String.valueOf(event.getMessage())));
+        }
+        fresh.sort(Comparator.comparingLong(record -> record.timestamp));
+
+        for (Record record : fresh) {
+            // the query includes the mark itself, skip the events at it that were already kept
+            if (record.timestamp < watermark || record.timestamp == watermark && atWatermark.contains(record)) {
+                continue;
+            }
+            if (record.timestamp > watermark) {
+                watermark = record.timestamp;
+                atWatermark.clear();
+            }
+            atWatermark.add(record);
+
+            record.seq = nextSeq++;
+            records[(int) (record.seq % CAPACITY)] = record;
+            index.add(record.timestamp, record.level, record.logger, record.message);
+            rates.record(record.timestamp, record.level, record.logger);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} events at or above {@code level}, starting at sequence number {@code cursor}, or
+     * the newest {@code limit} events if {@code cursor} is negative:
+     * <pre>
+     *     {
+     *         "events": [{"seq": &lt;number&gt;, "timestamp": &lt;epoch millis&gt;, "level": "INFO", "logger": "...",
+     *                     "message": "..."}],
+     *         "nextCursor": &lt;number&gt;,
+     *         "dropped": &lt;number&gt;,
+     *         "truncated": &lt;number&gt;
+     *     }
+     * </pre>
+     * {@code dropped} is the number of events that left the buffer before the reader got to them.  {@code truncated}
+     * is {@link #getTruncated()}, events lost that way never got a sequence number, so they are not part of
+     * {@code dropped}.
+     */
+    public synchronized JsonObject read(long cursor, int limit, Level level) {
+        long oldest = Math.max(0L, nextSeq - CAPACITY);
+        long start = cursor < 0 ? Math.max(oldest, nextSeq - limit) : Math.min(cursor, nextSeq);
+        long dropped = 0;
+        if (start < oldest) {
+            dropped = oldest - start;
+            start = oldest;
+        }
+
+        JsonArray events = new JsonArray();
+        long seq = start;
+        while (seq < nextSeq && events.size() < limit) {
+            Record record = records[(int) (seq % CAPACITY)];
+            if (record.level == null || record.level.ordinal() >= level.ordinal()) {
+                events.add(record.toJson());
+            }
+            seq++;
+        }
+
+        JsonObject json = new JsonObject();
+        json.add("events", events);
+        json.addProperty("nextCursor", seq);
+        json.addProperty("dropped", dropped);
+        json.addProperty("truncated", truncated);
+        return json;
+    }
+
+    /**
+     * Returns how often, since the gateway started, more events were logged within one millisecond than a query
+     * returns, so that some of them were never read.  A reader that sees it grow knows the log has gaps.
+     */
+    public synchronized long getTruncated() {
+        return truncated;
+    }
+
+    public LogIndex getIndex() {
+        return index;
+    }
+
+    public LogRates getRates() {
+        return rates;
+    }
+
+    /**
+     * Returns the sequence number the next event will get, the cursor of a reader that is up to date.
+     */
+    public synchronized long head() {
+        return nextSeq;
+    }
+
+    public static Level parseLevel(String level) {
+        for (Level candidate : LEVELS) {
+            if (candidate.name().equalsIgnoreCase(level)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Unknown log level '" + level + "'");
+    }
+
+    private static final class Record {
+        private final long timestamp;
+        private final Level level;
+        private final String logger;
+        private final String message;
+        private long seq;
+
+        private Record(long timestamp, Level level, String logger, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.message = message;
+        }
+
+        private JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("seq", seq);
+            json.addProperty("timestamp", timestamp);
+            json.addProperty("level", String.valueOf(level));
+            json.addProperty("logger", logger);
+            json.addProperty("message", message);
+            return json;
+        }
+
+        // identity of an event within one millisecond, the sequence number is not part of it
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Record)) {
+                return false;
+            }
+            Record other = (Record) o;
+            return timestamp == other.timestamp && level == other.level && logger.equals(other.logger)
+                && message.equals(other.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Long.hashCode(timestamp) * 31 + logger.hashCode()) * 31 + message.hashCode();
+        }
+    }
+}
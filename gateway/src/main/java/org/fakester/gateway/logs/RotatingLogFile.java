@@ -0,0 +1,204 @@
+package org.fakester.gateway.logs;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A log file that is appended to until it is larger than {@code maxBytes} or older than {@code maxAgeMs}, then
+ * renamed with the time of the rotation, such as {@code system-logs-20240501-120000.log.gz}.  Only the newest
+ * {@code maxFiles} rotated files are kept.
+ *
+ * Compressed files are appended to as further gzip members, which gzip and {@code GZIPInputStream} read as one.
+ * The time the active file was started is kept next to it in {@code <baseName>.started}, since file systems that do
+ * not keep a creation time report the last modification instead, which an appended file never lets grow old.
+ */
+public final class RotatingLogFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter ROTATED_AT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final String baseName;
+    private final String extension;
+    private final boolean gzip;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final int maxFiles;
+
+    public RotatingLogFile(Path directory, String baseName, boolean gzip, long maxBytes, long maxAgeMs, int maxFiles) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.extension = gzip ? ".log.gz" : ".log";
+        this.gzip = gzip;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        this.maxFiles = maxFiles;
+    }
+
+    public Path getActiveFile() {
+        return directory.resolve(baseName + extension);
+    }
+
+    /**
+     * Opens the active file for appending, rotating it first if it is due.  Only one appender should be open at a
+     * time.
+     */
+    public Appender append() throws IOException {
+        Files.createDirectories(directory);
+        Path active = getActiveFile();
+
+        if (Files.exists(active)) {
+            long ageMs = System.currentTimeMillis() - startedAt();
+            if (Files.size(active) >= maxBytes || ageMs >= maxAgeMs) {
+                rotate();
+            }
+        }
+        return new Appender();
+    }
+
+    private Path getStartedFile() {
+        return directory.resolve(baseName + ".started");
+    }
+
+    /**
+     * Returns when the active file was started.  A file from before the start was recorded counts as started now.
+     */
+    private long startedAt() throws IOException {
+        Path started = getStartedFile();
+        if (Files.exists(started)) {
+            try {
+                return Long.parseLong(Files.readString(started, StandardCharsets.UTF_8).trim());
+            } catch (NumberFormatException e) {
+                // rewritten below
+            }
+        }
+        return markStarted();
+    }
+
+    private long markStarted() throws IOException {
+        long now = System.currentTimeMillis();
+        Files.writeString(getStartedFile(), Long.toString(now), StandardCharsets.UTF_8);
+        return now;
+    }
+
+    private void rotate() throws IOException {
+        Path active = getActiveFile();
+        String stamp = LocalDateTime.now().format(ROTATED_AT);
+        Path rotated = directory.resolve(baseName + "-" + stamp + extension);
+        for (int i = 1; Files.exists(rotated); i++) {
+            rotated = directory.resolve(baseName + "-" + stamp + "-" + i + extension);
+        }
+        Files.move(active, rotated, StandardCopyOption.ATOMIC_MOVE);
+        deleteOldest();
+    }
+
+    private void deleteOldest() throws IOException {
+        List<Path> rotated = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, baseName + "-*" + extension)) {
+            files.forEach(rotated::add);
+        }
+
+        // the names sort by the time they were rotated at
+        Collections.sort(rotated);
+        for (int i = 0; i < rotated.size() - maxFiles; i++) {
+            Files.deleteIfExists(rotated.get(i));
+        }
+    }
+
+    /**
+     * Writes to the active file, moving on to a new one whenever a record ends with the file over its size limit.
+     * Sizes are counted as they reach the disk, so a file may exceed the limit by what is still buffered.
+     */
+    public final class Appender extends Writer {
+        private CountingOutputStream counter;
+        private Writer writer;
+
+        private Appender() throws IOException {
+            open();
+        }
+
+        private void open() throws IOException {
+            Path active = getActiveFile();
+            long existing = Files.exists(active) ? Files.size(active) : 0L;
+            if (existing == 0L) {
+                markStarted();
+            }
+            counter = new CountingOutputStream(Files.newOutputStream(active, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND), existing);
+            OutputStream out = gzip ? new GZIPOutputStream(counter, BUFFER_SIZE) : counter;
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        /**
+         * Marks the end of a record, the point at which the file may be rotated.
+         */
+        public void endRecord() throws IOException {
+            if (counter.count >= maxBytes) {
+                writer.close();
+                rotate();
+                open();
+            }
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            writer.write(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            writer.write(text, offset, length);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            writer.write(c);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out, long count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+}
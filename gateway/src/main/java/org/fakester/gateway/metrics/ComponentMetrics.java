@@ -0,0 +1,62 @@
+package org.fakester.gateway.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * The metrics of one component type's model delegates: events received from the client and how long handling them
+ * took, and events pushed back and their size.
+ *
+ * Measuring a payload means serializing it a second time, so only every {@link #PAYLOAD_SAMPLE_RATE}th one is.
+ */
+public final class ComponentMetrics {
+    private static final int PAYLOAD_SAMPLE_RATE = Integer.getInteger("RadComponents.Metrics.PayloadSampleRate", 16);
+
+    private final RateMeter eventsIn;
+    private final Histogram handleLatency;
+    private final RateMeter eventsOut;
+    private final Histogram payloadSize;
+    private final LongAdder unsampled = new LongAdder();
+
+    private ComponentMetrics(String componentType) {
+        this.eventsIn = ModuleMetrics.rate("delegate_events", "component", componentType,
+            "Events received by model delegates from the client");
+        this.handleLatency = ModuleMetrics.histogram("delegate_event_latency", "component", componentType,
+            "Time model delegates spend handling a client event", Histogram.Unit.NANOSECONDS);
+        this.eventsOut = ModuleMetrics.rate("delegate_pushes", "component", componentType,
+            "Events pushed by model delegates to the client");
+        this.payloadSize = ModuleMetrics.histogram("delegate_push_size", "component", componentType,
+            "Serialized size of a sample of the events pushed to the client", Histogram.Unit.BYTES);
+    }
+
+    /**
+     * Returns the metrics of {@code componentType}, the delegates of one type share them.
+     */
+    public static ComponentMetrics of(String componentType) {
+        return new ComponentMetrics(componentType);
+    }
+
+    /**
+     * Counts a received event, returning the start time to pass to {@link #eventHandled(long)}.
+     */
+    public long eventReceived() {
+        eventsIn.mark();
+        return System.nanoTime();
+    }
+
+    public void eventHandled(long startNanos) {
+        handleLatency.recordSince(startNanos);
+    }
+
+    public void eventPushed(JsonObject payload) {
+        eventsOut.mark();
+
+        unsampled.increment();
+        if (unsampled.sum() >= PAYLOAD_SAMPLE_RATE) {
+            unsampled.reset();
+            payloadSize.record(payload == null ? 0 : payload.toString().getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+}
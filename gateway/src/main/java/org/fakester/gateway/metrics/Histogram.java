@@ -0,0 +1,163 @@
+package org.fakester.gateway.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * A distribution of long values, such as latencies in nanoseconds or payload sizes in bytes.
+ *
+ * Values are counted in log-linear buckets, eight per power of two, so a percentile read from it is within 12.5% of
+ * the recorded value.  Every bucket is a {@link LongAdder}, which spreads contended updates over per-thread cells:
+ * recording takes no lock and allocates nothing once a bucket's cells exist.
+ */
+public final class Histogram extends Metric {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values up to 2^44, some 4.8 hours in nanoseconds, larger ones land in the last bucket
+    private static final int BUCKET_COUNT = (44 - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final Unit unit;
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * What the recorded values are, and how they are reported.
+     */
+    public enum Unit {
+        // recorded in nanoseconds, reported in milliseconds as json and in seconds to Prometheus
+        NANOSECONDS(1e-6, 1e-9, "seconds"),
+        BYTES(1, 1, "bytes");
+
+        private final double jsonScale;
+        private final double prometheusScale;
+        private final String prometheusSuffix;
+
+        Unit(double jsonScale, double prometheusScale, String prometheusSuffix) {
+            this.jsonScale = jsonScale;
+            this.prometheusScale = prometheusScale;
+            this.prometheusSuffix = prometheusSuffix;
+        }
+    }
+
+    Histogram(MetricKey key, String help, Unit unit) {
+        super(key, help);
+        this.unit = unit;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        long clamped = Math.max(0L, value);
+        buckets[indexOf(clamped)].increment();
+        count.increment();
+        sum.add(clamped);
+        max.accumulate(clamped);
+    }
+
+    /**
+     * Records the time passed since {@code startNanos}, a value of {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        int index = ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | subBucket;
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Returns the largest value counted in the bucket at {@code index}.
+     */
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index & (SUB_BUCKETS - 1);
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the value below which {@code quantile} of the recorded values fall, or 0 if nothing was recorded.
+     */
+    long valueAt(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private long[] bucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    JsonObject toJson() {
+        long[] counts = bucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("count", count.sum());
+        json.addProperty("unit", unit == Unit.NANOSECONDS ? "ms" : "bytes");
+        json.addProperty("mean", total == 0 ? 0 : sum.sum() * unit.jsonScale / count.sum());
+        json.addProperty("p50", valueAt(counts, total, 0.5) * unit.jsonScale);
+        json.addProperty("p90", valueAt(counts, total, 0.9) * unit.jsonScale);
+        json.addProperty("p99", valueAt(counts, total, 0.99) * unit.jsonScale);
+        json.addProperty("max", max.get() * unit.jsonScale);
+        return json;
+    }
+
+    @Override
+    String prometheusType() {
+        return "summary";
+    }
+
+    @Override
+    String prometheusName() {
+        return key.getName() + "_" + unit.prometheusSuffix;
+    }
+
+    @Override
+    void writePrometheus(StringBuilder out) {
+        long[] counts = bucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+
+        String name = prometheusName();
+        for (double quantile : new double[] {0.5, 0.9, 0.99}) {
+            out.append(name).append(key.labels("quantile", Double.toString(quantile))).append(' ')
+                .append(valueAt(counts, total, quantile) * unit.prometheusScale).append('\n');
+        }
+        out.append(name).append("_sum").append(key.labels()).append(' ')
+            .append(sum.sum() * unit.prometheusScale).append('\n');
+        out.append(name).append("_count").append(key.labels()).append(' ').append(count.sum()).append('\n');
+    }
+}
@@ -0,0 +1,32 @@
+package org.fakester.gateway.metrics;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * A named measurement kept by {@link ModuleMetrics}.
+ */
+abstract class Metric {
+    final MetricKey key;
+    final String help;
+
+    Metric(MetricKey key, String help) {
+        this.key = key;
+        this.help = help;
+    }
+
+    abstract JsonObject toJson();
+
+    abstract String prometheusType();
+
+    /**
+     * Returns the name of the metric family in the Prometheus text format, which carries the unit.
+     */
+    String prometheusName() {
+        return key.getName();
+    }
+
+    /**
+     * Appends the samples of this metric in the Prometheus text format, without the HELP and TYPE lines.
+     */
+    abstract void writePrometheus(StringBuilder out);
+}
@@ -0,0 +1,74 @@
+package org.fakester.gateway.metrics;
+
+import java.util.Objects;
+
+/**
+ * The name of a metric and its optional label, such as {@code delegate_events{component="rad.display.tagcounter"}}.
+ */
+final class MetricKey implements Comparable<MetricKey> {
+    private final String name;
+    private final String labelName;
+    private final String labelValue;
+
+    MetricKey(String name, String labelName, String labelValue) {
+        this.name = ModuleMetrics.PREFIX + name;
+        this.labelName = labelName;
+        this.labelValue = labelValue;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the label set in the Prometheus text format, empty if there is no label.
+     */
+    String labels() {
+        return labelName == null ? "" : "{" + labelName + "=\"" + escape(labelValue) + "\"}";
+    }
+
+    /**
+     * Returns the label set with one more label, for the quantiles of a summary.
+     */
+    String labels(String extraName, String extraValue) {
+        String extra = extraName + "=\"" + escape(extraValue) + "\"";
+        return labelName == null ? "{" + extra + "}"
+            : "{" + labelName + "=\"" + escape(labelValue) + "\"," + extra + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public int compareTo(MetricKey other) {
+        int byName = name.compareTo(other.name);
+        if (byName != 0) {
+            return byName;
+        }
+        return toString().compareTo(other.toString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MetricKey)) {
+            return false;
+        }
+        MetricKey other = (MetricKey) o;
+        return name.equals(other.name) && Objects.equals(labelName, other.labelName)
+            && Objects.equals(labelValue, other.labelValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, labelName, labelValue);
+    }
+
+    @Override
+    public String toString() {
+        return name + labels();
+    }
+}
@@ -0,0 +1,86 @@
+package org.fakester.gateway.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * The module's metrics, by name.
+ *
+ * Metrics are looked up once, when the class or object recording them is created, and kept in a field; recording is
+ * then a few uncontended adds.  The numbers are served by the {@code /component/metrics} route, as json or in the
+ * Prometheus text format.
+ */
+public final class ModuleMetrics {
+    static final String PREFIX = "radcomponents_";
+
+    private static final Map<MetricKey, Metric> METRICS = new ConcurrentSkipListMap<>();
+
+    private ModuleMetrics() {
+        // static only
+    }
+
+    public static Histogram histogram(String name, String help, Histogram.Unit unit) {
+        return histogram(name, null, null, help, unit);
+    }
+
+    public static Histogram histogram(String name, String labelName, String labelValue, String help,
+                                      Histogram.Unit unit) {
+        return (Histogram) METRICS.computeIfAbsent(new MetricKey(name, labelName, labelValue),
+            key -> new Histogram(key, help, unit));
+    }
+
+    public static RateMeter rate(String name, String help) {
+        return rate(name, null, null, help);
+    }
+
+    public static RateMeter rate(String name, String labelName, String labelValue, String help) {
+        return (RateMeter) METRICS.computeIfAbsent(new MetricKey(name, labelName, labelValue),
+            key -> new RateMeter(key, help));
+    }
+
+    /**
+     * Returns every metric under its name and label, as in
+     * <pre>
+     *     {
+     *         "uptimeSeconds": &lt;number&gt;,
+     *         "metrics": {
+     *             "radcomponents_tag_read_latency": {"count": 10, "unit": "ms", "mean": 0.8, "p50": 0.6, ...},
+     *             "radcomponents_delegate_events{component=\"rad.display.tagcounter\"}": {"total": 5, "perSecond": 0.1}
+     *         }
+     *     }
+     * </pre>
+     */
+    public static JsonObject toJson() {
+        JsonObject metrics = new JsonObject();
+        for (Metric metric : METRICS.values()) {
+            metrics.add(metric.key.toString(), metric.toJson());
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("uptimeSeconds", ManagementFactory.getRuntimeMXBean().getUptime() / 1000);
+        json.add("metrics", metrics);
+        return json;
+    }
+
+    /**
+     * Returns every metric in the Prometheus text exposition format, version 0.0.4.
+     */
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        String family = null;
+        for (Metric metric : METRICS.values()) {
+            // the map is sorted by name, so the samples of a family follow each other
+            String name = metric.prometheusName();
+            if (!name.equals(family)) {
+                family = name;
+                out.append("# HELP ").append(name).append(' ').append(metric.help).append('\n');
+                out.append("# TYPE ").append(name).append(' ').append(metric.prometheusType()).append('\n');
+            }
+            metric.writePrometheus(out);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package org.fakester.gateway.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Counts events, and their rate over the last minute.
+ *
+ * The rate is kept in a ring of one second slots, each a {@link LongAdder} stamped with the second it counts.  The
+ * first event of a second resets the slot it reuses, so marking takes no lock and allocates nothing.  An event racing
+ * that reset may be lost from the rate, never from the total.
+ */
+public final class RateMeter extends Metric {
+    private static final int SLOTS = 61;
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder[] slots = new LongAdder[SLOTS];
+    private final AtomicLongArray stamps = new AtomicLongArray(SLOTS);
+    private final long createdSecond = currentSecond();
+
+    RateMeter(MetricKey key, String help) {
+        super(key, help);
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new LongAdder();
+            stamps.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public void mark() {
+        mark(1L);
+    }
+
+    public void mark(long events) {
+        total.add(events);
+
+        long second = currentSecond();
+        int slot = (int) Math.floorMod(second, (long) SLOTS);
+        long stamp = stamps.get(slot);
+        if (stamp != second && stamps.compareAndSet(slot, stamp, second)) {
+            slots[slot].reset();
+        }
+        slots[slot].add(events);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the events per second over the last full minute, or the time since creation if that is shorter.
+     */
+    public double perSecond() {
+        long now = currentSecond();
+        long events = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            long age = now - stamps.get(i);
+            // the current second is still being counted
+            if (age >= 1 && age < SLOTS) {
+                events += slots[i].sum();
+            }
+        }
+        long seconds = Math.min(SLOTS - 1, now - createdSecond);
+        return seconds <= 0 ? 0d : (double) events / seconds;
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    @Override
+    JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("total", getTotal());
+        json.addProperty("perSecond", perSecond());
+        return json;
+    }
+
+    @Override
+    String prometheusType() {
+        return "counter";
+    }
+
+    @Override
+    String prometheusName() {
+        return key.getName() + "_total";
+    }
+
+    @Override
+    void writePrometheus(StringBuilder out) {
+        out.append(prometheusName()).append(key.labels()).append(' ').append(getTotal()).append('\n');
+    }
+}
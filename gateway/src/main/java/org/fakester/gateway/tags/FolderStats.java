@@ -0,0 +1,193 @@
+package org.fakester.gateway.tags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonElement;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+
+/**
+ * Tag statistics of one folder, counting everything below it.  Counts are filled in by {@link FolderStatsWalker}
+ * while it walks the folder and are not changed once the walk has finished.
+ */
+public final class FolderStats {
+    private final String name;
+    private final String path;
+    private final List<FolderStats> children = new ArrayList<>();
+
+    private long folders;
+    private long tags;
+    private long udtInstances;
+    private long alarms;
+    private long opcTags;
+    private long memoryTags;
+    private long expressionTags;
+    private long otherTags;
+    private long configBytes;
+    private long failures;
+    private String error;
+
+    FolderStats(String name, String path) {
+        this.name = name;
+        this.path = path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getTags() {
+        return tags;
+    }
+
+    /**
+     * Counts the tags of an exported batch of this folder's tags.  {@code export} is the provider's json export,
+     * either a single tag or an object holding a {@code tags} list.
+     */
+    synchronized void addExport(JsonElement export, long bytes) {
+        configBytes += bytes;
+        if (export == null || !export.isJsonObject()) {
+            return;
+        }
+
+        JsonObject object = export.getAsJsonObject();
+        JsonElement list = object.get("tags");
+        if (!object.has("name") && list != null && list.isJsonArray()) {
+            for (JsonElement tag : list.getAsJsonArray()) {
+                if (tag.isJsonObject()) {
+                    addTag(tag.getAsJsonObject());
+                }
+            }
+        } else {
+            addTag(object);
+        }
+    }
+
+    private void addTag(JsonObject tag) {
+        String tagType = stringOf(tag.get("tagType"), "AtomicTag");
+        if ("UdtInstance".equals(tagType)) {
+            // an instance exports only what it overrides, so its members are not counted
+            udtInstances++;
+            return;
+        }
+        if (!"AtomicTag".equals(tagType)) {
+            return;
+        }
+
+        tags++;
+        switch (stringOf(tag.get("valueSource"), "memory")) {
+            case "opc":
+                opcTags++;
+                break;
+            case "memory":
+                memoryTags++;
+                break;
+            case "expr":
+                expressionTags++;
+                break;
+            default:
+                otherTags++;
+        }
+
+        JsonElement tagAlarms = tag.get("alarms");
+        if (tagAlarms != null && tagAlarms.isJsonArray()) {
+            alarms += tagAlarms.getAsJsonArray().size();
+        }
+    }
+
+    synchronized void addFailure(String message) {
+        failures++;
+        if (error == null) {
+            error = message;
+        }
+    }
+
+    /**
+     * Adds a finished child folder, its counts are added to this folder's.
+     */
+    synchronized void addChild(FolderStats child) {
+        children.add(child);
+        folders += 1 + child.folders;
+        tags += child.tags;
+        udtInstances += child.udtInstances;
+        alarms += child.alarms;
+        opcTags += child.opcTags;
+        memoryTags += child.memoryTags;
+        expressionTags += child.expressionTags;
+        otherTags += child.otherTags;
+        configBytes += child.configBytes;
+        failures += child.failures;
+    }
+
+    synchronized void sortChildren() {
+        children.sort(Comparator.comparing(FolderStats::getName, String.CASE_INSENSITIVE_ORDER));
+    }
+
+    /**
+     * Returns the folder at {@code relativePath} below this one, or null if there is none.
+     */
+    public FolderStats find(List<String> relativePath) {
+        FolderStats folder = this;
+        for (String childName : relativePath) {
+            FolderStats next = null;
+            for (FolderStats child : folder.getChildren()) {
+                if (child.name.equalsIgnoreCase(childName)) {
+                    next = child;
+                    break;
+                }
+            }
+            if (next == null) {
+                return null;
+            }
+            folder = next;
+        }
+        return folder;
+    }
+
+    public synchronized List<FolderStats> getChildren() {
+        return Collections.unmodifiableList(new ArrayList<>(children));
+    }
+
+    /**
+     * Returns the counts, with the child folders nested up to {@code depth} levels deep.  A negative depth nests
+     * all of them.
+     */
+    public synchronized JsonObject toJson(int depth) {
+        JsonObject json = new JsonObject();
+        json.addProperty("name", name);
+        json.addProperty("path", path);
+        json.addProperty("folders", folders);
+        json.addProperty("tags", tags);
+        json.addProperty("udtInstances", udtInstances);
+        json.addProperty("alarms", alarms);
+        json.addProperty("opcTags", opcTags);
+        json.addProperty("memoryTags", memoryTags);
+        json.addProperty("expressionTags", expressionTags);
+        json.addProperty("otherTags", otherTags);
+        json.addProperty("configBytes", configBytes);
+        json.addProperty("failures", failures);
+        if (error != null) {
+            json.addProperty("error", error);
+        }
+
+        if (depth != 0 && !children.isEmpty()) {
+            JsonArray childJson = new JsonArray();
+            for (FolderStats child : children) {
+                childJson.add(child.toJson(depth - 1));
+            }
+            json.add("children", childJson);
+        }
+        return json;
+    }
+
+    private static String stringOf(JsonElement element, String defaultValue) {
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : defaultValue;
+    }
+}
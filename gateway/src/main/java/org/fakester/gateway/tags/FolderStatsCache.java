@@ -0,0 +1,195 @@
+package org.fakester.gateway.tags;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+
+/**
+ * Keeps the last {@link FolderStats} of every folder asked for, walking the folder again in the background once they
+ * are older than {@link #MAX_AGE_MS}.
+ *
+ * Only one walk per folder runs at a time.  A folder below one that was already walked is answered from that walk's
+ * result while it is fresh.
+ */
+public class FolderStatsCache {
+    // how long folder statistics are served before the folder is walked again
+    private static final long MAX_AGE_MS = Long.getLong("RadComponents.FolderStats.CacheDuration", 300000L);
+    // how long a request for a folder without statistics yet waits for the first walk
+    private static final long FIRST_WALK_WAIT_MS = Long.getLong("RadComponents.FolderStats.FirstWalkWait", 2000L);
+    // upper bound of folders kept, the least recently requested one is dropped beyond it
+    private static final int MAX_ENTRIES = Integer.getInteger("RadComponents.FolderStats.MaxEntries", 64);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final TagAccessCache tagAccess;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public FolderStatsCache(TagAccessCache tagAccess) {
+        this.tagAccess = tagAccess;
+    }
+
+    /**
+     * Returns the statistics of {@code folderPath} as of its last walk, starting a walk if they are stale.  Before
+     * the first walk has finished this waits up to {@link #FIRST_WALK_WAIT_MS} for it, then returns without
+     * statistics.
+     */
+    public JsonObject get(String folderPath, int depth) throws IOException {
+        return get(folderPath, depth, FIRST_WALK_WAIT_MS);
+    }
+
+    /**
+     * Like {@link #get(String, int)}, waiting at most {@code firstWalkWaitMs} for the first walk.
+     */
+    public JsonObject get(String folderPath, int depth, long firstWalkWaitMs) throws IOException {
+        TagPath path = tagAccess.parse(folderPath);
+        String key = path.toStringFull();
+
+        JsonObject fromAncestor = fromAncestor(key, depth);
+        if (fromAncestor != null) {
+            return fromAncestor;
+        }
+
+        TagProvider provider = tagAccess.provider(TagReadCoalescer.providerNameOf(path));
+        if (provider == null) {
+            throw new IllegalArgumentException("Tag provider for '" + folderPath + "' was not found");
+        }
+
+        Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+        entry.lastRequested = System.currentTimeMillis();
+        CompletableFuture<FolderStats> walk = entry.refreshIfStale(provider, path);
+        evictIfFull();
+
+        if (entry.stats == null && entry.error == null && walk != null && firstWalkWaitMs > 0) {
+            try {
+                walk.get(firstWalkWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                // reported by the entry once the walk has ended
+            }
+        }
+        return entry.toJson(key, entry.stats, depth);
+    }
+
+    /**
+     * Answers a folder from the fresh statistics of a folder above it, if there is one.
+     */
+    private JsonObject fromAncestor(String key, int depth) {
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            String ancestorKey = cached.getKey();
+            Entry entry = cached.getValue();
+            FolderStats stats = entry.stats;
+
+            if (stats == null || entry.isStale() || !isBelow(key, ancestorKey)) {
+                continue;
+            }
+
+            String relative = key.substring(ancestorKey.length());
+            if (relative.startsWith("/")) {
+                relative = relative.substring(1);
+            }
+            List<String> names = Arrays.asList(relative.split("/"));
+            FolderStats folder = stats.find(names);
+            if (folder != null) {
+                return entry.toJson(key, folder, depth);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBelow(String key, String ancestorKey) {
+        if (!key.startsWith(ancestorKey) || key.length() == ancestorKey.length()) {
+            return false;
+        }
+        // a provider root ends with its closing bracket, a folder needs the separator
+        return ancestorKey.endsWith("]") || key.charAt(ancestorKey.length()) == '/';
+    }
+
+    private void evictIfFull() {
+        while (entries.size() > MAX_ENTRIES) {
+            Map.Entry<String, Entry> oldest = null;
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().walk == null
+                    && (oldest == null || entry.getValue().lastRequested < oldest.getValue().lastRequested)) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            entries.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private final class Entry {
+        private volatile FolderStats stats;
+        private volatile String error;
+        private volatile long timestamp;
+        private volatile long durationMs;
+        private volatile long lastRequested;
+        private volatile CompletableFuture<FolderStats> walk;
+
+        private boolean isStale() {
+            return timestamp == 0 || System.currentTimeMillis() - timestamp > MAX_AGE_MS;
+        }
+
+        /**
+         * Starts a walk unless one is running or the statistics are fresh, returning the running walk if any.
+         */
+        private synchronized CompletableFuture<FolderStats> refreshIfStale(TagProvider provider, TagPath path) {
+            if (walk != null || !isStale()) {
+                return walk;
+            }
+
+            long start = System.currentTimeMillis();
+            CompletableFuture<FolderStats> started = FolderStatsWalker.walk(provider, path);
+            walk = started;
+            started.whenComplete((result, e) -> {
+                synchronized (this) {
+                    if (e != null) {
+                        logger.warn("Counting the tags below {} failed", path, e);
+                        error = "Browsing failed: " + e.getMessage();
+                    } else {
+                        stats = result;
+                        error = null;
+                    }
+                    durationMs = System.currentTimeMillis() - start;
+                    timestamp = System.currentTimeMillis();
+                    walk = null;
+                }
+            });
+            // a walk that finished right away has already cleared itself
+            return walk;
+        }
+
+        private JsonObject toJson(String path, FolderStats folder, int depth) {
+            JsonObject json = new JsonObject();
+            json.addProperty("path", path);
+            json.addProperty("ageMs", timestamp == 0 ? -1 : System.currentTimeMillis() - timestamp);
+            json.addProperty("durationMs", durationMs);
+            synchronized (this) {
+                json.addProperty("refreshing", walk != null);
+            }
+            if (error != null) {
+                json.addProperty("error", error);
+            }
+            if (folder != null) {
+                json.add("stats", folder.toJson(depth));
+            }
+            return json;
+        }
+    }
+}
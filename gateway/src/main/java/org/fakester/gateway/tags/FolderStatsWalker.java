@@ -0,0 +1,182 @@
+package org.fakester.gateway.tags;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.inductiveautomation.ignition.common.browsing.BrowseFilter;
+import com.inductiveautomation.ignition.common.browsing.Results;
+import com.inductiveautomation.ignition.common.gson.JsonParser;
+import com.inductiveautomation.ignition.common.tags.browsing.NodeDescription;
+import com.inductiveautomation.ignition.common.tags.config.types.TagObjectType;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+
+/**
+ * Walks a folder tree and counts its tags, browsing sibling folders in parallel.
+ *
+ * Every folder is browsed on its own, the child folders found are walked at once and the folder's result is joined
+ * from theirs when all of them have finished.  Browsing only tells tags and folders apart, so the other tags of a
+ * folder are exported in batches to count their alarms and value sources.  No more than {@link #MAX_OUTSTANDING}
+ * browse and export requests of one walk are sent to the provider at a time; the others wait their turn without
+ * holding a thread.
+ */
+public class FolderStatsWalker {
+    // browse and export requests one walk may have outstanding with the provider
+    private static final int MAX_OUTSTANDING = Integer.getInteger("RadComponents.FolderStats.MaxOutstanding", 16);
+    // tags exported per request when counting a folder's alarms and value sources
+    private static final int EXPORT_BATCH_SIZE = Integer.getInteger("RadComponents.FolderStats.ExportBatchSize", 500);
+    private static final long REQUEST_TIMEOUT_MS = Long.getLong("RadComponents.FolderStats.RequestTimeout", 60000L);
+
+    private static final JsonParser PARSER = new JsonParser();
+
+    private final TagProvider provider;
+    private final RequestLimiter limiter = new RequestLimiter(MAX_OUTSTANDING);
+
+    private FolderStatsWalker(TagProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Counts the tags below {@code folderPath}, a folder or a provider.  The returned future fails only if
+     * {@code folderPath} itself cannot be browsed, failures further down are counted in the folder they happened in.
+     */
+    public static CompletableFuture<FolderStats> walk(TagProvider provider, TagPath folderPath) {
+        String name = folderPath.getItemName();
+        if (name == null || name.isEmpty()) {
+            name = provider.getName();
+        }
+        return new FolderStatsWalker(provider).walkFolder(folderPath, name);
+    }
+
+    private CompletableFuture<FolderStats> walkFolder(TagPath folderPath, String name) {
+        FolderStats stats = new FolderStats(name, folderPath.toStringFull());
+
+        return limiter.submit(() -> provider.browseAsync(folderPath, new BrowseFilter()))
+            .thenComposeAsync(results -> {
+                List<CompletableFuture<?>> work = new ArrayList<>();
+                List<CompletableFuture<FolderStats>> children = new ArrayList<>();
+                List<TagPath> batch = new ArrayList<>();
+
+                for (NodeDescription child : resultsOf(results)) {
+                    TagPath childPath = folderPath.getChildPath(child.getName());
+                    if (child.getObjectType() == TagObjectType.Folder) {
+                        children.add(walkFolder(childPath, child.getName()).exceptionally(e -> {
+                            FolderStats failed = new FolderStats(child.getName(), childPath.toStringFull());
+                            failed.addFailure("Browsing failed: " + rootCause(e));
+                            return failed;
+                        }));
+                    } else {
+                        batch.add(childPath);
+                        if (batch.size() >= EXPORT_BATCH_SIZE) {
+                            work.add(exportBatch(folderPath, batch, stats));
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    work.add(exportBatch(folderPath, batch, stats));
+                }
+                work.addAll(children);
+
+                return CompletableFuture.allOf(work.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+                    for (CompletableFuture<FolderStats> child : children) {
+                        stats.addChild(child.join());
+                    }
+                    stats.sortChildren();
+                    return stats;
+                });
+            }, ForkJoinPool.commonPool());
+    }
+
+    private CompletableFuture<Void> exportBatch(TagPath folderPath, List<TagPath> paths, FolderStats stats) {
+        return limiter.submit(() -> provider.exportTagsAsync(folderPath, paths, "json"))
+            .thenAcceptAsync(json -> {
+                if (json != null && !json.isEmpty()) {
+                    stats.addExport(PARSER.parse(json), json.getBytes(StandardCharsets.UTF_8).length);
+                }
+            }, ForkJoinPool.commonPool())
+            .exceptionally(e -> {
+                stats.addFailure("Exporting " + paths.size() + " tags failed: " + rootCause(e));
+                return null;
+            });
+    }
+
+    private static Collection<NodeDescription> resultsOf(Results<NodeDescription> results) {
+        if (results == null || results.getResults() == null) {
+            return List.of();
+        }
+        return results.getResults();
+    }
+
+    private static String rootCause(Throwable e) {
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    /**
+     * Starts provider requests as long as fewer than {@code maxOutstanding} are running and queues the rest, starting
+     * the next one whenever a request finishes.
+     */
+    private static final class RequestLimiter {
+        private final int maxOutstanding;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int outstanding;
+
+        private RequestLimiter(int maxOutstanding) {
+            this.maxOutstanding = Math.max(1, maxOutstanding);
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Runnable start = () -> {
+                CompletableFuture<T> future;
+                try {
+                    future = request.get().orTimeout(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((value, e) -> {
+                    release();
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            };
+
+            synchronized (this) {
+                if (outstanding >= maxOutstanding) {
+                    waiting.add(start);
+                    return result;
+                }
+                outstanding++;
+            }
+            start.run();
+            return result;
+        }
+
+        private void release() {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    outstanding--;
+                    return;
+                }
+            }
+            // the finished request keeps its slot for the next one, started off this thread to keep stacks flat
+            ForkJoinPool.commonPool().execute(next);
+        }
+    }
+}
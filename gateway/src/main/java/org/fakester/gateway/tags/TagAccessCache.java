@@ -0,0 +1,108 @@
+package org.fakester.gateway.tags;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.inductiveautomation.ignition.common.tags.model.SecurityContext;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+import com.inductiveautomation.ignition.common.tags.paths.parser.TagPathParser;
+import com.inductiveautomation.ignition.common.user.SecurityLevelsConfig;
+import com.inductiveautomation.ignition.gateway.model.GatewayContext;
+
+/**
+ * Caches the objects needed for every tag operation: parsed {@link TagPath}s, {@link TagProvider}s by name and the
+ * {@link SecurityContext} built from the gateway's security levels.
+ *
+ * The security context and providers are rebuilt only when the security level configuration is replaced.
+ */
+public class TagAccessCache {
+    // upper bound of parsed paths kept, reached only if clients keep requesting new paths
+    private static final int MAX_PARSED_PATHS = Integer.getInteger("RadComponents.TagPathCache.MaxSize", 10000);
+
+    private final GatewayContext context;
+    private final ConcurrentMap<String, TagPath> parsedPaths = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TagProvider> providers = new ConcurrentHashMap<>();
+    private volatile SecurityState securityState;
+
+    public TagAccessCache(GatewayContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns the parsed form of {@code tagPathStr}, parsing it only the first time it is seen.
+     */
+    public TagPath parse(String tagPathStr) throws IOException {
+        TagPath tagPath = parsedPaths.get(tagPathStr);
+        if (tagPath != null) {
+            return tagPath;
+        }
+
+        tagPath = TagPathParser.parse(tagPathStr);
+        if (parsedPaths.size() >= MAX_PARSED_PATHS) {
+            evictOne();
+        }
+        parsedPaths.put(tagPathStr, tagPath);
+        return tagPath;
+    }
+
+    /**
+     * Returns the named provider, or null if no such provider is running.
+     */
+    public TagProvider provider(String providerName) {
+        refreshSecurityState();
+
+        TagProvider provider = providers.get(providerName);
+        if (provider == null) {
+            provider = context.getTagManager().getTagProvider(providerName);
+            if (provider != null) {
+                providers.put(providerName, provider);
+            }
+        }
+        return provider;
+    }
+
+    /**
+     * Forgets a cached provider, e.g. after a request against it failed because it was restarted.
+     */
+    public void invalidateProvider(String providerName) {
+        providers.remove(providerName);
+    }
+
+    public SecurityContext securityContext() {
+        return refreshSecurityState().securityContext;
+    }
+
+    private SecurityState refreshSecurityState() {
+        SecurityLevelsConfig config = context.getSecurityLevelManager().getSecurityLevelsConfig();
+        SecurityState state = securityState;
+
+        // the manager hands out a new config instance when levels are edited, so identity is enough to spot a change
+        if (state == null || state.config != config) {
+            state = new SecurityState(config, SecurityContext.fromSecurityLevels(config));
+            securityState = state;
+            providers.clear();
+        }
+        return state;
+    }
+
+    private void evictOne() {
+        Iterator<String> keys = parsedPaths.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static final class SecurityState {
+        private final SecurityLevelsConfig config;
+        private final SecurityContext securityContext;
+
+        private SecurityState(SecurityLevelsConfig config, SecurityContext securityContext) {
+            this.config = config;
+            this.securityContext = securityContext;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package org.fakester.gateway.tags;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.browsing.BrowseFilter;
+import com.inductiveautomation.ignition.common.browsing.Results;
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.sqltags.model.types.DataType;
+import com.inductiveautomation.ignition.common.tags.browsing.NodeDescription;
+import com.inductiveautomation.ignition.common.tags.config.types.TagObjectType;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+import com.inductiveautomation.ignition.common.tags.model.event.TagStructureEvent;
+import com.inductiveautomation.ignition.common.tags.model.event.TagStructureListener;
+import com.inductiveautomation.ignition.gateway.model.GatewayContext;
+
+/**
+ * Keeps the children of browsed folders sorted by name, so a large folder can be listed a page at a time without
+ * being browsed again for every page.
+ *
+ * A folder is browsed the first time it is asked for, once however many requests ask at the same time, and kept
+ * until the provider reports a structure change in it.  Pages are addressed by a cursor holding the last name of the
+ * previous page, so paging through a folder that changed in between neither repeats nor skips the nodes that stayed.
+ */
+public class TagBrowseIndex {
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("RadComponents.BrowseIndex.PageSize", 200);
+    private static final int MAX_PAGE_SIZE = Integer.getInteger("RadComponents.BrowseIndex.MaxPageSize", 1000);
+    // upper bound of folders kept, the least recently requested one is dropped beyond it
+    private static final int MAX_FOLDERS = Integer.getInteger("RadComponents.BrowseIndex.MaxFolders", 256);
+    // a folder is browsed again after this long even without a structure change, for providers that report none
+    private static final long MAX_AGE_MS = Long.getLong("RadComponents.BrowseIndex.MaxAge", 600000L);
+    private static final long BROWSE_TIMEOUT_MS = Long.getLong("RadComponents.BrowseIndex.BrowseTimeout", 30000L);
+
+    private static final Comparator<Node> NAME_ORDER =
+        Comparator.comparing((Node node) -> node.name, String.CASE_INSENSITIVE_ORDER).thenComparing(node -> node.name);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final GatewayContext context;
+    private final TagAccessCache tagAccess;
+    private final ConcurrentMap<String, Folder> folders = new ConcurrentHashMap<>();
+
+    public TagBrowseIndex(GatewayContext context, TagAccessCache tagAccess) {
+        this.context = context;
+        this.tagAccess = tagAccess;
+    }
+
+    /**
+     * Returns up to {@code limit} children of {@code folderPath} following {@code cursor}, the {@code nextCursor} of
+     * the previous page or null for the first one:
+     * <pre>
+     *     {
+     *         "path": "[default]Folder",
+     *         "total": &lt;number&gt;,
+     *         "ageMs": &lt;number&gt;,
+     *         "nodes": [{"name": "...", "path": "...", "type": "AtomicTag", "dataType": "Int4", "hasChildren": false}],
+     *         "nextCursor": "..."
+     *     }
+     * </pre>
+     * {@code nextCursor} is missing on the last page.
+     */
+    public JsonObject page(String folderPath, String cursor, int limit) throws IOException {
+        TagPath path = tagAccess.parse(folderPath);
+        Folder folder = folderOf(path);
+        Node[] nodes = folder.await();
+
+        int from = cursor == null || cursor.isEmpty() ? 0 : indexAfter(nodes, decodeCursor(cursor));
+        int to = Math.min(nodes.length, from + Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+
+        JsonArray page = new JsonArray();
+        for (int i = from; i < to; i++) {
+            page.add(nodes[i].toJson(folder.key));
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("path", folder.key);
+        json.addProperty("total", nodes.length);
+        json.addProperty("ageMs", System.currentTimeMillis() - folder.loadedAt);
+        json.add("nodes", page);
+        if (to < nodes.length) {
+            json.addProperty("nextCursor", encodeCursor(nodes[to - 1].name));
+        }
+        return json;
+    }
+
+    /**
+     * Returns how many children {@code folderPath} has, browsing it only if it is not indexed yet.
+     */
+    public CompletableFuture<Integer> childCount(TagPath folderPath) {
+        return folderOf(folderPath).load.thenApply(nodes -> nodes.length);
+    }
+
+    public void shutdown() {
+        for (Folder folder : folders.values()) {
+            invalidate(folder);
+        }
+    }
+
+    private Folder folderOf(TagPath path) {
+        String key = path.toStringFull();
+        while (true) {
+            Folder folder = folders.get(key);
+            if (folder != null && folder.isStale()) {
+                invalidate(folder);
+                folder = null;
+            }
+
+            if (folder == null) {
+                folder = folders.computeIfAbsent(key, k -> new Folder(path, k));
+                evictIfFull();
+            }
+
+            if (folder.browseOnce()) {
+                folder.lastRequested = System.currentTimeMillis();
+                return folder;
+            }
+            // dropped by a concurrent invalidation before it was browsed, start over with a fresh one
+        }
+    }
+
+    /**
+     * Drops {@code folder} and the folders below it, which a rename or removal of a folder in it has also changed.
+     */
+    private void invalidateBelow(Folder folder) {
+        invalidate(folder);
+        for (Folder other : folders.values()) {
+            if (folder.path.isAncestorOf(other.path)) {
+                invalidate(other);
+            }
+        }
+    }
+
+    private void invalidate(Folder folder) {
+        if (folders.remove(folder.key, folder)) {
+            folder.drop();
+        }
+    }
+
+    private void evictIfFull() {
+        while (folders.size() > MAX_FOLDERS) {
+            Folder oldest = null;
+            for (Folder folder : folders.values()) {
+                if (folder.isLoaded() && (oldest == null || folder.lastRequested < oldest.lastRequested)) {
+                    oldest = folder;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            invalidate(oldest);
+        }
+    }
+
+    private static int indexAfter(Node[] nodes, String name) {
+        Node probe = new Node(name, null, null, false);
+        int low = 0;
+        int high = nodes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (NAME_ORDER.compare(nodes[middle], probe) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static String encodeCursor(String name) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor '" + cursor + "'", e);
+        }
+    }
+
+    private static Node[] toSortedNodes(Results<NodeDescription> results) {
+        if (results == null || results.getResults() == null) {
+            return new Node[0];
+        }
+
+        Node[] nodes = results.getResults().stream()
+            .map(node -> new Node(node.getName(), node.getObjectType(), node.getDataType(), node.hasChildren()))
+            .toArray(Node[]::new);
+        Arrays.sort(nodes, NAME_ORDER);
+        return nodes;
+    }
+
+    private final class Folder implements TagStructureListener {
+        private final TagPath path;
+        private final String key;
+        private volatile CompletableFuture<Node[]> load;
+        private volatile long loadedAt;
+        private volatile long lastRequested;
+        // guarded by this, set once the folder left the index
+        private boolean dropped;
+
+        private Folder(TagPath path, String key) {
+            this.path = path;
+            this.key = key;
+        }
+
+        /**
+         * Starts the browse unless it already started.  Returns false if the folder was dropped from the index before
+         * it was browsed, a dropped folder must not register a listener nobody would remove again.
+         */
+        private synchronized boolean browseOnce() {
+            if (load != null) {
+                return true;
+            }
+            if (dropped) {
+                return false;
+            }
+
+            TagProvider provider = tagAccess.provider(TagReadCoalescer.providerNameOf(path));
+            if (provider == null) {
+                invalidate(this);
+                throw new IllegalArgumentException("Tag provider for '" + key + "' was not found");
+            }
+
+            // listen first, so a change during the browse is not missed
+            context.getTagManager().addTagStructureListener(path, this);
+            load = provider.browseAsync(path, new BrowseFilter()).thenApply(TagBrowseIndex::toSortedNodes);
+            load.whenComplete((nodes, e) -> {
+                loadedAt = System.currentTimeMillis();
+                if (e != null) {
+                    logger.warn("Browsing {} failed", key, e);
+                    // let the next request browse again
+                    invalidate(this);
+                }
+            });
+            return true;
+        }
+
+        private synchronized void drop() {
+            dropped = true;
+            // removing a listener that was never added is harmless, leaving one behind is not
+            context.getTagManager().removeTagStructureListener(path, this);
+        }
+
+        private boolean isLoaded() {
+            CompletableFuture<Node[]> current = load;
+            return current != null && current.isDone();
+        }
+
+        private boolean isStale() {
+            return isLoaded() && System.currentTimeMillis() - loadedAt > MAX_AGE_MS;
+        }
+
+        private Node[] await() throws IOException {
+            try {
+                return load.get(BROWSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Browsing " + key + " was interrupted", e);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IOException("Browsing " + key + " failed", e);
+            }
+        }
+
+        @Override
+        public void tagStructureChanged(TagStructureEvent event) {
+            logger.debug("Structure of {} changed, dropping its index", key);
+            invalidateBelow(this);
+        }
+    }
+
+    private static final class Node {
+        private final String name;
+        private final TagObjectType type;
+        private final DataType dataType;
+        private final boolean hasChildren;
+
+        private Node(String name, TagObjectType type, DataType dataType, boolean hasChildren) {
+            this.name = name;
+            this.type = type;
+            this.dataType = dataType;
+            this.hasChildren = hasChildren;
+        }
+
+        private JsonObject toJson(String folderKey) {
+            JsonObject json = new JsonObject();
+            json.addProperty("name", name);
+            // a provider root ends with its closing bracket, a folder needs the separator
+            json.addProperty("path", folderKey.endsWith("]") ? folderKey + name : folderKey + "/" + name);
+            json.addProperty("type", type == null ? null : type.name());
+            if (dataType != null) {
+                json.addProperty("dataType", dataType.name());
+            }
+            json.addProperty("hasChildren", hasChildren);
+            return json;
+        }
+    }
+}
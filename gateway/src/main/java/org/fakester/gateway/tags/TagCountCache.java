@@ -0,0 +1,164 @@
+package org.fakester.gateway.tags;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+import com.inductiveautomation.ignition.common.tags.model.TagProviderInformation;
+import com.inductiveautomation.ignition.gateway.model.GatewayContext;
+
+/**
+ * Holds the last tag count of every provider and refreshes it in the background once it is older than
+ * {@link #MAX_AGE_MS}.
+ *
+ * Callers always get the last count right away.  At most one refresh runs at a time, it asks every provider for its
+ * status at once and publishes the new counts when the last one has answered.  A provider that fails or does not
+ * answer within {@link #PROVIDER_TIMEOUT_MS} keeps its previous count.
+ */
+public class TagCountCache {
+    // how long a count is served before a refresh is started
+    private static final long MAX_AGE_MS = Long.getLong("RadComponents.TagCounter.CacheDuration", 30000L);
+    // how long a refresh waits for a single provider's status
+    private static final long PROVIDER_TIMEOUT_MS = Long.getLong("RadComponents.TagCounter.ProviderTimeout", 10000L);
+
+    // payload members that change without the counts changing
+    private static final String[] VOLATILE_KEYS = {"ageMs", "durationMs", "refreshing"};
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final GatewayContext context;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), 0L);
+
+    public TagCountCache(GatewayContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns the last counts, starting a refresh first if they are stale and none is running.
+     */
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        if (current.isStale()) {
+            refresh();
+        }
+        return current;
+    }
+
+    private void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            Map<String, Long> previous = snapshot.counts;
+            Map<String, CompletableFuture<Long>> pending = new LinkedHashMap<>();
+
+            for (TagProvider provider : context.getTagManager().getTagProviders()) {
+                String name = provider.getName();
+                Long fallback = previous.get(name);
+                pending.put(name, provider.getStatusInformation()
+                    .orTimeout(PROVIDER_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    .thenApply(TagCountCache::countOf)
+                    .exceptionally(e -> {
+                        logger.debug("Counting the tags of provider '{}' failed", name, e);
+                        return fallback;
+                    }));
+            }
+
+            CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, e) -> {
+                    Map<String, Long> counts = new TreeMap<>();
+                    pending.forEach((name, future) -> {
+                        Long count = future.getNow(null);
+                        if (count != null) {
+                            counts.put(name, count);
+                        }
+                    });
+                    snapshot = new Snapshot(Collections.unmodifiableMap(counts), System.currentTimeMillis());
+                    refreshing.set(false);
+                });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            logger.warn("Starting a tag count refresh failed", e);
+        }
+    }
+
+    /**
+     * Returns an entity tag for a tag count or folder statistics payload.  The tag covers the counts only, not their
+     * age, so it changes only when the counts do.
+     */
+    public static String entityTagOf(JsonObject payload) {
+        JsonObject counts = payload.deepCopy();
+        for (String volatileKey : VOLATILE_KEYS) {
+            counts.remove(volatileKey);
+        }
+        return '"' + Integer.toHexString(counts.toString().hashCode()) + '"';
+    }
+
+    private static Long countOf(TagProviderInformation information) {
+        return information == null ? null : (long) information.getTagCount();
+    }
+
+    /**
+     * Tag counts by provider name, sorted by name, as of {@link #getTimestamp()}.
+     */
+    public static final class Snapshot {
+        private final Map<String, Long> counts;
+        private final long timestamp;
+
+        private Snapshot(Map<String, Long> counts, long timestamp) {
+            this.counts = counts;
+            this.timestamp = timestamp;
+        }
+
+        public long getTotal() {
+            long total = 0;
+            for (long count : counts.values()) {
+                total += count;
+            }
+            return total;
+        }
+
+        public Map<String, Long> getCounts() {
+            return counts;
+        }
+
+        /**
+         * Returns when the counts were taken, or 0 if they never were.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the age of the counts in milliseconds, or -1 if they were never taken.
+         */
+        public long getAgeMs() {
+            return timestamp == 0 ? -1 : System.currentTimeMillis() - timestamp;
+        }
+
+        private boolean isStale() {
+            return timestamp == 0 || System.currentTimeMillis() - timestamp > MAX_AGE_MS;
+        }
+
+        public JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("tagCount", getTotal());
+            json.addProperty("ageMs", getAgeMs());
+
+            JsonObject providers = new JsonObject();
+            counts.forEach(providers::addProperty);
+            json.add("providers", providers);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.fakester.gateway.tags;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import com.inductiveautomation.ignition.common.browsing.BrowseFilter;
+import com.inductiveautomation.ignition.common.browsing.Results;
+import com.inductiveautomation.ignition.common.tags.browsing.NodeDescription;
+import com.inductiveautomation.ignition.common.tags.config.types.TagObjectType;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+
+/**
+ * A glob over tag paths relative to a folder, such as {@code Line*}{@code /Temperature} or {@code **}{@code /Alarm?}.
+ *
+ * {@code *} matches any part of one path element, {@code **} any number of folder levels and {@code ?} a single
+ * character.  Matching ignores case, as tag paths do.  Folders and UDT instances are searched, only the tags inside
+ * them match.
+ */
+public final class TagPathGlob {
+    // how many folders of one level are browsed at the same time
+    private static final int BROWSE_PARALLELISM = Integer.getInteger("RadComponents.TagGlob.BrowseParallelism", 16);
+    private static final long BROWSE_TIMEOUT_MS = Long.getLong("RadComponents.TagGlob.BrowseTimeout", 30000L);
+
+    private final String glob;
+    private final Pattern pattern;
+    // folder levels below the base the glob can reach, or -1 if it contains '**'
+    private final int maxDepth;
+
+    private TagPathGlob(String glob, Pattern pattern, int maxDepth) {
+        this.glob = glob;
+        this.pattern = pattern;
+        this.maxDepth = maxDepth;
+    }
+
+    public static TagPathGlob compile(String glob) {
+        if (glob == null || glob.isEmpty()) {
+            throw new IllegalArgumentException("The glob must not be empty");
+        }
+
+        StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                // '**/' also matches no folder at all
+                boolean folderLevels = i + 2 < glob.length() && glob.charAt(i + 2) == '/';
+                regex.append(folderLevels ? "(?:.*/)?" : ".*");
+                i += folderLevels ? 3 : 2;
+                continue;
+            }
+
+            if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+            i++;
+        }
+
+        int maxDepth = glob.contains("**") ? -1 : (int) glob.chars().filter(c -> c == '/').count();
+        return new TagPathGlob(glob, Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE), maxDepth);
+    }
+
+    public boolean matches(String relativePath) {
+        return pattern.matcher(relativePath).matches();
+    }
+
+    /**
+     * Browses below {@code folder} one level at a time and returns the matching tags, in browse order within a
+     * level.  Fails with an {@link IllegalArgumentException} once more than {@code maxPaths} tags match.
+     */
+    public List<TagPath> resolve(TagProvider provider, TagPath folder, int maxPaths) throws IOException {
+        List<TagPath> matches = new ArrayList<>();
+        List<Container> level = List.of(new Container(folder, ""));
+
+        for (int depth = 0; !level.isEmpty(); depth++) {
+            boolean descend = maxDepth < 0 || depth < maxDepth;
+            List<Container> next = new ArrayList<>();
+
+            for (int from = 0; from < level.size(); from += BROWSE_PARALLELISM) {
+                List<Container> group = level.subList(from, Math.min(level.size(), from + BROWSE_PARALLELISM));
+                List<CompletableFuture<Results<NodeDescription>>> browses = new ArrayList<>(group.size());
+                for (Container container : group) {
+                    browses.add(provider.browseAsync(container.path, new BrowseFilter()));
+                }
+
+                for (int i = 0; i < group.size(); i++) {
+                    Container container = group.get(i);
+                    for (NodeDescription node : await(browses.get(i), container.path)) {
+                        String relativePath = container.relativePath.isEmpty()
+                            ? node.getName() : container.relativePath + "/" + node.getName();
+                        TagObjectType type = node.getObjectType();
+
+                        if (type == TagObjectType.Folder || type == TagObjectType.UdtInstance) {
+                            if (descend) {
+                                next.add(new Container(container.path.getChildPath(node.getName()), relativePath));
+                            }
+                        } else if (type == TagObjectType.AtomicTag && matches(relativePath)) {
+                            if (matches.size() >= maxPaths) {
+                                throw new IllegalArgumentException("'" + glob + "' matches more than " + maxPaths
+                                    + " tags below " + folder.toStringFull());
+                            }
+                            matches.add(container.path.getChildPath(node.getName()));
+                        }
+                    }
+                }
+            }
+            level = next;
+        }
+        return matches;
+    }
+
+    private static Iterable<NodeDescription> await(CompletableFuture<Results<NodeDescription>> browse, TagPath path)
+        throws IOException {
+        Results<NodeDescription> results;
+        try {
+            results = browse.get(BROWSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Browsing " + path + " was interrupted", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Browsing " + path + " failed", e);
+        }
+        return results == null || results.getResults() == null ? List.of() : results.getResults();
+    }
+
+    private static final class Container {
+        private final TagPath path;
+        private final String relativePath;
+
+        private Container(TagPath path, String relativePath) {
+            this.path = path;
+            this.relativePath = relativePath;
+        }
+    }
+}
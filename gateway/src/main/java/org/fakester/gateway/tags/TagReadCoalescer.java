@@ -0,0 +1,241 @@
+package org.fakester.gateway.tags;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.model.values.BasicQualifiedValue;
+import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
+import com.inductiveautomation.ignition.common.model.values.QualityCode;
+import com.inductiveautomation.ignition.common.tags.model.SecurityContext;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+
+/**
+ * Merges tag reads that arrive within a short window into a single {@code readAsync} call per tag provider.
+ *
+ * Every delegate polling the same handful of tags ends up in the same batch, and a path requested by several
+ * callers in one window is only read once.  Reads made on behalf of a user are batched apart from the gateway's own
+ * and every other user's, so the provider checks each read against the security context it was made with.
+ */
+public class TagReadCoalescer {
+    public static final String DEFAULT_PROVIDER = "default";
+
+    // how long the first read of a batch waits for others to join it
+    private static final long WINDOW_MS = Long.getLong("RadComponents.TagRead.CoalesceWindow", 5L);
+    // a batch is sent right away once it holds this many distinct paths
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("RadComponents.TagRead.MaxBatchSize", 500);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final TagAccessCache tagAccess;
+    private final ConcurrentMap<BatchKey, Batch> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RadComponents-TagReadCoalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TagReadCoalescer(TagAccessCache tagAccess) {
+        this.tagAccess = tagAccess;
+    }
+
+    /**
+     * Queues a read of a single path.  The returned future completes once the batch it joined has been read.  Each
+     * caller gets its own copy, so timing it out or cancelling it does not affect others reading the same path.
+     */
+    public CompletableFuture<QualifiedValue> read(TagPath tagPath) {
+        return read(tagPath, null);
+    }
+
+    /**
+     * Like {@link #read(TagPath)}, reading with {@code securityContext} instead of the gateway's own if it is not
+     * null.
+     */
+    public CompletableFuture<QualifiedValue> read(TagPath tagPath, SecurityContext securityContext) {
+        BatchKey key = new BatchKey(providerNameOf(tagPath), securityContext);
+
+        while (true) {
+            Batch batch;
+            try {
+                batch = pending.computeIfAbsent(key, this::newBatch);
+            } catch (RejectedExecutionException e) {
+                // the module is shutting down, nothing would ever flush the batch
+                return CompletableFuture.failedFuture(new IllegalStateException("Tag reads are shut down", e));
+            }
+            CompletableFuture<QualifiedValue> future = batch.add(tagPath);
+
+            if (future != null) {
+                if (batch.size() >= MAX_BATCH_SIZE) {
+                    flush(key, batch);
+                }
+                return future.copy();
+            }
+
+            // the batch was sealed by a concurrent flush, drop it and start a new one
+            pending.remove(key, batch);
+        }
+    }
+
+    /**
+     * Queues reads of several paths at once, results are returned in the same order as the given paths.
+     */
+    public CompletableFuture<List<QualifiedValue>> readAll(List<TagPath> tagPaths) {
+        return readAll(tagPaths, null);
+    }
+
+    /**
+     * Like {@link #readAll(List)}, reading with {@code securityContext} unless it is null.
+     */
+    public CompletableFuture<List<QualifiedValue>> readAll(List<TagPath> tagPaths, SecurityContext securityContext) {
+        List<CompletableFuture<QualifiedValue>> futures = new ArrayList<>(tagPaths.size());
+        for (TagPath tagPath : tagPaths) {
+            futures.add(read(tagPath, securityContext));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<QualifiedValue> values = new ArrayList<>(futures.size());
+            for (CompletableFuture<QualifiedValue> future : futures) {
+                values.add(future.join());
+            }
+            return values;
+        });
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public static String providerNameOf(TagPath tagPath) {
+        String source = tagPath.getSource();
+        return source == null || source.isEmpty() ? DEFAULT_PROVIDER : source;
+    }
+
+    private Batch newBatch(BatchKey key) {
+        Batch batch = new Batch();
+        scheduler.schedule(() -> flush(key, batch), WINDOW_MS, TimeUnit.MILLISECONDS);
+        return batch;
+    }
+
+    private void flush(BatchKey key, Batch batch) {
+        pending.remove(key, batch);
+        String providerName = key.providerName;
+        Map<TagPath, CompletableFuture<QualifiedValue>> entries = batch.seal();
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+
+        // every caller waits on its entry, so whatever goes wrong below must still complete all of them
+        try {
+            TagProvider provider = tagAccess.provider(providerName);
+            if (provider == null) {
+                entries.values().forEach(f -> f.complete(new BasicQualifiedValue(null, QualityCode.Bad_NotFound)));
+                return;
+            }
+
+            SecurityContext securityContext = key.securityContext != null
+                ? key.securityContext
+                : tagAccess.securityContext();
+            List<TagPath> tagPaths = new ArrayList<>(entries.keySet());
+
+            provider.readAsync(tagPaths, securityContext).whenComplete((values, error) -> {
+                if (error != null) {
+                    logger.warn("Reading {} tags from provider '{}' failed", tagPaths.size(), providerName, error);
+                    tagAccess.invalidateProvider(providerName);
+                    failAll(entries, error);
+                    return;
+                }
+
+                try {
+                    int count = values == null ? 0 : Math.min(values.size(), tagPaths.size());
+                    for (int i = 0; i < count; i++) {
+                        entries.get(tagPaths.get(i)).complete(values.get(i));
+                    }
+                    if (count < tagPaths.size()) {
+                        logger.warn("Provider '{}' returned {} values for {} tags", providerName, count,
+                            tagPaths.size());
+                        failAll(entries, new IllegalStateException("Provider '" + providerName + "' returned "
+                            + count + " values for " + tagPaths.size() + " tags"));
+                    }
+                } catch (RuntimeException e) {
+                    failAll(entries, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Reading {} tags from provider '{}' failed", entries.size(), providerName, e);
+            failAll(entries, e);
+        }
+    }
+
+    /**
+     * Fails the entries that have not been completed yet.
+     */
+    private static void failAll(Map<TagPath, CompletableFuture<QualifiedValue>> entries, Throwable error) {
+        entries.values().forEach(f -> f.completeExceptionally(error));
+    }
+
+    /**
+     * The provider and security context a batch reads with.  Contexts are compared by identity, an authenticated
+     * caller keeps the same one between requests while its login is cached.
+     */
+    private static final class BatchKey {
+        private final String providerName;
+        private final SecurityContext securityContext;
+
+        private BatchKey(String providerName, SecurityContext securityContext) {
+            this.providerName = providerName;
+            this.securityContext = securityContext;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey other = (BatchKey) o;
+            return providerName.equals(other.providerName) && securityContext == other.securityContext;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * providerName.hashCode() + System.identityHashCode(securityContext);
+        }
+    }
+
+    /**
+     * Reads collected for one provider during one window.  Once sealed no further paths can join.
+     */
+    private static final class Batch {
+        private final Map<TagPath, CompletableFuture<QualifiedValue>> entries = new LinkedHashMap<>();
+        private boolean sealed = false;
+
+        synchronized CompletableFuture<QualifiedValue> add(TagPath tagPath) {
+            if (sealed) {
+                return null;
+            }
+            return entries.computeIfAbsent(tagPath, p -> new CompletableFuture<>());
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized Map<TagPath, CompletableFuture<QualifiedValue>> seal() {
+            if (sealed) {
+                return null;
+            }
+            sealed = true;
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.fakester.gateway.tags;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.event.TagChangeEvent;
+import com.inductiveautomation.ignition.common.tags.model.event.TagChangeListener;
+import com.inductiveautomation.ignition.gateway.model.GatewayContext;
+
+/**
+ * Shares one tag subscription per distinct path between every component that wants its value.
+ *
+ * Paths are reference counted, the underlying subscription is created for the first listener and removed when the
+ * last one is released.  Listeners joining an existing subscription are sent the last known value right away.  A path
+ * the tag system failed to subscribe is forgotten again, so a later subscriber retries it.
+ */
+public class TagSubscriptionManager {
+
+    /**
+     * Receives value changes of subscribed tags.  Called on the tag system's event thread, so implementations should
+     * hand off any slow work.
+     */
+    public interface TagValueListener {
+        void valueChanged(TagPath tagPath, QualifiedValue value);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final GatewayContext context;
+    // guarded by 'this', subscribe and release are rare compared to value changes
+    private final Map<TagPath, SharedSubscription> subscriptions = new HashMap<>();
+
+    public TagSubscriptionManager(GatewayContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Adds {@code listener} to each of the given paths.  Release the returned handle to stop receiving changes.
+     */
+    public Handle subscribe(List<TagPath> tagPaths, TagValueListener listener) {
+        List<TagPath> newPaths = new ArrayList<>();
+        List<SharedSubscription> newListeners = new ArrayList<>();
+        Map<TagPath, QualifiedValue> lastValues = new LinkedHashMap<>();
+
+        synchronized (this) {
+            for (TagPath tagPath : tagPaths) {
+                SharedSubscription shared = subscriptions.get(tagPath);
+                if (shared == null) {
+                    shared = new SharedSubscription(tagPath);
+                    subscriptions.put(tagPath, shared);
+                    newPaths.add(tagPath);
+                    newListeners.add(shared);
+                }
+                QualifiedValue value = shared.add(listener);
+                if (value != null) {
+                    lastValues.put(tagPath, value);
+                }
+            }
+        }
+
+        if (!newPaths.isEmpty()) {
+            try {
+                context.getTagManager().subscribeAsync(newPaths, new ArrayList<TagChangeListener>(newListeners))
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            logger.warn("Subscribing to {} tags failed", newPaths.size(), error);
+                            forget(newListeners);
+                        }
+                    });
+            } catch (RuntimeException e) {
+                logger.warn("Subscribing to {} tags failed", newPaths.size(), e);
+                forget(newListeners);
+            }
+        }
+
+        // the listener may well take its own locks, so it is only called once this one is released
+        lastValues.forEach((tagPath, value) -> deliver(listener, tagPath, value));
+
+        return new Handle(List.copyOf(tagPaths), listener);
+    }
+
+    /**
+     * Removes the handle's listener, unsubscribing from any path that has no listeners left.
+     */
+    public synchronized void release(Handle handle) {
+        if (handle.released) {
+            return;
+        }
+        handle.released = true;
+
+        List<TagPath> unusedPaths = new ArrayList<>();
+        List<TagChangeListener> unusedListeners = new ArrayList<>();
+
+        for (TagPath tagPath : handle.tagPaths) {
+            SharedSubscription shared = subscriptions.get(tagPath);
+            if (shared != null && shared.remove(handle.listener)) {
+                subscriptions.remove(tagPath);
+                unusedPaths.add(tagPath);
+                unusedListeners.add(shared);
+            }
+        }
+
+        if (!unusedPaths.isEmpty()) {
+            context.getTagManager().unsubscribeAsync(unusedPaths, unusedListeners).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    logger.warn("Unsubscribing from {} tags failed", unusedPaths.size(), error);
+                }
+            });
+        }
+    }
+
+    public synchronized int getSubscribedPathCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Releases every subscription, used when the module shuts down.
+     */
+    public synchronized void shutdown() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        List<TagPath> tagPaths = new ArrayList<>(subscriptions.keySet());
+        List<TagChangeListener> listeners = new ArrayList<>(subscriptions.values());
+        subscriptions.clear();
+        context.getTagManager().unsubscribeAsync(tagPaths, listeners);
+    }
+
+    /**
+     * Drops subscriptions the tag system never took, so the next subscriber to those paths tries again instead of
+     * joining a subscription that will never see a change.
+     */
+    private synchronized void forget(List<SharedSubscription> failed) {
+        for (SharedSubscription shared : failed) {
+            subscriptions.remove(shared.tagPath, shared);
+        }
+    }
+
+    private void deliver(TagValueListener listener, TagPath tagPath, QualifiedValue value) {
+        try {
+            listener.valueChanged(tagPath, value);
+        } catch (Exception e) {
+            logger.warn("Tag change listener for {} failed", tagPath, e);
+        }
+    }
+
+    /**
+     * A component's stake in a set of subscribed paths.
+     */
+    public static final class Handle {
+        private final List<TagPath> tagPaths;
+        private final TagValueListener listener;
+        private boolean released = false;
+
+        private Handle(List<TagPath> tagPaths, TagValueListener listener) {
+            this.tagPaths = tagPaths;
+            this.listener = listener;
+        }
+
+        public List<TagPath> getTagPaths() {
+            return tagPaths;
+        }
+    }
+
+    /**
+     * The single tag system listener for one path, fanning changes out to every component listener.
+     */
+    private final class SharedSubscription implements TagChangeListener {
+        private final TagPath tagPath;
+        private final Set<TagValueListener> listeners = new CopyOnWriteArraySet<>();
+        private volatile QualifiedValue lastValue;
+
+        private SharedSubscription(TagPath tagPath) {
+            this.tagPath = tagPath;
+        }
+
+        // returns the last known value for the new listener, if there is one
+        QualifiedValue add(TagValueListener listener) {
+            listeners.add(listener);
+            return lastValue;
+        }
+
+        // returns true once the last listener is gone
+        boolean remove(TagValueListener listener) {
+            listeners.remove(listener);
+            return listeners.isEmpty();
+        }
+
+        @Override
+        public void tagChanged(TagChangeEvent event) {
+            QualifiedValue value = event.getValue();
+            lastValue = value;
+
+            for (TagValueListener listener : listeners) {
+                deliver(listener, tagPath, value);
+            }
+        }
+    }
+}
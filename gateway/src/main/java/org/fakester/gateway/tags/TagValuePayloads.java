@@ -0,0 +1,51 @@
+package org.fakester.gateway.tags;
+
+import java.util.Date;
+
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
+import com.inductiveautomation.ignition.common.model.values.QualityCode;
+
+/**
+ * Converts tag values into the JSON sent to clients.  A value is sent as
+ * <pre>
+ *     {
+ *         "value": &lt;number | boolean | string | null&gt;,
+ *         "quality": "Good",
+ *         "timestamp": &lt;epoch millis&gt;
+ *     }
+ * </pre>
+ * so clients never have to parse {@link QualifiedValue#toString()}.
+ */
+public final class TagValuePayloads {
+
+    private TagValuePayloads() {
+        // private constructor
+    }
+
+    public static JsonObject toJson(QualifiedValue qualifiedValue) {
+        JsonObject json = new JsonObject();
+        Object value = qualifiedValue.getValue();
+
+        if (value instanceof Number) {
+            json.addProperty("value", (Number) value);
+        } else if (value instanceof Boolean) {
+            json.addProperty("value", (Boolean) value);
+        } else if (value instanceof Date) {
+            json.addProperty("value", ((Date) value).getTime());
+        } else if (value != null) {
+            json.addProperty("value", value.toString());
+        } else {
+            json.add("value", null);
+        }
+
+        QualityCode quality = qualifiedValue.getQuality();
+        json.addProperty("quality", quality == null ? null : quality.getName());
+
+        Date timestamp = qualifiedValue.getTimestamp();
+        if (timestamp != null) {
+            json.addProperty("timestamp", timestamp.getTime());
+        }
+        return json;
+    }
+}
@@ -0,0 +1,273 @@
+package org.fakester.gateway.tags;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inductiveautomation.ignition.common.TypeUtilities;
+import com.inductiveautomation.ignition.common.model.values.BasicQualifiedValue;
+import com.inductiveautomation.ignition.common.model.values.QualifiedValue;
+import com.inductiveautomation.ignition.common.model.values.QualityCode;
+import com.inductiveautomation.ignition.common.sqltags.model.types.DataType;
+import com.inductiveautomation.ignition.common.tags.config.TagConfigurationModel;
+import com.inductiveautomation.ignition.common.tags.config.properties.WellKnownTagProps;
+import com.inductiveautomation.ignition.common.tags.model.TagPath;
+import com.inductiveautomation.ignition.common.tags.model.TagProvider;
+
+/**
+ * Queues tag writes per provider and sends them as one {@code writeAsync} call per flush window.
+ *
+ * Repeated writes to the same path within a window are coalesced, only the last value is written and every caller
+ * that wrote to that path receives its {@link QualityCode}.  Values are converted to the tag's configured data type
+ * before being written.
+ */
+public class TagWriteQueue {
+    // how long the first write of a batch waits for others to join it
+    private static final long FLUSH_WINDOW_MS = Long.getLong("RadComponents.TagWrite.FlushWindow", 50L);
+    // a batch is sent right away once it holds this many distinct paths
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("RadComponents.TagWrite.MaxBatchSize", 500);
+    // upper bound of tag data types remembered between writes
+    private static final int MAX_CACHED_TYPES = Integer.getInteger("RadComponents.TagWrite.TypeCacheSize", 10000);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final TagAccessCache tagAccess;
+    private final ConcurrentMap<String, Batch> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TagPath, Class<?>> javaTypes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RadComponents-TagWriteQueue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TagWriteQueue(TagAccessCache tagAccess) {
+        this.tagAccess = tagAccess;
+    }
+
+    /**
+     * Queues a write of {@code value} to {@code tagPath}.  If the path is written again before the batch is flushed,
+     * the later value wins and both futures complete with the quality of that write.
+     */
+    public CompletableFuture<QualityCode> write(TagPath tagPath, Object value) {
+        String providerName = TagReadCoalescer.providerNameOf(tagPath);
+
+        while (true) {
+            Batch batch;
+            try {
+                batch = pending.computeIfAbsent(providerName, this::newBatch);
+            } catch (RejectedExecutionException e) {
+                // the module is shutting down, nothing would ever flush the batch
+                return CompletableFuture.failedFuture(new IllegalStateException("Tag writes are shut down", e));
+            }
+            CompletableFuture<QualityCode> future = batch.put(tagPath, value);
+
+            if (future != null) {
+                if (batch.size() >= MAX_BATCH_SIZE) {
+                    flush(providerName, batch);
+                }
+                return future.copy();
+            }
+
+            // the batch was sealed by a concurrent flush, drop it and start a new one
+            pending.remove(providerName, batch);
+        }
+    }
+
+    public List<CompletableFuture<QualityCode>> writeAll(List<TagPath> tagPaths, List<?> values) {
+        List<CompletableFuture<QualityCode>> futures = new ArrayList<>(tagPaths.size());
+        for (int i = 0; i < tagPaths.size(); i++) {
+            futures.add(write(tagPaths.get(i), values.get(i)));
+        }
+        return futures;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private Batch newBatch(String providerName) {
+        Batch batch = new Batch();
+        scheduler.schedule(() -> flush(providerName, batch), FLUSH_WINDOW_MS, TimeUnit.MILLISECONDS);
+        return batch;
+    }
+
+    private void flush(String providerName, Batch batch) {
+        pending.remove(providerName, batch);
+        Map<TagPath, PendingWrite> writes = batch.seal();
+        if (writes == null || writes.isEmpty()) {
+            return;
+        }
+
+        // every caller waits on its write, so whatever goes wrong below must still complete all of them
+        try {
+            TagProvider provider = tagAccess.provider(providerName);
+            if (provider == null) {
+                writes.values().forEach(w -> w.future.complete(QualityCode.Bad_NotFound));
+                return;
+            }
+
+            resolveTypes(provider, writes.keySet()).whenComplete((ignored, typeError) -> {
+                if (typeError != null) {
+                    // the provider will still try its own conversion, so a failed lookup is not fatal
+                    logger.debug("Could not look up data types before writing to '{}'", providerName, typeError);
+                }
+                try {
+                    writeBatch(provider, providerName, writes);
+                } catch (RuntimeException e) {
+                    logger.warn("Writing {} tags to provider '{}' failed", writes.size(), providerName, e);
+                    failAll(writes.values(), e);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Writing {} tags to provider '{}' failed", writes.size(), providerName, e);
+            failAll(writes.values(), e);
+        }
+    }
+
+    private void writeBatch(TagProvider provider, String providerName, Map<TagPath, PendingWrite> writes) {
+        List<TagPath> tagPaths = new ArrayList<>(writes.size());
+        List<QualifiedValue> values = new ArrayList<>(writes.size());
+        List<PendingWrite> sent = new ArrayList<>(writes.size());
+
+        for (Map.Entry<TagPath, PendingWrite> entry : writes.entrySet()) {
+            PendingWrite write = entry.getValue();
+            try {
+                values.add(new BasicQualifiedValue(convert(entry.getKey(), write.value)));
+                tagPaths.add(entry.getKey());
+                sent.add(write);
+            } catch (RuntimeException e) {
+                // ClassCastException, or a parse failure of the coercion
+                logger.info("Value '{}' can't be written to {}", write.value, entry.getKey());
+                write.future.complete(QualityCode.Error_TypeConversion);
+            }
+        }
+
+        if (tagPaths.isEmpty()) {
+            return;
+        }
+
+        provider.writeAsync(tagPaths, values, tagAccess.securityContext()).whenComplete((qualities, error) -> {
+            if (error != null) {
+                logger.warn("Writing {} tags to provider '{}' failed", tagPaths.size(), providerName, error);
+                tagAccess.invalidateProvider(providerName);
+                failAll(sent, error);
+                return;
+            }
+
+            try {
+                int count = qualities == null ? 0 : Math.min(qualities.size(), sent.size());
+                for (int i = 0; i < count; i++) {
+                    QualityCode quality = qualities.get(i);
+                    if (quality == null || !quality.isGood()) {
+                        // the tag may have been reconfigured, look its type up again next time
+                        javaTypes.remove(tagPaths.get(i));
+                    }
+                    sent.get(i).future.complete(quality == null ? QualityCode.Bad : quality);
+                }
+                if (count < sent.size()) {
+                    logger.warn("Provider '{}' returned {} qualities for {} writes", providerName, count, sent.size());
+                    failAll(sent, new IllegalStateException("Provider '" + providerName + "' returned " + count
+                        + " qualities for " + sent.size() + " writes"));
+                }
+            } catch (RuntimeException e) {
+                failAll(sent, e);
+            }
+        });
+    }
+
+    /**
+     * Fails the writes that have not been completed yet.
+     */
+    private static void failAll(Iterable<PendingWrite> writes, Throwable error) {
+        writes.forEach(w -> w.future.completeExceptionally(error));
+    }
+
+    private Object convert(TagPath tagPath, Object value) {
+        Class<?> javaType = javaTypes.get(tagPath);
+        if (javaType == null || value == null || javaType.isInstance(value)) {
+            return value;
+        }
+        return TypeUtilities.coerce(value, javaType);
+    }
+
+    private CompletableFuture<Void> resolveTypes(TagProvider provider, Iterable<TagPath> tagPaths) {
+        List<TagPath> unknown = new ArrayList<>();
+        for (TagPath tagPath : tagPaths) {
+            if (!javaTypes.containsKey(tagPath)) {
+                unknown.add(tagPath);
+            }
+        }
+
+        if (unknown.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return provider.getTagConfigsAsync(unknown, false, false).thenAccept(configs -> {
+            if (javaTypes.size() + unknown.size() > MAX_CACHED_TYPES) {
+                javaTypes.clear();
+            }
+
+            for (int i = 0; i < configs.size() && i < unknown.size(); i++) {
+                TagConfigurationModel config = configs.get(i);
+                DataType dataType = config == null ? null : config.get(WellKnownTagProps.DataType);
+                if (dataType != null && dataType.getJavaType() != null) {
+                    javaTypes.put(unknown.get(i), dataType.getJavaType());
+                }
+            }
+        });
+    }
+
+    private static final class PendingWrite {
+        private final CompletableFuture<QualityCode> future = new CompletableFuture<>();
+        private volatile Object value;
+
+        private PendingWrite(Object value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Writes collected for one provider during one window.  Once sealed no further writes can join.
+     */
+    private static final class Batch {
+        private final Map<TagPath, PendingWrite> writes = new LinkedHashMap<>();
+        private boolean sealed = false;
+
+        synchronized CompletableFuture<QualityCode> put(TagPath tagPath, Object value) {
+            if (sealed) {
+                return null;
+            }
+
+            PendingWrite write = writes.get(tagPath);
+            if (write == null) {
+                write = new PendingWrite(value);
+                writes.put(tagPath, write);
+            } else {
+                write.value = value;
+            }
+            return write.future;
+        }
+
+        synchronized int size() {
+            return writes.size();
+        }
+
+        synchronized Map<TagPath, PendingWrite> seal() {
+            if (sealed) {
+                return null;
+            }
+            sealed = true;
+            return writes;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.fakester.gateway.logs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.inductiveautomation.ignition.common.gson.JsonArray;
+import com.inductiveautomation.ignition.common.gson.JsonObject;
+import com.inductiveautomation.ignition.common.logging.Level;
+
+class LogIndexTest {
+    // the start of a bucket of the default size
+    private static final long START = 1_700_000_040_000L;
+    private static final long BUCKET_MS = 60000L;
+
+    @Test
+    void returnsOnlyEventsWithEveryWord() {
+        LogIndex index = new LogIndex();
+        index.add(START, Level.WARN, "db", "Connection refused by host");
+        index.add(START + 1, Level.WARN, "db", "Connection reset by peer");
+        index.add(START + 2, Level.WARN, "db", "Host refused the request");
+        index.add(START + 3, Level.WARN, "db", "connection REFUSED again");
+
+        assertEquals(List.of(START + 3, START), timestamps(search(index, "refused connection")));
+    }
+
+    @Test
+    void intersectsRareAndCommonWords() {
+        LogIndex index = new LogIndex();
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            boolean rare = i % 37 == 5;
+            index.add(START + i, Level.INFO, "poll", rare ? "poll timeout on device" : "poll completed on device");
+            if (rare) {
+                expected.add(0, START + i);
+            }
+        }
+
+        JsonObject result = search(index, "device timeout poll");
+        assertEquals(expected.size(), result.get("total").getAsInt());
+        assertEquals(expected, timestamps(result));
+    }
+
+    @Test
+    void findsNothingWhenOneWordIsMissing() {
+        LogIndex index = new LogIndex();
+        index.add(START, Level.ERROR, "db", "Connection refused");
+        index.add(START + 1, Level.ERROR, "db", "Connection timeout");
+
+        assertEquals(0, search(index, "connection missing").get("total").getAsInt());
+        assertEquals(0, search(index, "refused timeout").get("total").getAsInt());
+    }
+
+    @Test
+    void emptyQueryMatchesEveryEvent() {
+        LogIndex index = new LogIndex();
+        index.add(START, Level.INFO, "a", "first");
+        index.add(START + 1, Level.INFO, "b", "second");
+
+        assertEquals(List.of(START + 1, START), timestamps(search(index, "")));
+    }
+
+    @Test
+    void intersectsWithinEveryBucket() {
+        LogIndex index = new LogIndex();
+        // the same words, at the same entry ids, in three buckets
+        for (int bucket = 0; bucket < 3; bucket++) {
+            long start = START + bucket * BUCKET_MS;
+            index.add(start, Level.INFO, "a", "alpha beta");
+            index.add(start + 1, Level.INFO, "a", "alpha");
+            index.add(start + 2, Level.INFO, "a", "beta gamma alpha");
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (int bucket = 2; bucket >= 0; bucket--) {
+            expected.add(START + bucket * BUCKET_MS + 2);
+            expected.add(START + bucket * BUCKET_MS);
+        }
+        assertEquals(expected, timestamps(search(index, "beta alpha")));
+    }
+
+    private static JsonObject search(LogIndex index, String query) {
+        return index.search(query, null, Level.TRACE, Long.MIN_VALUE, Long.MAX_VALUE, 1000);
+    }
+
+    private static List<Long> timestamps(JsonObject result) {
+        List<Long> timestamps = new ArrayList<>();
+        JsonArray matches = result.getAsJsonArray("matches");
+        for (int i = 0; i < matches.size(); i++) {
+            timestamps.add(matches.get(i).getAsJsonObject().get("timestamp").getAsLong());
+        }
+        return timestamps;
+    }
+}
@@ -0,0 +1,58 @@
+package org.fakester.gateway.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+    // values too large for the last bucket's range are counted in it anyway
+    private static final int LAST_BUCKET = Histogram.indexOf(Long.MAX_VALUE);
+
+    @Test
+    void valuesBelowEightHaveABucketEach() {
+        for (int value = 0; value < 8; value++) {
+            assertEquals(value, Histogram.indexOf(value));
+            assertEquals(value, Histogram.upperBoundOf(value));
+        }
+        assertEquals(8, Histogram.indexOf(8));
+    }
+
+    @Test
+    void upperBoundIsTheLastValueOfItsBucket() {
+        for (int index = 0; index < LAST_BUCKET; index++) {
+            long upper = Histogram.upperBoundOf(index);
+            assertEquals(index, Histogram.indexOf(upper), "upper bound " + upper);
+            assertEquals(index + 1, Histogram.indexOf(upper + 1), "value after upper bound " + upper);
+        }
+    }
+
+    @Test
+    void powersOfTwoStartANewBucket() {
+        for (int exponent = 3; exponent < 45; exponent++) {
+            long power = 1L << exponent;
+            assertEquals(Histogram.indexOf(power - 1) + 1, Histogram.indexOf(power), "2^" + exponent);
+        }
+    }
+
+    @Test
+    void upperBoundIsWithinAnEighthOfTheValue() {
+        for (int exponent = 3; exponent < 45; exponent++) {
+            for (long value : new long[] {1L << exponent, (1L << exponent) + 1, (3L << exponent) / 2,
+                (1L << (exponent + 1)) - 1}) {
+                long upper = Histogram.upperBoundOf(Histogram.indexOf(value));
+                assertTrue(upper >= value, "upper bound " + upper + " below " + value);
+                assertTrue((upper - value) * 8 < value, "upper bound " + upper + " too far above " + value);
+            }
+        }
+    }
+
+    @Test
+    void largeValuesLandInTheLastBucket() {
+        long lastUpper = Histogram.upperBoundOf(LAST_BUCKET);
+        assertEquals(LAST_BUCKET, Histogram.indexOf(lastUpper));
+        assertEquals(LAST_BUCKET, Histogram.indexOf(lastUpper + 1));
+        assertEquals(LAST_BUCKET, Histogram.indexOf(Long.MAX_VALUE));
+        assertTrue(lastUpper >= 1L << 44, "last bucket ends at " + lastUpper);
+    }
+}
@@ -0,0 +1,61 @@
+package org.fakester.gateway.tags;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TagPathGlobTest {
+
+    @Test
+    void starMatchesWithinOneElement() {
+        TagPathGlob glob = TagPathGlob.compile("Line*/Temp*");
+        assertTrue(glob.matches("Line1/Temperature"));
+        assertTrue(glob.matches("Line/Temp"));
+        assertFalse(glob.matches("Line1/Sub/Temperature"));
+        assertFalse(glob.matches("Temperature"));
+        assertFalse(glob.matches("Line1/Pressure"));
+    }
+
+    @Test
+    void questionMarkMatchesOneCharacter() {
+        TagPathGlob glob = TagPathGlob.compile("Alarm?");
+        assertTrue(glob.matches("Alarm1"));
+        assertFalse(glob.matches("Alarm"));
+        assertFalse(glob.matches("Alarm12"));
+        assertFalse(TagPathGlob.compile("a?b").matches("a/b"));
+    }
+
+    @Test
+    void doubleStarMatchesAnyNumberOfFolders() {
+        TagPathGlob glob = TagPathGlob.compile("**/Alarm?");
+        assertTrue(glob.matches("Alarm1"));
+        assertTrue(glob.matches("Area/Alarm2"));
+        assertTrue(glob.matches("Area/Line/Alarm3"));
+        assertFalse(glob.matches("Area/MyAlarm1"));
+
+        assertTrue(TagPathGlob.compile("**").matches("Area/Line/Tag"));
+        assertTrue(TagPathGlob.compile("Area/**/Tag").matches("Area/Tag"));
+        assertTrue(TagPathGlob.compile("Area/**/Tag").matches("Area/Line/Cell/Tag"));
+    }
+
+    @Test
+    void ignoresCase() {
+        assertTrue(TagPathGlob.compile("line*/TEMP").matches("Line1/temp"));
+    }
+
+    @Test
+    void otherCharactersAreLiteral() {
+        TagPathGlob glob = TagPathGlob.compile("Motor (1).Speed+[x]");
+        assertTrue(glob.matches("Motor (1).Speed+[x]"));
+        assertFalse(glob.matches("Motor 1xSpeed+x"));
+        assertFalse(TagPathGlob.compile("a.b").matches("axb"));
+    }
+
+    @Test
+    void rejectsAnEmptyGlob() {
+        assertThrows(IllegalArgumentException.class, () -> TagPathGlob.compile(""));
+        assertThrows(IllegalArgumentException.class, () -> TagPathGlob.compile(null));
+    }
+}
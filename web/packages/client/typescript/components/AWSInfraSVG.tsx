@@ -26,7 +26,19 @@ export const SERVER_ROOMS = [
 
 enum MessageEvents {
   AWS_REQUEST_EVENT = "aws-component-message-send-event",
-  AWS_RESPONSE_EVENT = "aws-component-message-receive-event"
+  AWS_RESPONSE_EVENT = "aws-component-message-receive-event",
+  AWS_SUBSCRIBE_EVENT = "aws-component-tag-subscribe-event"
+}
+
+// Throttling of pushed tag values, applied by the gateway delegate
+interface AWSInfraThrottleProps {
+  maxUpdateRate: number;
+  deadband: number;
+  deadbandMode: string;
+}
+
+interface AWSInfraSVGProps extends AWSInfraThrottleProps {
+  selectedRoom: string;
 }
 
 interface AWSInfraDelegateState {
@@ -65,6 +77,17 @@ export class AWSInfraDelegate extends ComponentStoreDelegate {
     });
   }
 
+  // Subscribes once, the gateway then pushes only the values that changed
+  public subscribeToGateway(counterTagPathSend: string, randomTagPathSend: string, throttle: AWSInfraThrottleProps): void {
+    this.fireDelegateEvent(MessageEvents.AWS_SUBSCRIBE_EVENT, {
+      counterTagPath: counterTagPathSend,
+      randomTagPath: randomTagPathSend,
+      maxUpdateRate: throttle.maxUpdateRate,
+      deadband: throttle.deadband,
+      deadbandMode: throttle.deadbandMode
+    });
+  }
+
   handleEvent(eventName: string, eventObject: JsObject): void {
     logger.info(() => `Received '${eventName}' event!`);
     if (eventName === "aws-server-selected") {
@@ -80,46 +103,51 @@ export class AWSInfraDelegate extends ComponentStoreDelegate {
   handleComponentResponseEvent(eventObject: JsObject): void {
     logger.info(() => `Callback handling message with contents: ${JSON.stringify(eventObject)}`);
 
-    const counterValRaw = eventObject.counterValue;
-    const randomValRaw = eventObject.randomValue;
+    // values arrive as { value, quality, timestamp }, only keys whose tag changed are present
+    const counterValue = eventObject.counterValue;
+    const randomValue = eventObject.randomValue;
 
-    if (counterValRaw && typeof counterValRaw === "string") {
-      const match = counterValRaw.match(/\[(\d+(?:\.\d+)?),/);
-      if (match && match[1]) {
-        this.counterTagValue = Number(match[1]);
-        logger.info(() => `Parsed counterTagValue: ${this.counterTagValue}`);
-      }
+    if (counterValue && typeof counterValue.value === "number") {
+      this.counterTagValue = counterValue.value;
+      logger.info(() => `Received counterTagValue: ${this.counterTagValue} (${counterValue.quality})`);
     }
 
-    if (randomValRaw && typeof randomValRaw === "string") {
-      const match = randomValRaw.match(/\[(\d+(?:\.\d+)?),/);
-      if (match && match[1]) {
-        this.randomTagValue = Number(match[1]);
-        logger.info(() => `Parsed randomTagValue: ${this.randomTagValue}`);
-      }
+    if (randomValue && typeof randomValue.value === "number") {
+      this.randomTagValue = randomValue.value;
+      logger.info(() => `Received randomTagValue: ${this.randomTagValue} (${randomValue.quality})`);
     }
 
     this.notify();
   }
 }
 
-export class AWSInfraSVGComponent extends Component<ComponentProps<{ selectedRoom: string }>, {}> {
-  private pollingInterval: NodeJS.Timer | null = null;
+export class AWSInfraSVGComponent extends Component<ComponentProps<AWSInfraSVGProps>, {}> {
   rootElementRef: Element | void;
 
   componentDidMount() {
     this.rootElementRef = this.props.store.element;
-    this.pollingInterval = setInterval(() => {
-      this.fireUpdateToGatewayWithTwoParameters();
-    }, 1000);
+    // values are pushed by the gateway delegate, which releases the subscription when the component shuts down
+    this.subscribeToGatewayWithTwoParameters();
   }
 
-  componentWillUnmount() {
-    if (this.pollingInterval) {
-      clearInterval(this.pollingInterval);
+  componentDidUpdate(prevProps: ComponentProps<AWSInfraSVGProps>) {
+    const { maxUpdateRate, deadband, deadbandMode } = this.props.props;
+    const prev = prevProps.props;
+
+    // subscribing again replaces the gateway-side throttle settings
+    if (maxUpdateRate !== prev.maxUpdateRate || deadband !== prev.deadband || deadbandMode !== prev.deadbandMode) {
+      this.subscribeToGatewayWithTwoParameters();
     }
   }
 
+  subscribeToGatewayWithTwoParameters(): void {
+    const counterTagPath = "[default]Simulation/Counter";
+    const randomTagPath = "[default]Simulation/Random";
+    const { maxUpdateRate, deadband, deadbandMode } = this.props.props;
+    (this.props.store.delegate! as AWSInfraDelegate).subscribeToGateway(counterTagPath, randomTagPath,
+      { maxUpdateRate, deadband, deadbandMode });
+  }
+
   fireUpdateToGatewayWithTwoParameters(): void {
     const counterTagPath = "[default]Simulation/Counter";
     const randomTagPath = "[default]Simulation/Random";
@@ -255,9 +283,12 @@ export class AWSInfraSVGComponentMeta implements ComponentMeta {
     return AWSInfraSVGComponent;
   }
 
-  getPropsReducer(tree: PropertyTree): { selectedRoom: string } {
+  getPropsReducer(tree: PropertyTree): AWSInfraSVGProps {
     return {
-      selectedRoom: tree.read("selectedRoom", "")
+      selectedRoom: tree.read("selectedRoom", ""),
+      maxUpdateRate: tree.readNumber("maxUpdateRate", 4),
+      deadband: tree.readNumber("deadband", 0),
+      deadbandMode: tree.readString("deadbandMode", "absolute")
     };
   }
 }
@@ -1,19 +1,35 @@
 // React and Perspective imports
 import * as React from "react";
 import {
+  AbstractUIElementStore,
   Component,
   ComponentMeta,
   ComponentProps,
+  ComponentStoreDelegate,
+  JsObject,
   PComponent,
   PropertyTree,
   SizeObject,
   makeLogger
 } from "@inductiveautomation/perspective-client";
 import "../../scss/_CsvToAlarmLog.scss";
+import Axios from 'axios';
 import { bind } from 'bind-decorator';
 
 export const COMPONENT_TYPE = "rad.display.CsvToAlarmLog";
 
+const HOST = `${location.protocol}//${location.host}`;
+const IMPORT_URL = `${HOST}/main/data/radcomponents/component/tags/import`;
+const CONVERT_URL = `${HOST}/main/data/radcomponents/component/tags/convert`;
+// failures of the running import kept for display, newest first
+const MAX_SHOWN_FAILURES = 50;
+
+enum ImportEvents {
+  IMPORT_WATCH_EVENT = "csv-import-watch-event",
+  IMPORT_PROGRESS_EVENT = "csv-import-progress-event",
+  IMPORT_FINISHED_EVENT = "csv-import-finished-event"
+}
+
 // Component property interface defined for Perspective Designer bindings
 interface CsvToAlarmLogProps {
   buttonText: string;
@@ -25,6 +41,10 @@ interface CsvToAlarmLogProps {
   warningMessage: string;
   showConfirmation: boolean;
   confirmationMessage: string;
+  targetPath: string;
+  validateFirst: boolean;
+  incremental: boolean;
+  removeMissing: boolean;
 }
 
 // Component state interface
@@ -32,13 +52,64 @@ interface CsvToAlarmLogState {
   isLoading: boolean;
   isSuccess: boolean | null;
   message: string;
-  convertedData: string | null;
+  importSummary: string | null;
   fileName: string | null;
+  selectedFile: File | null;
+}
+
+interface CsvToAlarmLogDelegateState {
+  progress: JsObject | null;
+  recentFailures: JsObject[];
 }
 
 // Logger for developer debugging
 const logger = makeLogger("radcomponents.CsvToAlarmLog");
 
+// Receives the progress of the running import from the gateway delegate
+export class CsvToAlarmLogDelegate extends ComponentStoreDelegate {
+  private importId: string | null = null;
+  private progress: JsObject | null = null;
+  private recentFailures: JsObject[] = [];
+
+  constructor(componentStore: AbstractUIElementStore) {
+    super(componentStore);
+  }
+
+  mapStateToProps(): CsvToAlarmLogDelegateState {
+    return {
+      progress: this.progress,
+      recentFailures: this.recentFailures
+    };
+  }
+
+  // Asks the gateway to report progress for the import that is about to be uploaded under importId
+  public watchImport(importId: string): void {
+    this.importId = importId;
+    this.progress = null;
+    this.recentFailures = [];
+    this.fireEvent(ImportEvents.IMPORT_WATCH_EVENT, { importId });
+    this.notify();
+  }
+
+  handleEvent(eventName: string, eventObject: JsObject): void {
+    if (eventObject.importId !== this.importId) {
+      return;
+    }
+
+    if (eventName === ImportEvents.IMPORT_PROGRESS_EVENT) {
+      this.progress = eventObject;
+      this.recentFailures = [...(eventObject.failures || []), ...this.recentFailures].slice(0, MAX_SHOWN_FAILURES);
+      this.notify();
+    }
+
+    if (eventName === ImportEvents.IMPORT_FINISHED_EVENT) {
+      logger.info(() => `Import ${this.importId} finished: ${JSON.stringify(eventObject)}`);
+      this.progress = eventObject;
+      this.notify();
+    }
+  }
+}
+
 // Main component class
 export class CsvToAlarmLog extends Component<ComponentProps<CsvToAlarmLogProps>, CsvToAlarmLogState> {
   // Initial state
@@ -46,8 +117,9 @@ export class CsvToAlarmLog extends Component<ComponentProps<CsvToAlarmLogProps>,
     isLoading: false,
     isSuccess: null,
     message: "",
-    convertedData: null,
-    fileName: null
+    importSummary: null,
+    fileName: null,
+    selectedFile: null
   };
 
   // Handler for file input change
@@ -59,245 +131,151 @@ export class CsvToAlarmLog extends Component<ComponentProps<CsvToAlarmLogProps>,
     const allowedExtensions = ["csv", "xml", "json"];
     const fileExtension = file.name.split(".").pop()?.toLowerCase();
     
+    // the same file may be picked again after an import
+    event.target.value = "";
+
     // Validate file extension
     if (!fileExtension || !allowedExtensions.includes(fileExtension)) {
       this.setState({ 
         isSuccess: false, 
-        message: this.props.warningMessage 
+        message: this.props.props.warningMessage,
+        selectedFile: null
       });
       return;
     }
 
-    // Remove extension from filename and trigger processing
-    this.setState({ fileName: file.name.replace(/\.[^/.]+$/, "") });
-    this.processFile(file, fileExtension);
-  }
-
-  // Reads file and triggers parsing logic based on extension
-  private processFile(file: File, extension: string) {
-    this.setState({ 
-      isLoading: true, 
-      message: "Processing file...",
-      fileName: file.name.replace(/\.[^/.]+$/, "")
+    // Nothing is sent yet, the file is converted or imported once the user picks one of the actions
+    this.setState({
+      isSuccess: null,
+      message: `Selected ${file.name}`,
+      importSummary: null,
+      fileName: file.name.replace(/\.[^/.]+$/, ""),
+      selectedFile: file
     });
+  }
 
-    const reader = new FileReader();
-
-    // File read success callback
-    reader.onload = (e) => {
-      try {
-        const content = e.target?.result as string;
-        let jsonData;
-
-        // Convert based on file type
-        switch (extension) {
-          case "csv":
-            jsonData = this.convertCsvToJson(content);
-            break;
-          case "xml":
-            jsonData = this.convertXmlToJson(content);
-            break;
-          case "json":
-            jsonData = JSON.parse(content);
-            break;
-          default:
-            throw new Error("Unsupported file type");
-        }
-
-        // Update state with parsed data
-        this.setState({
-          isLoading: false,
-          isSuccess: true,
-          message: this.props.successMessage,
-          convertedData: JSON.stringify(jsonData, null, 2)
-        });
+  private static extensionOf(file: File): string {
+    return file.name.split(".").pop()!.toLowerCase();
+  }
 
-        logger.info("File processed successfully");
+  // Has the gateway convert the selected file to Ignition's JSON tag format and downloads the result
+  @bind
+  private handleDownload() {
+    const file = this.state.selectedFile;
+    if (!file) return;
 
-      } catch (error) {
+    this.setState({ isLoading: true, message: "Converting file...", importSummary: null });
+
+    const url = `${CONVERT_URL}?from=${CsvToAlarmLog.extensionOf(file)}&to=json`;
+    Axios.post(url, file, { headers: { "Content-Type": "application/octet-stream" }, responseType: "blob" })
+      .then(response => {
+        const objectUrl = URL.createObjectURL(response.data);
+        const a = document.createElement("a");
+        a.href = objectUrl;
+        a.download = `${this.state.fileName || "tags"}.json`;
+        document.body.appendChild(a);
+        a.click();
+        document.body.removeChild(a);
+        URL.revokeObjectURL(objectUrl);
+
+        this.setState({ isLoading: false, isSuccess: true, message: "File converted, download started." });
+      })
+      .catch(error => {
         this.setState({
           isLoading: false,
           isSuccess: false,
-          message: `${this.props.errorMessage} ${error instanceof Error ? error.message : ""}`
+          message: `Error converting file! ${error.message || ""}`
         });
-        logger.error("Error processing file");
-      }
-    };
-
-    // Handle file read error
-    reader.onerror = () => {
-      this.setState({ 
-        isLoading: false, 
-        isSuccess: false, 
-        message: this.props.errorMessage
-      });
-      logger.error("Error reading file");
-    };
-
-    reader.readAsText(file);
-  }
-
-  // Converts XML string to structured JSON object
-  private convertXmlToJson(xmlText: string): any {
-    const parser = new DOMParser();
-    const xmlDoc = parser.parseFromString(xmlText, "text/xml");
-
-    const tags = Array.from(xmlDoc.getElementsByTagName("Tag")).map(tagNode => {
-      const tag: any = {
-        name: tagNode.getAttribute("name"),
-        tagType: tagNode.getAttribute("type") || "AtomicTag"
-      };
-
-      // Parse tag children: Properties and Alarms
-      Array.from(tagNode.children).forEach(child => {
-        if (child.nodeName === "Property") {
-          const propName = child.getAttribute("name");
-          if (propName) {
-            try {
-              tag[propName] = JSON.parse(child.textContent || '');
-            } catch {
-              tag[propName] = child.textContent;
-            }
-          }
-        } else if (child.nodeName === "CompoundProperty" && child.getAttribute("name") === "alarms") {
-          tag.alarms = Array.from(child.getElementsByTagName("PropertySet")).map(alarmNode => {
-            const alarm: any = {};
-            Array.from(alarmNode.getElementsByTagName("Property")).forEach(propNode => {
-              const propName = propNode.getAttribute("name");
-              if (propName) {
-                try {
-                  alarm[propName] = JSON.parse(propNode.textContent || '');
-                } catch {
-                  alarm[propName] = propNode.textContent;
-                }
-              }
-            });
-
-            // Normalize priority
-            if (alarm.priority === "3" || alarm.priority === 3) {
-              alarm.priority = "High";
-            }
-            return alarm;
-          });
-        }
+        logger.error("Error converting file");
       });
-
-      // Default value source fallback
-      if (!tag.valueSource) {
-        tag.valueSource = tag.opcItemPath ? "opc" : "memory";
-      }
-
-      return tag;
-    });
-
-    return { tags };
   }
 
-  // Button click handler for triggering file input (with optional confirmation)
+  // Imports the selected file into the target path, after the optional confirmation
   @bind
-  private handleButtonClick() {
-    if (this.props.showConfirmation && !window.confirm(this.props.confirmationMessage)) {
+  private handleImport() {
+    const file = this.state.selectedFile;
+    if (!file) return;
+
+    const { showConfirmation, confirmationMessage, targetPath } = this.props.props;
+    if (showConfirmation && !window.confirm(`${confirmationMessage}\n\nTarget: ${targetPath}`)) {
       return;
     }
-    document.getElementById("csv-file-input")?.click();
+    this.processFile(file, CsvToAlarmLog.extensionOf(file));
   }
 
-  // Converts CSV string to structured JSON
-  private convertCsvToJson(csvText: string): any {
-    const lines = csvText.split('\n').filter(line => line.trim() !== '');
-    const headers = lines[0].split(',').map(h => h.trim());
-
-    const tags = lines.slice(1).map(line => {
-      const values = line.split(',');
-      const tag: any = {};
-      const alarms: any[] = [];
-
-      // Map headers to tag properties
-      headers.forEach((header, index) => {
-        if (values[index] && values[index].trim() !== '') {
-          const value = values[index].trim();
-          const cleanHeader = header.replace(/^tags\//, '');
-
-          // Handle alarm properties
-          if (cleanHeader.startsWith('alarms/0/')) {
-            const alarmProp = cleanHeader.replace('alarms/0/', '');
-            if (alarms.length === 0) alarms.push({});
-            try {
-              alarms[0][alarmProp] = value === 'TRUE' ? true :
-                                     value === 'FALSE' ? false :
-                                     JSON.parse(value);
-            } catch {
-              alarms[0][alarmProp] = value;
-            }
-            return;
-          }
-
-          // Handle nested permission structures
-          if (cleanHeader.startsWith('writePermissions/') || cleanHeader.startsWith('readPermissions/')) {
-            const [baseProp, nestedProp] = cleanHeader.split('/');
-            if (!tag[baseProp]) {
-              tag[baseProp] = { securityLevels: [] };
-            }
-            if (nestedProp === 'type') {
-              tag[baseProp].type = value;
-            }
-            return;
-          }
-
-          // Handle all other properties
-          try {
-            tag[cleanHeader] = value === 'TRUE' ? true :
-                              value === 'FALSE' ? false :
-                              JSON.parse(value);
-          } catch {
-            tag[cleanHeader] = value;
-          }
-        }
-      });
+  // Streams the file to the gateway, which parses and imports it in chunks without it ever being read in here
+  private processFile(file: File, extension: string) {
+    this.setState({ 
+      isLoading: true, 
+      message: "Importing file...",
+      importSummary: null
+    });
 
-      // Attach alarms if present
-      if (alarms.length > 0) {
-        tag.alarms = alarms;
-        if (!tag.alarms[0].displayPath) tag.alarms[0].displayPath = "";
-        if (tag.alarms[0].priority === '3') tag.alarms[0].priority = "High";
-      }
+    // progress arrives through the model delegate while the upload request is still open
+    const importId = `${Date.now()}-${Math.random().toString(36).slice(2)}`;
+    (this.props.store.delegate! as CsvToAlarmLogDelegate).watchImport(importId);
 
-      // Defaults for missing tag fields
-      if (!tag.tagType) tag.tagType = "AtomicTag";
-      if (!tag.valueSource) tag.valueSource = tag.opcItemPath ? "opc" : "memory";
+    const { targetPath, validateFirst, incremental, removeMissing } = this.props.props;
+    const mode = incremental ? `&mode=incremental&removeMissing=${removeMissing}` : "";
+    const url = `${IMPORT_URL}?format=${extension}&path=${encodeURIComponent(targetPath)}` +
+      `&importId=${importId}&validate=${validateFirst}${mode}`;
 
-      return tag;
-    });
+    Axios.post(url, file, { headers: { "Content-Type": "application/octet-stream" } })
+      .then(response => {
+        const summary = response.data;
+        const failed = summary.failed || 0;
 
-    return {
-      tags: tags.filter(tag => tag.name)
-    };
+        this.setState({
+          isLoading: false,
+          isSuccess: failed === 0,
+          message: failed === 0
+            ? this.props.props.successMessage
+            : `${this.props.props.errorMessage} ${failed} of ${summary.tags} tags failed.`,
+          importSummary: JSON.stringify(summary, null, 2)
+        });
+
+        logger.info("File imported");
+      })
+      .catch(error => {
+        // 422: the file failed validation and nothing was imported
+        if (error.response && error.response.status === 422) {
+          const report = error.response.data;
+          this.setState({
+            isLoading: false,
+            isSuccess: false,
+            message: `${this.props.props.errorMessage} ${report.errorCount} problems found, nothing was imported.`,
+            importSummary: report.errors
+              .map((problem: JsObject) => `Row ${problem.row} ${problem.column || ""}: ${problem.error}`)
+              .join("\n")
+          });
+          return;
+        }
+
+        const detail = error.response && error.response.data && error.response.data.error;
+        this.setState({
+          isLoading: false,
+          isSuccess: false,
+          message: `${this.props.props.errorMessage} ${detail || error.message || ""}`
+        });
+        logger.error("Error importing file");
+      });
   }
 
-  // Trigger download of converted JSON
+  // Button click handler for triggering file input, nothing is imported until the import button is clicked
   @bind
-  private handleDownload() {
-    if (!this.state.convertedData) return;
-
-    const blob = new Blob([this.state.convertedData], { type: "application/json" });
-    const url = URL.createObjectURL(blob);
-    const a = document.createElement("a");
-    a.href = url;
-    a.download = `${this.state.fileName || "tags"}.json`;
-    document.body.appendChild(a);
-    a.click();
-    document.body.removeChild(a);
-    URL.revokeObjectURL(url);
+  private handleButtonClick() {
+    document.getElementById("csv-file-input")?.click();
   }
 
   // Main render method
   render() {
     const { 
-      props: { buttonText, buttonColor, textColor, fontSize },
+      props: { buttonText, buttonColor, textColor, fontSize, targetPath },
       emit
     } = this.props;
 
-    const { isLoading, isSuccess, message, convertedData } = this.state;
+    const { isLoading, isSuccess, message, importSummary, selectedFile } = this.state;
+    const { progress, recentFailures } = (this.props.delegate || {}) as CsvToAlarmLogDelegateState;
 
     const buttonStyle = {
       backgroundColor: buttonColor,
@@ -306,11 +284,6 @@ export class CsvToAlarmLog extends Component<ComponentProps<CsvToAlarmLogProps>,
       marginBottom: '12px'
     };
 
-    const downloadButtonStyle = {
-      ...buttonStyle,
-      marginTop: '12px'
-    };
-
     return (
       <div {...emit({ classes: ['csv-to-alarm-log-component'] })}>
         {/* Hidden file input */}
@@ -334,6 +307,28 @@ export class CsvToAlarmLog extends Component<ComponentProps<CsvToAlarmLogProps>,
           </button>
         </div>
 
+        {/* Actions on the selected file */}
+        {selectedFile && (
+          <div className="download-button-container">
+            <button
+              onClick={this.handleDownload}
+              disabled={isLoading}
+              style={buttonStyle}
+              className="download-button"
+            >
+              Download Converted JSON
+            </button>
+            <button
+              onClick={this.handleImport}
+              disabled={isLoading}
+              style={buttonStyle}
+              className="download-button"
+            >
+              {`Import into ${targetPath}`}
+            </button>
+          </div>
+        )}
+
         {/* Message display */}
         {message && (
           <div className={`message ${isSuccess ? 'success' : 'error'}`}>
@@ -341,20 +336,26 @@ export class CsvToAlarmLog extends Component<ComponentProps<CsvToAlarmLogProps>,
           </div>
         )}
 
-        {/* Converted JSON preview and download */}
-        {convertedData && isSuccess && (
+        {/* Progress of the running import */}
+        {isLoading && progress && (
+          <div className="message">
+            {`${progress.tags} tags imported (${progress.tagsPerSecond} tags/s), ${progress.failed} failed`}
+          </div>
+        )}
+
+        {isLoading && recentFailures && recentFailures.length > 0 && (
+          <div className="conversion-result">
+            <pre className="json-preview">
+              {recentFailures.map(failure => `Row ${failure.row} ${failure.name}: ${failure.error}`).join("\n")}
+            </pre>
+          </div>
+        )}
+
+        {/* Import summary returned by the gateway */}
+        {importSummary && (
           <div className="conversion-result">
-            <div className="download-button-container">
-              <button 
-                onClick={this.handleDownload}
-                style={downloadButtonStyle}
-                className="download-button"
-              >
-                Download Converted JSON
-              </button>
-            </div>
             <pre className="json-preview">
-              {convertedData}
+              {importSummary}
             </pre>
           </div>
         )}
@@ -377,6 +378,10 @@ export class CsvToAlarmLogMeta implements ComponentMeta {
     return { width: 200, height: 60 };
   }
 
+  createDelegate(component: AbstractUIElementStore): ComponentStoreDelegate | undefined {
+    return new CsvToAlarmLogDelegate(component);
+  }
+
   // Bind component props to Perspective properties
   getPropsReducer(tree: PropertyTree): CsvToAlarmLogProps {
     return {
@@ -384,11 +389,15 @@ export class CsvToAlarmLogMeta implements ComponentMeta {
       buttonColor: tree.readString("buttonColor", "#0078D4"),
       textColor: tree.readString("textColor", "#FFFFFF"),
       fontSize: tree.readString("fontSize", "1rem"),
-      successMessage: tree.readString("successMessage", "File converted successfully!"),
-      errorMessage: tree.readString("errorMessage", "Error converting file!"),
+      successMessage: tree.readString("successMessage", "File imported successfully!"),
+      errorMessage: tree.readString("errorMessage", "Error importing file!"),
       warningMessage: tree.readString("warningMessage", "Invalid file type selected. Please choose a valid CSV, XML, or JSON file."),
       showConfirmation: tree.readBoolean("showConfirmation", true),
-      confirmationMessage: tree.readString("confirmationMessage","Do you want to import Tags or Alarms list file?")
+      confirmationMessage: tree.readString("confirmationMessage","Do you want to import Tags or Alarms list file?"),
+      targetPath: tree.readString("targetPath", "[default]"),
+      validateFirst: tree.readBoolean("validateFirst", true),
+      incremental: tree.readBoolean("incremental", false),
+      removeMissing: tree.readBoolean("removeMissing", false)
     };
   }
 }
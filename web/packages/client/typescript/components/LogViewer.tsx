@@ -0,0 +1,176 @@
+/**
+ * Live panel of the gateway's newest log events, pushed by the gateway as they are logged.
+ */
+import * as React from 'react';
+import {
+    AbstractUIElementStore,
+    Component,
+    ComponentMeta,
+    ComponentProps,
+    ComponentStoreDelegate,
+    JsObject,
+    PComponent,
+    PropertyTree,
+    SizeObject
+} from '@inductiveautomation/perspective-client';
+import { bind } from 'bind-decorator';
+
+export const COMPONENT_TYPE = "rad.display.logviewer";
+
+interface LogRecord {
+    seq: number;
+    timestamp: number;
+    level: string;
+    logger: string;
+    message: string;
+}
+
+interface LogEventsPayload {
+    events: Array<LogRecord>;
+    nextCursor: number;
+    // events that left the gateway's buffer before they could be sent
+    dropped: number;
+}
+
+interface LogViewerProps {
+    level: string;
+    maxLines: number;
+}
+
+interface LogViewerDelegateState {
+    records: Array<LogRecord>;
+    dropped: number;
+}
+
+enum LogViewerEvents {
+    SUBSCRIBE_EVENT = "log-viewer-subscribe-event",
+    EVENTS_EVENT = "log-viewer-events-event"
+}
+
+// Keeps the newest maxLines events the gateway pushed
+export class LogViewerDelegate extends ComponentStoreDelegate {
+    private records: Array<LogRecord> = [];
+    private dropped: number = 0;
+    private maxLines: number = 500;
+
+    constructor(componentStore: AbstractUIElementStore) {
+        super(componentStore);
+    }
+
+    mapStateToProps(): LogViewerDelegateState {
+        return {
+            records: this.records,
+            dropped: this.dropped
+        };
+    }
+
+    public subscribe(level: string, maxLines: number): void {
+        this.records = [];
+        this.dropped = 0;
+        this.maxLines = maxLines;
+        this.fireEvent(LogViewerEvents.SUBSCRIBE_EVENT, { level, maxLines });
+        this.notify();
+    }
+
+    handleEvent(eventName: string, eventObject: JsObject): void {
+        if (eventName === LogViewerEvents.EVENTS_EVENT) {
+            const payload = eventObject as LogEventsPayload;
+            const records = this.records.concat(payload.events || []);
+
+            this.records = records.length > this.maxLines ? records.slice(records.length - this.maxLines) : records;
+            this.dropped += payload.dropped || 0;
+            this.notify();
+        }
+    }
+}
+
+export class LogViewer extends Component<ComponentProps<LogViewerProps, LogViewerDelegateState>, any> {
+    panel: HTMLElement | null = null;
+    // whether the panel was scrolled to the end before the last update, new lines then keep it there
+    following: boolean = true;
+
+    componentDidMount() {
+        this.subscribe();
+    }
+
+    componentDidUpdate(prevProps: ComponentProps<LogViewerProps, LogViewerDelegateState>): void {
+        const { level, maxLines } = this.props.props;
+
+        if (prevProps.props.level !== level || prevProps.props.maxLines !== maxLines) {
+            this.subscribe();
+        }
+
+        if (this.following && this.panel) {
+            this.panel.scrollTop = this.panel.scrollHeight;
+        }
+    }
+
+    subscribe(): void {
+        const { level, maxLines } = this.props.props;
+        (this.props.store.delegate! as LogViewerDelegate).subscribe(level, maxLines);
+    }
+
+    @bind
+    onScroll(): void {
+        if (this.panel) {
+            this.following = this.panel.scrollTop + this.panel.clientHeight >= this.panel.scrollHeight - 4;
+        }
+    }
+
+    @bind
+    setPanel(element: HTMLElement | null): void {
+        this.panel = element;
+    }
+
+    render() {
+        const { emit } = this.props;
+        const delegate = this.props.delegate;
+        const records = delegate ? delegate.records : [];
+        const dropped = delegate ? delegate.dropped : 0;
+
+        // the component's own element reference is needed for layout, the panel's for scrolling
+        return (
+            <div {...emit({ classes: ['log-viewer-component'] })}>
+                <div className="log-viewer-panel" ref={this.setPanel} onScroll={this.onScroll}>
+                    {dropped > 0 &&
+                        <span className="log-viewer-dropped">{`${dropped} events were skipped`}</span>}
+                    {records.map(record =>
+                        <span key={record.seq} className={`log-viewer-line log-viewer-${record.level.toLowerCase()}`}>
+                            {`${new Date(record.timestamp).toISOString()} ${record.level} ${record.logger} - ${record.message}`}
+                        </span>
+                    )}
+                </div>
+            </div>
+        );
+    }
+}
+
+
+// This is the actual thing that gets registered with the component registry.
+export class LogViewerMeta implements ComponentMeta {
+    getComponentType(): string {
+        return COMPONENT_TYPE;
+    }
+
+    getDefaultSize(): SizeObject {
+        return ({
+            width: 600,
+            height: 300
+        });
+    }
+
+    getPropsReducer(tree: PropertyTree): Record<string, any> {
+        return {
+            level: tree.readString("level", "INFO"),
+            maxLines: tree.readNumber("maxLines", 500)
+        };
+    }
+
+    getViewComponent(): PComponent {
+        return LogViewer;
+    }
+
+    createDelegate(component: AbstractUIElementStore): ComponentStoreDelegate | undefined {
+        return new LogViewerDelegate(component);
+    }
+}
@@ -4,9 +4,13 @@
 import { AxiosResponse } from 'axios';
 import * as React from 'react';
 import {
+    AbstractUIElementStore,
     Component,
     ComponentMeta,
-    ComponentProps, PComponent,
+    ComponentProps,
+    ComponentStoreDelegate,
+    JsObject,
+    PComponent,
     PropertyTree,
     SizeObject
 } from '@inductiveautomation/perspective-client';
@@ -20,77 +24,218 @@ export const COMPONENT_TYPE = "rad.display.tagcounter";
 
 interface TagCountPayload {
     tagCount: number;
+    // how old the count is, -1 until the gateway has finished counting once
+    ageMs: number;
+    providers: Record<string, number>;
+}
+
+interface FolderStats {
+    tags: number;
+    folders: number;
+    udtInstances: number;
+    alarms: number;
+    opcTags: number;
+    memoryTags: number;
+    expressionTags: number;
+    otherTags: number;
+    configBytes: number;
+}
+
+interface FolderStatsPayload {
+    path: string;
+    ageMs: number;
+    // missing until the gateway has finished walking the folder once
+    stats?: FolderStats;
+    error?: string;
 }
 
 interface TagCountProps {
     interval: number;
+    folderPath: string;
 }
 
 const HOST = `${location.protocol}//${location.host}`;
 const COUNT_FETCH_URL = `${HOST}/main/data/radcomponents/component/tagcount`;
+const FOLDER_STATS_URL = `${HOST}/main/data/radcomponents/component/tags/stats`;
 
 interface TagCounterState {
     tagCount: number;
+    // per provider counts, or the folder statistics when counting a folder
+    breakdown: Record<string, number>;
     animating: boolean;
 }
 
+interface TagCounterDelegateState {
+    // the last counts pushed by the gateway, null until the first push
+    counts: TagCountPayload | FolderStatsPayload | null;
+}
+
+enum TagCountEvents {
+    SUBSCRIBE_EVENT = "tag-count-subscribe-event",
+    UPDATE_EVENT = "tag-count-update-event"
+}
+
+// how long to wait for the first pushed count before falling back to polling
+const MIN_PUSH_WAIT_MS = 3000;
+
+// Receives the counts the gateway pushes to every subscribed TagCounter
+export class TagCounterDelegate extends ComponentStoreDelegate {
+    private counts: TagCountPayload | FolderStatsPayload | null = null;
+
+    constructor(componentStore: AbstractUIElementStore) {
+        super(componentStore);
+    }
+
+    mapStateToProps(): TagCounterDelegateState {
+        return {
+            counts: this.counts
+        };
+    }
+
+    public subscribe(folderPath: string, interval: number): void {
+        this.counts = null;
+        this.fireEvent(TagCountEvents.SUBSCRIBE_EVENT, { folderPath, interval });
+    }
+
+    handleEvent(eventName: string, eventObject: JsObject): void {
+        if (eventName === TagCountEvents.UPDATE_EVENT) {
+            this.counts = eventObject as TagCountPayload | FolderStatsPayload;
+            this.notify();
+        }
+    }
+}
+
 /**
- * This example uses a 'data route' to collect tag counts according to a client-side polling request.
+ * Shows the counts pushed by the gateway delegate.  If none arrive, e.g. because the gateway's delegate is not
+ * available, it falls back to polling a 'data route', sending the last ETag so unchanged counts cost an empty 304.
  */
-export class TagCounter extends Component<ComponentProps<TagCountProps>, TagCounterState> {
+export class TagCounter extends Component<ComponentProps<TagCountProps, TagCounterDelegateState>, TagCounterState> {
     state: TagCounterState = {
         tagCount: 0,
+        breakdown: {},
         animating: false
     };
-    fetchPoller?: Poller<TagCountPayload>;
+    fetchPoller?: Poller<TagCountPayload | FolderStatsPayload>;
+    fallbackTimeoutId?: number;
 
     componentDidMount() {
-        this.fetchPoller = new Poller<TagCountPayload>(COUNT_FETCH_URL, this.props.props.interval);
-        this.fetchPoller.start(this.updateTagCount);
+        this.subscribe();
+    }
+
+    componentDidUpdate(prevProps: ComponentProps<TagCountProps, TagCounterDelegateState>): void {
+        const { folderPath, interval } = this.props.props;
+
+        if (prevProps.props.folderPath !== folderPath || prevProps.props.interval !== interval) {
+            this.stopPolling();
+            this.setState({ tagCount: 0, breakdown: {} });
+            this.subscribe();
+            return;
+        }
+
+        const counts = this.props.delegate && this.props.delegate.counts;
+        if (counts && counts !== (prevProps.delegate && prevProps.delegate.counts)) {
+            // the push channel works, polling is no longer needed
+            this.stopPolling();
+            this.applyCounts(counts);
+        }
     }
 
     componentWillUnmount(): void {
+        this.stopPolling();
+    }
+
+    subscribe(): void {
+        const { folderPath, interval } = this.props.props;
+
+        (this.props.store.delegate! as TagCounterDelegate).subscribe(folderPath, interval);
+        this.fallbackTimeoutId = window.setTimeout(() => {
+            this.fallbackTimeoutId = undefined;
+            if (!this.props.delegate || !this.props.delegate.counts) {
+                this.startPolling();
+            }
+        }, Math.max(MIN_PUSH_WAIT_MS, 2 * interval));
+    }
+
+    startPolling(): void {
+        const { folderPath, interval } = this.props.props;
+
+        if (folderPath) {
+            const url = `${FOLDER_STATS_URL}?depth=0&path=${encodeURIComponent(folderPath)}`;
+            this.fetchPoller = new Poller<FolderStatsPayload>(url, interval);
+        } else {
+            this.fetchPoller = new Poller<TagCountPayload>(COUNT_FETCH_URL, interval);
+        }
+        this.fetchPoller.start(this.updateFromResponse);
+    }
+
+    stopPolling(): void {
+        if (this.fallbackTimeoutId !== undefined) {
+            clearTimeout(this.fallbackTimeoutId);
+            this.fallbackTimeoutId = undefined;
+        }
         this.fetchPoller && this.fetchPoller.stop();
         this.fetchPoller = undefined;
     }
 
     @bind
-    updateTagCount(response: AxiosResponse<TagCountPayload>): void {
-        if (!this.state.animating) {
-            this.setState({ animating: true });
-            setTimeout(() => this.setState({ animating: false }), this.props.props.interval);
+    updateFromResponse(response: AxiosResponse<TagCountPayload | FolderStatsPayload>): void {
+        if (response && response.status === 304) {
+            // unchanged since the last poll
+            return;
         }
 
         if (response && response.status === 200) {
-            const json = response.data;
-
-            if (json && json.tagCount !== undefined) {
-                this.setState({ tagCount: json.tagCount });
-            } else {
-                console.warn(`UpdateTagCount() called with unknown argument '${JSON.stringify(json)}'`);
-            }
+            this.applyCounts(response.data);
         } else {
             console.warn(`Failed to collect updated tag count. Received response ` +
                 `'${response.status} - ${response.statusText}'`);
         }
     }
 
+    applyCounts(json: TagCountPayload | FolderStatsPayload): void {
+        if (!this.state.animating) {
+            this.setState({ animating: true });
+            setTimeout(() => this.setState({ animating: false }), this.props.props.interval);
+        }
+
+        if (json && (json as TagCountPayload).tagCount !== undefined) {
+            const counts = json as TagCountPayload;
+            this.setState({ tagCount: counts.tagCount, breakdown: counts.providers || {} });
+        } else if (json && (json as FolderStatsPayload).stats) {
+            const stats = (json as FolderStatsPayload).stats!;
+            this.setState({
+                tagCount: stats.tags,
+                breakdown: {
+                    folders: stats.folders,
+                    udtInstances: stats.udtInstances,
+                    alarms: stats.alarms,
+                    opcTags: stats.opcTags,
+                    memoryTags: stats.memoryTags,
+                    expressionTags: stats.expressionTags,
+                    otherTags: stats.otherTags,
+                    configBytes: stats.configBytes
+                }
+            });
+        } else if (json && (json as FolderStatsPayload).error) {
+            console.warn(`Failed to collect tag counts: ${(json as FolderStatsPayload).error}`);
+        }
+    }
+
     render() {
         const { props, emit } = this.props;
         const interval = props.interval;
 
-        if (this.fetchPoller && (this.fetchPoller.interval !== interval)) {
-            this.fetchPoller.updateInterval(interval);
-        }
-
         const counterClasses = this.state.animating ? 'tag-counter-count message-animation' : 'tag-counter-count';
+        const breakdown = Object.keys(this.state.breakdown)
+            .map(name => `${name}: ${this.state.breakdown[name]}`)
+            .join('\n');
 
         // Note that the topmost piece of dom requires the application of an element reference, events, style and
         // className as shown below otherwise the layout won't work, or any events configured will fail. See render
         // of MessengerComponent in Messenger.tsx for more details.
         return (
             <div {...emit({ classes: ['tag-counter-component'] })}>
-                <span className={counterClasses}>{this.state.tagCount}</span>
+                <span className={counterClasses} title={breakdown}>{this.state.tagCount}</span>
                 <span className={"tag-counter-interval"}>{`Interval ${interval} ms`}</span>
             </div>
 
@@ -114,11 +259,16 @@ export class TagCounterMeta implements ComponentMeta {
 
     getPropsReducer(tree: PropertyTree): Record<string, any> {
         return {
-            interval: tree.readNumber("interval", 1000)
+            interval: tree.readNumber("interval", 1000),
+            folderPath: tree.readString("folderPath", "")
         };
     }
 
     getViewComponent(): PComponent {
         return TagCounter;
     }
+
+    createDelegate(component: AbstractUIElementStore): ComponentStoreDelegate | undefined {
+        return new TagCounterDelegate(component);
+    }
 }
@@ -3,6 +3,7 @@ import { Image, ImageMeta } from './components/Image';
 import { ImageTest, ImageTestMeta } from './components/ImageTest';
 import { MessengerComponent, MessengerComponentMeta } from './components/Messenger';
 import { TagCounter, TagCounterMeta } from './components/TagCounter';
+import { LogViewer, LogViewerMeta } from './components/LogViewer';
 import { CsvToAlarmLog, CsvToAlarmLogMeta } from './components/CsvToAlarmLog';
 import { ScreenCapture, ScreenCaptureMeta} from './components/Screencapture';
 import { AWSInfraSVGComponent, AWSInfraSVGComponentMeta} from './components/AWSInfraSVG';
@@ -10,7 +11,7 @@ import { AWSInfraSVGComponent, AWSInfraSVGComponentMeta} from './components/AWSI
 
 
 // export so the components are referencable, e.g. `RadComponents['Image']
-export {Image, ImageTest, MessengerComponent, TagCounter, CsvToAlarmLog, ScreenCapture,AWSInfraSVGComponent};
+export {Image, ImageTest, MessengerComponent, TagCounter, CsvToAlarmLog, ScreenCapture,AWSInfraSVGComponent, LogViewer};
 
 import '../scss/main';
 
@@ -22,7 +23,8 @@ const components: Array<ComponentMeta> = [
     new TagCounterMeta(),
     new CsvToAlarmLogMeta(),
     new ScreenCaptureMeta(),
-    new AWSInfraSVGComponentMeta()
+    new AWSInfraSVGComponentMeta(),
+    new LogViewerMeta()
 ];
 
 // iterate through our components, registering each one with the registry.  Don't forget to register on the Java side too!
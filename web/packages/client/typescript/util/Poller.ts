@@ -13,6 +13,8 @@ export class Poller<T = any> {
 
     private _interval: number;
 
+    private entityTag: string | undefined;
+
     readonly resourceUrl: string;
 
     constructor(resourceUrl: string, interval: number) {
@@ -52,14 +54,23 @@ export class Poller<T = any> {
 
     updateInterval(interval: number = 1000) {
         if (this._interval !== interval) {
-            stop();
+            this.stop();
             this._interval = interval;
             this.begin();
         }
     }
 
     private async poll<T = any>(): Promise<T> {
-        const response = await Axios.get(this.resourceUrl);
+        // revalidate with the last ETag, the callback is handed a 304 when nothing changed
+        const headers = this.entityTag ? { 'If-None-Match': this.entityTag } : {};
+        const response = await Axios.get(this.resourceUrl, {
+            headers,
+            validateStatus: status => (status >= 200 && status < 300) || status === 304
+        });
+
+        if (response.status === 200 && response.headers && response.headers.etag) {
+            this.entityTag = response.headers.etag;
+        }
         return this.callback(response);
     }
 